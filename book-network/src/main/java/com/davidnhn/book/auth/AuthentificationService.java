@@ -1,5 +1,7 @@
 package com.davidnhn.book.auth;
 
+import com.davidnhn.book.cache.CacheInvalidationBus;
+import com.davidnhn.book.cache.CachedEntity;
 import com.davidnhn.book.email.EmailService;
 import com.davidnhn.book.email.EmailTemplate;
 import com.davidnhn.book.role.RoleRepository;
@@ -35,6 +37,7 @@ public class AuthentificationService {
     private final EmailService emailService;
     private final AuthenticationManager authenticationManager;
     private final JwtService jwtService;
+    private final CacheInvalidationBus invalidationBus;
     // Injection de la valeur de l'URL d'activation depuis les propriétés de l'application
     @Value("${application.mailing.frontend.activation-url}")
     private String activationUrl;
@@ -58,6 +61,8 @@ public class AuthentificationService {
                 .build()
                 ;
         userRepository.save(user);
+        // findByEmail a pu mettre en cache un résultat vide sur les autres instances
+        invalidationBus.publish(CachedEntity.USER, List.of(user.getId()));
         sendValidationEmail(user);
     }
 
@@ -91,6 +96,8 @@ public class AuthentificationService {
                 .orElseThrow(() -> new RuntimeException("User not found"));
         user.setEnabled(true);
         userRepository.save(user);
+        // l'utilisateur est dans le cache de second niveau des autres instances
+        invalidationBus.publish(CachedEntity.USER, List.of(user.getId()));
 
         savedToken.setValidatedAt(LocalDateTime.now());
         tokenRepository.save(savedToken);
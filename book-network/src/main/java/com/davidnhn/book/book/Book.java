@@ -10,6 +10,8 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.experimental.SuperBuilder;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.List;
 
@@ -19,6 +21,7 @@ import java.util.List;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class Book extends BaseEntity {
 
     private String title;
@@ -41,39 +44,46 @@ public class Book extends BaseEntity {
 
 
 
+    // maintenus à chaque avis par FeedbackService, sur l'entité verrouillée (BookRepository.findByIdForUpdate)
+    private int feedbackCount;
+    private double noteSum;
+    private double rankingScore; // moyenne bayésienne, voir BookRanking
+
+    // ordre de partage dans les fils d'actualité, attribué par la base (trigger de V12__feed_share_sequence)
+    @Column(insertable = false, updatable = false)
+    private Integer shareSequence;
+
+    // verrou optimiste ; sert aussi de clé à BookResponseCache
+    @Version
+    private long version;
+
     /**
      * @Transient indique à JPA que cet attribut ne doit pas être persistant.
 
      * @Transient est utilisé pour marquer un champ d'une entité qui ne doit pas être mappé à une colonne dans la base de données.
      * Les champs annotés avec @Transient sont ignorés par l'ORM lors de l'insertion, de la mise à jour et de la récupération des entités.
 
-     * Dans cet exemple, le champ rate n'est pas persistant car il est calculé à la volée en fonction des feedbacks.
-     * Cela évite de stocker des données redondantes et garantit que la valeur est toujours à jour.
+     * Dans cet exemple, le champ rate n'est pas persistant car il est calculé à la volée à partir de noteSum et feedbackCount.
+     * Ces deux compteurs sont mis à jour à chaque avis : il n'est plus nécessaire de charger la liste des feedbacks.
      */
     @Transient
     public double getRate() {
-        if(feedbacks == null || feedbacks.isEmpty()) {
+        return rate(feedbackCount, noteSum);
+    }
+
+    // aussi utilisé pour les réponses lues par projection (fields=), sans entité
+    public static double rate(int feedbackCount, double noteSum) {
+        if(feedbackCount == 0) {
             return 0.0;
         }
 
-        var rate = this.feedbacks.stream()
-                .mapToDouble(Feedback::getNote)
-                .average()
-                .orElse(0.0);
+        var rate = noteSum / feedbackCount;
 
         double roundedRate = Math.round(rate * 10.0) / 10.0;
         return roundedRate;
     }
 }
 
-/*
- * mapToDouble(Feedback::getNote) : Bien que getNote retourne un double, mapToDouble est utilisé pour
- * convertir chaque élément du flux en un double primitif. Cela crée un DoubleStream, qui a des opérations
- * spécialisées pour les types primitifs, comme average(). Utiliser map directement ici ne fonctionnerait pas
- * parce que map retourne un Stream<Double>, qui ne possède pas la méthode average(). En utilisant mapToDouble,
- * nous obtenons un DoubleStream, ce qui permet de calculer directement la moyenne des doubles.
- */
-
 /*
  * Arrondit la valeur de 'rate' à une décimale.
 
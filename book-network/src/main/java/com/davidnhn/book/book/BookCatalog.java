@@ -0,0 +1,202 @@
+package com.davidnhn.book.book;
+
+import com.davidnhn.book.cache.CachedEntity;
+import com.davidnhn.book.cache.RemoteInvalidationEvent;
+import com.davidnhn.book.exceptions.OperationNotPermittedException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Sert GET /books (livres affichables des autres utilisateurs, les plus récents d'abord) depuis la mémoire.
+ *
+ * Le filtre owner.id != :userId empêche Postgres d'utiliser un index pour cette requête ; ici une page se lit
+ * en parcourant le bitmap des lignes affichables depuis la fin (CatalogColumns), et seuls les livres de la page
+ * sont ensuite chargés par id. L'instantané est tenu à jour par les BookChangedEvent, par les livres modifiés sur
+ * les autres instances (RemoteInvalidationEvent : lignes relues) et rechargé entièrement à intervalle régulier.
+ *
+ * Un seul rechargement à la fois : deux rechargements concurrents se partageraient pendingEvents, et le premier
+ * terminé cesserait d'y noter les modifications que le second n'a peut-être pas lues. Une demande reçue pendant un
+ * rechargement en relance un autre à sa fin, sans bloquer l'appelant (thread d'écoute de CacheInvalidationBus).
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class BookCatalog {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Lock reloadLock = new ReentrantLock();
+    private final AtomicBoolean reloadRequested = new AtomicBoolean();
+    // modifications reçues pendant un rechargement, rejouées sur le nouvel instantané
+    private final List<BookChangedEvent> pendingEvents = new ArrayList<>();
+    private boolean reloading;
+    private CatalogColumns columns;
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        reload();
+    }
+
+    @Scheduled(fixedDelayString = "${application.catalog.reload-interval}", initialDelayString = "${application.catalog.reload-interval}")
+    public void reload() {
+        reloadRequested.set(true);
+        // revérifié après chaque rechargement : une demande arrivée pendant celui-ci n'a pas pu prendre le verrou
+        while (reloadRequested.get() && reloadLock.tryLock()) {
+            try {
+                if (reloadRequested.getAndSet(false)) {
+                    rebuild();
+                }
+            } finally {
+                reloadLock.unlock();
+            }
+        }
+    }
+
+    private void rebuild() {
+        withWriteLock(() -> reloading = true);
+        long start = System.currentTimeMillis();
+        CatalogColumns loaded;
+        try {
+            Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM book", Long.class);
+            CatalogColumns rows = new CatalogColumns(count == null ? 0 : count.intValue());
+            jdbcTemplate.query(
+                    "SELECT id, owner_id, created_date, archived, shareable FROM book ORDER BY created_date, id",
+                    rs -> {
+                        rows.upsert(
+                                rs.getInt("id"),
+                                rs.getInt("owner_id"),
+                                rs.getTimestamp("created_date").getTime(),
+                                !rs.getBoolean("archived") && rs.getBoolean("shareable"));
+                    });
+            loaded = rows;
+        } catch (RuntimeException e) {
+            withWriteLock(() -> {
+                reloading = false;
+                pendingEvents.clear();
+            });
+            throw e;
+        }
+
+        withWriteLock(() -> {
+            pendingEvents.forEach(event -> apply(loaded, event));
+            pendingEvents.clear();
+            reloading = false;
+            columns = loaded;
+        });
+        log.debug("Book catalog loaded: {} books in {} ms", loaded.size(), System.currentTimeMillis() - start);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        withWriteLock(() -> {
+            if (columns != null) {
+                apply(columns, event);
+            }
+            if (reloading) {
+                pendingEvents.add(event);
+            }
+        });
+    }
+
+    /**
+     * Modifications faites par une autre instance : la notification ne porte que les ids, les lignes sont relues.
+     * Écoute interrompue : rechargement complet, sauf si le premier chargement n'est pas encore terminé.
+     */
+    @EventListener
+    public void onRemoteInvalidation(RemoteInvalidationEvent event) {
+        if (event.flushAll()) {
+            lock.readLock().lock();
+            boolean loaded;
+            try {
+                loaded = columns != null;
+            } finally {
+                lock.readLock().unlock();
+            }
+            if (loaded) {
+                reload();
+            }
+            return;
+        }
+        if (event.ids(CachedEntity.BOOK).isEmpty()) {
+            return;
+        }
+        namedParameterJdbcTemplate.query(
+                "SELECT id, owner_id, created_date, archived, shareable FROM book WHERE id IN (:ids)",
+                Map.of("ids", event.ids(CachedEntity.BOOK)),
+                rs -> {
+                    onBookChanged(new BookChangedEvent(
+                            rs.getInt("id"),
+                            rs.getInt("owner_id"),
+                            rs.getTimestamp("created_date").toLocalDateTime(),
+                            !rs.getBoolean("archived") && rs.getBoolean("shareable"),
+                            true));
+                });
+    }
+
+    /**
+     * @return vide tant que l'instantané n'est pas chargé : l'appelant passe alors par la base
+     */
+    public Optional<CatalogPage> findDisplayableBooks(Integer excludedOwnerId, int page, int size) {
+        if (page < 0 || size < 1) {
+            throw new OperationNotPermittedException("Page must be positive and size at least 1");
+        }
+        lock.readLock().lock();
+        try {
+            if (columns == null) {
+                return Optional.empty();
+            }
+            int[] ids = columns.page(excludedOwnerId, (long) page * size, size);
+            List<Integer> bookIds = new ArrayList<>(ids.length);
+            for (int id : ids) {
+                bookIds.add(id);
+            }
+            return Optional.of(new CatalogPage(bookIds, columns.countDisplayable(excludedOwnerId)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static void apply(CatalogColumns target, BookChangedEvent event) {
+        LocalDateTime createdDate = event.createdDate() != null ? event.createdDate() : LocalDateTime.now();
+        target.upsert(
+                event.bookId(),
+                event.ownerId(),
+                createdDate.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(),
+                event.displayable());
+    }
+
+    private void withWriteLock(Runnable action) {
+        lock.writeLock().lock();
+        try {
+            action.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public record CatalogPage(List<Integer> bookIds, long totalElements) {
+    }
+}
@@ -0,0 +1,29 @@
+package com.davidnhn.book.book;
+
+import java.time.LocalDateTime;
+
+/**
+ * Publié après chaque création ou modification d'un livre.
+ *
+ * @param createdDate       null lors d'une modification via BookService.save (non renvoyé par le merge)
+ * @param displayable       le livre est partageable et non archivé après la modification
+ * @param visibilityChanged création, ou changement de shareable/archived (et non simple modification des champs)
+ */
+public record BookChangedEvent(
+        Integer bookId,
+        Integer ownerId,
+        LocalDateTime createdDate,
+        boolean displayable,
+        boolean visibilityChanged
+) {
+
+    public static BookChangedEvent of(Book book, boolean visibilityChanged) {
+        return new BookChangedEvent(
+                book.getId(),
+                book.getOwner().getId(),
+                book.getCreatedDate(),
+                book.isShareable() && !book.isArchived(),
+                visibilityChanged
+        );
+    }
+}
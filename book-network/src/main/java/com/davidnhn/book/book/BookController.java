@@ -1,15 +1,27 @@
 package com.davidnhn.book.book;
 
 import com.davidnhn.book.common.PageResponse;
+import com.davidnhn.book.common.PaginationMode;
+import com.davidnhn.book.common.ResourceVersion;
+import com.davidnhn.book.common.ResponseFormat;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("books")
 @RequiredArgsConstructor
@@ -18,35 +30,83 @@ public class BookController {
 
 
     private final BookService service;
+    private final BookDetailService detailService;
 
     @PostMapping
     public ResponseEntity<Integer> saveBook(@Valid @RequestBody BookRequest request, Authentication connectedUser) {
         return ResponseEntity.ok(service.save(request, connectedUser));
     }
 
+    // octets JSON déjà sérialisés (BookResponseCache), recopiés en CBOR ou Smile si le client le demande :
+    // le schéma reste celui de BookResponse pour le client généré
     @GetMapping("{book-id}")
-    public ResponseEntity<BookResponse> findBookById(@PathVariable("book-id") Integer bookId) {
-        return ResponseEntity.ok(service.findById(bookId));
+    @ApiResponse(responseCode = "200", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+            schema = @Schema(implementation = BookResponse.class)))
+    public ResponseEntity<byte[]> findBookById(@PathVariable("book-id") Integer bookId, WebRequest request) {
+        ResponseFormat format = ResponseFormat.of(request);
+        return service.findById(bookId, ResourceVersion.notModified(request))
+                .map(book -> ResponseEntity.ok()
+                        .cacheControl(CacheControl.noCache().cachePrivate()) // gardée par le navigateur, revalidée à chaque fois
+                        .varyBy(HttpHeaders.ACCEPT)
+                        .contentType(format.mediaType())
+                        .body(format.transcode(book.json())))
+                .orElse(null); // 304 : statut, ETag et Last-Modified déjà positionnés par checkNotModified
     }
 
 
 
+    // livre, première page des avis et emprunt de l'utilisateur en un seul appel
+    @GetMapping("{book-id}/detail")
+    public ResponseEntity<BookDetailResponse> findBookDetail(@PathVariable("book-id") Integer bookId, Authentication connectedUser) {
+        return ResponseEntity.ok(detailService.findDetail(bookId, connectedUser));
+    }
+
     @GetMapping()
     public ResponseEntity<PageResponse<BookResponse>> findAllBooks(
             @RequestParam(name = "page", defaultValue = "0", required = false) int page,
             @RequestParam(name ="size", defaultValue = "10", required = false) int size,
+            @RequestParam(name = "mode", defaultValue = "EXACT", required = false) PaginationMode mode,
+            @RequestParam(name = "fields", required = false) String fields,
             Authentication connectedUser
     ) {
-        return ResponseEntity.ok(service.findAllBooks(page, size, connectedUser));
+        return ResponseEntity.ok(service.findAllBooks(page, size, mode, fields, connectedUser));
+    }
+
+    // multi-get : même chemin que la liste paginée, choisi par la présence de ids
+    @GetMapping(params = "ids")
+    public ResponseEntity<List<BookLookupResponse>> findBooksByIds(
+            @RequestParam(name = "ids") List<Integer> ids,
+            @RequestParam(name = "fields", required = false) String fields
+    ) {
+        return ResponseEntity.ok(service.findAllByIds(ids, fields));
+    }
+
+    // même chose pour les listes d'ids trop longues pour une URL
+    @PostMapping("/multi-get")
+    public ResponseEntity<List<BookLookupResponse>> findBooksByIdList(@RequestBody BookIdsRequest request) {
+        return ResponseEntity.ok(service.findAllByIds(request.ids(), request.fields()));
+    }
+
+    @GetMapping("/top-rated")
+    public ResponseEntity<PageResponse<BookResponse>> findTopRatedBooks(
+            @RequestParam(name = "page", defaultValue = "0", required = false) int page,
+            @RequestParam(name ="size", defaultValue = "10", required = false) int size,
+            @RequestParam(name = "mode", defaultValue = "EXACT", required = false) PaginationMode mode,
+            @RequestParam(name = "fields", required = false) String fields,
+            Authentication connectedUser
+    ) {
+        return ResponseEntity.ok(service.findTopRatedBooks(page, size, mode, fields, connectedUser));
     }
 
     @GetMapping("/owner")
     public ResponseEntity<PageResponse<BookResponse>> findAllBooksByOwner(
             @RequestParam(name = "page", defaultValue = "0", required = false) int page,
             @RequestParam(name ="size", defaultValue = "10", required = false) int size,
+            @RequestParam(name = "mode", defaultValue = "EXACT", required = false) PaginationMode mode,
+            @RequestParam(name = "fields", required = false) String fields,
             Authentication connectedUser
     ) {
-        return ResponseEntity.ok(service.findAllBooksByOwner(page, size, connectedUser));
+        return ResponseEntity.ok(service.findAllBooksByOwner(page, size, mode, fields, connectedUser));
 
     }
 
@@ -54,9 +114,11 @@ public class BookController {
     public ResponseEntity<PageResponse<BorrowedBookResponse>> findAllBorrowedBooks(
             @RequestParam(name = "page", defaultValue = "0", required = false) int page,
             @RequestParam(name ="size", defaultValue = "10", required = false) int size,
+            @RequestParam(name = "mode", defaultValue = "EXACT", required = false) PaginationMode mode,
+            @RequestParam(name = "fields", required = false) String fields,
             Authentication connectedUser
     ) {
-        return ResponseEntity.ok(service.findAllBorrowedBooks(page, size, connectedUser));
+        return ResponseEntity.ok(service.findAllBorrowedBooks(page, size, mode, fields, connectedUser));
 
     }
 
@@ -64,9 +126,11 @@ public class BookController {
     public ResponseEntity<PageResponse<BorrowedBookResponse>> findAllReturnedBooks(
             @RequestParam(name = "page", defaultValue = "0", required = false) int page,
             @RequestParam(name ="size", defaultValue = "10", required = false) int size,
+            @RequestParam(name = "mode", defaultValue = "EXACT", required = false) PaginationMode mode,
+            @RequestParam(name = "fields", required = false) String fields,
             Authentication connectedUser
     ) {
-        return ResponseEntity.ok(service.findAllReturnedBooks(page, size, connectedUser));
+        return ResponseEntity.ok(service.findAllReturnedBooks(page, size, mode, fields, connectedUser));
 
     }
 
@@ -84,6 +148,20 @@ public class BookController {
         return ResponseEntity.ok(service.updateArchivedStatus(bookId, connectedUser));
     }
 
+    @PatchMapping("/shareable")
+    public ResponseEntity<BulkOperationResponse> updateShareableStatuses(
+            @Valid @RequestBody BulkBookUpdateRequest request,
+            Authentication connectedUser) {
+        return ResponseEntity.ok(service.updateShareableStatuses(request, connectedUser));
+    }
+
+    @PatchMapping("/archived")
+    public ResponseEntity<BulkOperationResponse> updateArchivedStatuses(
+            @Valid @RequestBody BulkBookUpdateRequest request,
+            Authentication connectedUser) {
+        return ResponseEntity.ok(service.updateArchivedStatuses(request, connectedUser));
+    }
+
     @PostMapping("/borrow/{book-id}")
     public ResponseEntity<Integer> borrowBook(
             @PathVariable("book-id") Integer bookId,
@@ -107,6 +185,14 @@ public class BookController {
         return ResponseEntity.ok(service.approveReturnBorrowedBook(bookId, connectedUser));
     }
 
+    // approbation groupée : tous les retours en attente, ou ceux des livres indiqués
+    @PatchMapping("/borrow/return/approve")
+    public ResponseEntity<BulkOperationResponse> approveReturnBorrowedBooks(
+            @RequestBody BulkReturnApprovalRequest request,
+            Authentication connectedUser) {
+        return ResponseEntity.ok(service.approveReturnBorrowedBooks(request, connectedUser));
+    }
+
     @PostMapping(value = "/cover/{book-id}", consumes = "multipart/form-data")
     public ResponseEntity<?> uploadBookCoverPicture(
             @PathVariable("book-id") Integer bookId,
@@ -0,0 +1,25 @@
+package com.davidnhn.book.book;
+
+import com.davidnhn.book.common.EmbeddedJsonSerializer;
+import com.davidnhn.book.common.PageResponse;
+import com.davidnhn.book.feedback.FeedbackResponse;
+import com.davidnhn.book.history.LoanStateResponse;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * Fiche d'un livre en un seul appel : le livre, la première page de ses avis et l'emprunt de l'utilisateur connecté.
+ *
+ * @param book      JSON de BookResponse tel que gardé par BookResponseCache, recopié sans nouvelle sérialisation (voir EmbeddedJsonSerializer)
+ * @param feedbacks absente si elle n'a pas été lue avant l'échéance de la requête (complete vaut alors false)
+ * @param loan      idem
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BookDetailResponse(
+        @JsonSerialize(using = EmbeddedJsonSerializer.class) @Schema(implementation = BookResponse.class) String book,
+        PageResponse<FeedbackResponse> feedbacks,
+        LoanStateResponse loan,
+        boolean complete
+) {
+}
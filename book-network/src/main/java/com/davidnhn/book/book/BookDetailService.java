@@ -0,0 +1,129 @@
+package com.davidnhn.book.book;
+
+import com.davidnhn.book.common.PageResponse;
+import com.davidnhn.book.common.PaginationMode;
+import com.davidnhn.book.concurrency.RequestDeadline;
+import com.davidnhn.book.datasource.ReadYourWrites;
+import com.davidnhn.book.feedback.FeedbackResponse;
+import com.davidnhn.book.feedback.FeedbackService;
+import com.davidnhn.book.history.BookTransactionHistoryRepository;
+import com.davidnhn.book.history.LoanStateResponse;
+import com.davidnhn.book.user.User;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fiche agrégée d'un livre (GET /books/{book-id}/detail), qui remplace les trois appels successifs de l'interface.
+ *
+ * Les avis et l'emprunt de l'utilisateur sont lus en parallèle sur un pool borné pendant que le thread de la
+ * requête lit le livre : la latence est celle de la lecture la plus lente, pas leur somme. Toute la fiche est
+ * bornée par une seule échéance (deadline) : une partie secondaire encore en cours à l'échéance est omise
+ * (complete vaut false) plutôt que de retenir la réponse. Le livre, lui, est toujours attendu.
+ *
+ * Pool plein : la tâche s'exécute sur le thread de la requête (CallerRunsPolicy), la fiche reste correcte.
+ */
+@Service
+@Slf4j
+public class BookDetailService {
+
+    private final BookService bookService;
+    private final FeedbackService feedbackService;
+    private final BookTransactionHistoryRepository transactionHistoryRepository;
+    private final ThreadPoolExecutor fetcher;
+
+    @Value("${application.book-detail.deadline}")
+    private Duration deadline;
+
+    @Value("${application.book-detail.feedback-page-size}")
+    private int feedbackPageSize;
+
+    public BookDetailService(BookService bookService,
+                             FeedbackService feedbackService,
+                             BookTransactionHistoryRepository transactionHistoryRepository,
+                             @Value("${application.book-detail.threads}") int threads,
+                             @Value("${application.book-detail.queue-size}") int queueSize) {
+        this.bookService = bookService;
+        this.feedbackService = feedbackService;
+        this.transactionHistoryRepository = transactionHistoryRepository;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.fetcher = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "book-detail-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    public BookDetailResponse findDetail(Integer bookId, Authentication connectedUser) {
+        long deadlineNanos = System.nanoTime() + deadline.toNanos();
+        User user = ((User) connectedUser.getPrincipal());
+
+        // lectures sur les réplicas, sauf si l'utilisateur vient d'écrire (voir ReadYourWrites) ; ordres SQL annulés
+        // à l'échéance de la fiche (ou de la requête si elle est plus proche) plutôt que de continuer pour rien
+        CompletableFuture<PageResponse<FeedbackResponse>> feedbacks = CompletableFuture.supplyAsync(
+                RequestDeadline.propagate(deadlineNanos, ReadYourWrites.withRequiredPosition(
+                        () -> feedbackService.findAllFeedbacksByBook(bookId, 0, feedbackPageSize, PaginationMode.ESTIMATED,
+                                null, connectedUser, version -> false).orElseThrow())),
+                fetcher);
+        CompletableFuture<LoanStateResponse> loan = CompletableFuture.supplyAsync(
+                RequestDeadline.propagate(deadlineNanos, ReadYourWrites.withRequiredPosition(
+                        () -> transactionHistoryRepository.findOpenLoan(bookId, user.getId())
+                                .map(history -> LoanStateResponse.of(history, LocalDateTime.now()))
+                                .orElseGet(LoanStateResponse::none))),
+                fetcher);
+
+        String book;
+        try {
+            // lu sur le thread de la requête, en même temps que les deux autres parties (404 si le livre n'existe pas)
+            book = new String(bookService.findById(bookId, version -> false).orElseThrow().json(), StandardCharsets.UTF_8);
+        } catch (RuntimeException e) {
+            feedbacks.cancel(false);
+            loan.cancel(false);
+            throw e;
+        }
+
+        PageResponse<FeedbackResponse> feedbackPage = await(feedbacks, deadlineNanos, "feedbacks", bookId);
+        LoanStateResponse loanState = await(loan, deadlineNanos, "loan", bookId);
+        return new BookDetailResponse(book, feedbackPage, loanState, feedbackPage != null && loanState != null);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        fetcher.shutdownNow();
+    }
+
+    // null si la partie n'est pas prête à l'échéance ; les erreurs de la partie sont propagées
+    private <T> T await(CompletableFuture<T> part, long deadlineNanos, String name, Integer bookId) {
+        try {
+            return part.get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            part.cancel(false);
+            log.warn("Book {} detail: {} not ready before the {} deadline", bookId, name, deadline);
+            return null;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while reading book " + bookId + " detail", e);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.davidnhn.book.book;
+
+import com.davidnhn.book.common.SelectableField;
+
+import java.util.List;
+
+/**
+ * Champs de BookResponse demandables avec fields= ; alias "book" dans les requêtes de BookService.
+ */
+public enum BookField implements SelectableField {
+
+    ID("id", "book.id AS id"),
+    TITLE("title", "book.title AS title"),
+    AUTHOR_NAME("authorName", "book.authorName AS authorName"),
+    ISBN("isbn", "book.isbn AS isbn"),
+    SYNOPSIS("synopsis", "book.synopsis AS synopsis"),
+    OWNER("owner", "book.owner.firstname AS ownerFirstname", "book.owner.lastname AS ownerLastname"), // jointure _user
+    COVER("cover", "book.bookCover AS bookCover"), // lecture du fichier sur disque
+    RATE("rate", "book.feedbackCount AS feedbackCount", "book.noteSum AS noteSum"),
+    ARCHIVED("archived", "book.archived AS archived"),
+    SHAREABLE("shareable", "book.shareable AS shareable");
+
+    private final String fieldName;
+    private final List<String> selections;
+
+    BookField(String fieldName, String... selections) {
+        this.fieldName = fieldName;
+        this.selections = List.of(selections);
+    }
+
+    @Override
+    public String fieldName() {
+        return fieldName;
+    }
+
+    @Override
+    public List<String> selections() {
+        return selections;
+    }
+}
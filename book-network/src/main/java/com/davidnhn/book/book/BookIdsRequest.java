@@ -0,0 +1,10 @@
+package com.davidnhn.book.book;
+
+import java.util.List;
+
+public record BookIdsRequest(
+        List<Integer> ids, // au plus application.multi-get.max-ids
+
+        String fields // champs demandés (voir BookField), tous si absent
+) {
+}
@@ -0,0 +1,16 @@
+package com.davidnhn.book.book;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Élément de la réponse du multi-get (GET /books?ids=...) : un par id demandé, dans l'ordre de la requête.
+ *
+ * @param found false si aucun livre n'a cet id (book est alors absent)
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BookLookupResponse(Integer id, boolean found, BookResponse book) {
+
+    public static BookLookupResponse of(Integer id, BookResponse book) {
+        return new BookLookupResponse(id, book != null, book);
+    }
+}
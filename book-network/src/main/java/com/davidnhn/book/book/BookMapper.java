@@ -2,8 +2,12 @@ package com.davidnhn.book.book;
 
 import com.davidnhn.book.file.FileUtils;
 import com.davidnhn.book.history.BookTransactionHistory;
+import jakarta.persistence.Tuple;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
+import java.util.Set;
+
 @Service
 public class BookMapper {
 
@@ -37,6 +41,43 @@ public class BookMapper {
 
     }
 
+    /**
+     * Réponse partielle (fields=) à partir d'une ligne lue par projection : seuls les champs demandés sont remplis,
+     * la couverture n'est lue sur disque et la note calculée que s'ils le sont.
+     */
+    public BookResponse toBookResponse(Tuple row, Set<BookField> fields) {
+        BookResponse.BookResponseBuilder response = BookResponse.builder()
+                .id(row.get("id", Integer.class));
+        if (fields.contains(BookField.TITLE)) {
+            response.title(row.get("title", String.class));
+        }
+        if (fields.contains(BookField.AUTHOR_NAME)) {
+            response.authorName(row.get("authorName", String.class));
+        }
+        if (fields.contains(BookField.ISBN)) {
+            response.isbn(row.get("isbn", String.class));
+        }
+        if (fields.contains(BookField.SYNOPSIS)) {
+            response.synopsis(row.get("synopsis", String.class));
+        }
+        if (fields.contains(BookField.OWNER)) {
+            response.owner(row.get("ownerFirstname", String.class) + " " + row.get("ownerLastname", String.class));
+        }
+        if (fields.contains(BookField.COVER)) {
+            response.cover(FileUtils.readFileFromLocation(row.get("bookCover", String.class)));
+        }
+        if (fields.contains(BookField.RATE)) {
+            response.rate(Book.rate(row.get("feedbackCount", Integer.class), row.get("noteSum", Double.class)));
+        }
+        if (fields.contains(BookField.ARCHIVED)) {
+            response.archived(row.get("archived", Boolean.class));
+        }
+        if (fields.contains(BookField.SHAREABLE)) {
+            response.shareable(row.get("shareable", Boolean.class));
+        }
+        return response.build();
+    }
+
     public BorrowedBookResponse toBorrowedBookResponse(BookTransactionHistory history) {
         return BorrowedBookResponse.builder()
                 .id(history.getBook().getId())
@@ -46,6 +87,43 @@ public class BookMapper {
                 .rate(history.getBook().getRate())
                 .returned(history.isReturned())
                 .returnApproved(history.isReturnApproved())
+                .dueDate(history.getDueDate())
+                .overdue(!history.isReturned()
+                        && history.getDueDate() != null
+                        && history.getDueDate().isBefore(LocalDateTime.now()))
                 .build();
     }
+
+    public BorrowedBookResponse toBorrowedBookResponse(Tuple row, Set<BorrowedBookField> fields) {
+        BorrowedBookResponse.BorrowedBookResponseBuilder response = BorrowedBookResponse.builder()
+                .id(row.get("id", Integer.class));
+        if (fields.contains(BorrowedBookField.TITLE)) {
+            response.title(row.get("title", String.class));
+        }
+        if (fields.contains(BorrowedBookField.AUTHOR_NAME)) {
+            response.authorName(row.get("authorName", String.class));
+        }
+        if (fields.contains(BorrowedBookField.ISBN)) {
+            response.isbn(row.get("isbn", String.class));
+        }
+        if (fields.contains(BorrowedBookField.RATE)) {
+            response.rate(Book.rate(row.get("feedbackCount", Integer.class), row.get("noteSum", Double.class)));
+        }
+        if (fields.contains(BorrowedBookField.RETURNED)) {
+            response.returned(row.get("returned", Boolean.class));
+        }
+        if (fields.contains(BorrowedBookField.RETURN_APPROVED)) {
+            response.returnApproved(row.get("returnApproved", Boolean.class));
+        }
+        if (fields.contains(BorrowedBookField.DUE_DATE)) {
+            response.dueDate(row.get("dueDate", LocalDateTime.class));
+        }
+        if (fields.contains(BorrowedBookField.OVERDUE)) {
+            LocalDateTime dueDate = row.get("dueDate", LocalDateTime.class);
+            response.overdue(!row.get("returned", Boolean.class)
+                    && dueDate != null
+                    && dueDate.isBefore(LocalDateTime.now()));
+        }
+        return response.build();
+    }
 }
@@ -0,0 +1,38 @@
+package com.davidnhn.book.book;
+
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Score de classement d'un livre : moyenne bayésienne des notes.
+ *
+ * score = (priorWeight * priorMean + somme des notes) / (priorWeight + nombre d'avis)
+ *
+ * Un livre avec peu d'avis reste proche de priorMean ; il faut beaucoup d'avis pour qu'il s'en écarte,
+ * ce qui évite qu'un seul 5/5 place un livre en tête du classement.
+ */
+@Component
+@Getter
+public class BookRanking {
+
+    @Value("${application.ranking.prior-weight}")
+    private double priorWeight;
+
+    @Value("${application.ranking.prior-mean}")
+    private double priorMean;
+
+    public double score(double noteSum, int feedbackCount) {
+        return (priorWeight * priorMean + noteSum) / (priorWeight + feedbackCount);
+    }
+
+    /**
+     * Met à jour les compteurs et le score d'un livre géré (verrouillé par l'appelant) : la modification passe par
+     * l'entité, seule son entrée du cache de second niveau est remplacée au commit.
+     */
+    public void apply(Book book, int feedbackCount, double noteSum) {
+        book.setFeedbackCount(feedbackCount);
+        book.setNoteSum(noteSum);
+        book.setRankingScore(score(noteSum, feedbackCount));
+    }
+}
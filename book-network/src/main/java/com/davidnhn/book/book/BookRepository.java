@@ -1,14 +1,23 @@
 package com.davidnhn.book.book;
 
+import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface BookRepository extends JpaRepository<Book, Integer>, JpaSpecificationExecutor<Book> {
 
@@ -30,7 +39,121 @@ public interface BookRepository extends JpaRepository<Book, Integer>, JpaSpecifi
            """)
     Page<Book> findAllDisplayableBooks(Pageable pageable,@Param("userId") Integer userId);
 
+    // même requête sans COUNT (pagination SLICE / ESTIMATED)
+    @Query("""
+           SELECT book
+           FROM Book book
+           WHERE book.archived = false
+           AND book.shareable = true
+           AND book.owner.id != :userId
+           """)
+    Slice<Book> findDisplayableBooksSlice(Pageable pageable, @Param("userId") Integer userId);
+
+    Slice<Book> findByOwnerId(Integer ownerId, Pageable pageable);
+
+    /**
+     * Livres affichables triés par score bayésien (index partiel idx_book_top_rated).
+     */
+    @Query("""
+           SELECT book
+           FROM Book book
+           WHERE book.archived = false
+           AND book.shareable = true
+           AND book.owner.id != :userId
+           ORDER BY book.rankingScore DESC, book.id DESC
+           """)
+    Page<Book> findTopRatedBooks(Pageable pageable, @Param("userId") Integer userId);
+
+    @Query("""
+           SELECT book
+           FROM Book book
+           WHERE book.archived = false
+           AND book.shareable = true
+           AND book.owner.id != :userId
+           ORDER BY book.rankingScore DESC, book.id DESC
+           """)
+    Slice<Book> findTopRatedBooksSlice(Pageable pageable, @Param("userId") Integer userId);
+
+    /**
+     * SELECT ... FOR UPDATE : les avis concurrents sur un même livre s'attendent, chacun lit les compteurs validés
+     * par le précédent avant de les incrémenter (FeedbackService.save).
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("""
+           SELECT book
+           FROM Book book
+           WHERE book.id = :bookId
+           """)
+    Optional<Book> findByIdForUpdate(@Param("bookId") Integer bookId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("""
+           SELECT book
+           FROM Book book
+           WHERE book.id IN :bookIds
+           ORDER BY book.id
+           """)
+    List<Book> findAllByIdForUpdate(@Param("bookIds") Collection<Integer> bookIds);
+
+    @Query("""
+           SELECT book.id
+           FROM Book book
+           WHERE book.owner.id = :ownerId
+           AND book.id IN :bookIds
+           """)
+    List<Integer> findOwnedBookIds(@Param("ownerId") Integer ownerId, @Param("bookIds") Collection<Integer> bookIds);
+
+    @Query("""
+           SELECT book.id
+           FROM Book book
+           WHERE book.owner.id = :ownerId
+           AND book.authorName = :authorName
+           """)
+    List<Integer> findOwnedBookIdsByAuthorName(@Param("ownerId") Integer ownerId, @Param("authorName") String authorName);
+
+    /**
+     * Mise à jour ensembliste : la condition sur owner_id garantit qu'un utilisateur ne modifie que ses propres livres.
+     * Un UPDATE HQL vide toute la région Book du cache de second niveau ; accepté pour ces actions par lot du
+     * propriétaire, rares, qui modifieraient sinon des centaines d'entités une à une.
+     */
+    @Modifying
+    @Query("""
+           UPDATE Book book
+           SET book.shareable = :shareable,
+               book.version = book.version + 1,
+               book.lastModifiedDate = :now,
+               book.lastModifiedBy = :ownerId
+           WHERE book.owner.id = :ownerId
+           AND book.id IN :bookIds
+           """)
+    int updateShareableStatus(@Param("ownerId") Integer ownerId, @Param("bookIds") Collection<Integer> bookIds,
+                              @Param("shareable") boolean shareable, @Param("now") LocalDateTime now);
 
+    @Modifying
+    @Query("""
+           UPDATE Book book
+           SET book.archived = :archived,
+               book.version = book.version + 1,
+               book.lastModifiedDate = :now,
+               book.lastModifiedBy = :ownerId
+           WHERE book.owner.id = :ownerId
+           AND book.id IN :bookIds
+           """)
+    int updateArchivedStatus(@Param("ownerId") Integer ownerId, @Param("bookIds") Collection<Integer> bookIds,
+                             @Param("archived") boolean archived, @Param("now") LocalDateTime now);
+
+
+    // GET /sync : livres du propriétaire créés ou modifiés dans ]since, until] (index idx_book_owner_changed)
+    @Query("""
+           SELECT book
+           FROM Book book
+           WHERE book.owner.id = :ownerId
+           AND COALESCE(book.lastModifiedDate, book.createdDate) > :since
+           AND COALESCE(book.lastModifiedDate, book.createdDate) <= :until
+           """)
+    List<Book> findChangedBooks(@Param("ownerId") Integer ownerId,
+                                @Param("since") LocalDateTime since,
+                                @Param("until") LocalDateTime until);
 }
 
 
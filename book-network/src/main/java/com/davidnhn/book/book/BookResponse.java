@@ -1,5 +1,6 @@
 package com.davidnhn.book.book;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.*;
 
 @Getter
@@ -7,6 +8,7 @@ import lombok.*;
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
+@JsonInclude(JsonInclude.Include.NON_NULL) // champs non demandés (fields=) absents du JSON
 public class BookResponse {
 
     private Integer id;
@@ -16,8 +18,8 @@ public class BookResponse {
     private String synopsis;
     private String owner;
     private byte[] cover;
-    private double rate;
-    private boolean archived;
-    private boolean shareable;
+    private Double rate;
+    private Boolean archived;
+    private Boolean shareable;
 
 }
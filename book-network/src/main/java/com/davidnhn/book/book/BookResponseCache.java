@@ -0,0 +1,215 @@
+package com.davidnhn.book.book;
+
+import com.davidnhn.book.cache.CacheInvalidationBus;
+import com.davidnhn.book.cache.CachedEntity;
+import com.davidnhn.book.cache.RemoteInvalidationEvent;
+import com.davidnhn.book.common.ResourceVersion;
+import com.davidnhn.book.common.SingleFlight;
+import com.davidnhn.book.datasource.ReadYourWrites;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Réponses de GET /books/{book-id} déjà sérialisées en JSON : un livre populaire coûte une lecture dans une map
+ * et l'écriture d'un tableau d'octets, sans BookMapper (ni lecture de la couverture sur disque) ni Jackson.
+ *
+ * Les livres sont chargés sur la base principale, jamais sur un réplica (ReadYourWrites.onPrimary).
+ * Chaque entrée garde la version du livre (Book.version) : une réponse construite à partir d'une version plus
+ * ancienne ne remplace jamais une plus récente. Les méthodes de BookService et FeedbackService qui modifient un
+ * livre l'invalident après le commit (evictAfterCommit). Une réponse dont la construction a commencé avant une
+ * invalidation du même livre n'est pas stockée (compteur d'invalidations par segment d'ids) : elle ne peut pas
+ * ramener dans le cache un état lu avant le commit. Les autres instances sont prévenues au même moment
+ * (CacheInvalidationBus), et leurs modifications retirent les entrées d'ici (onRemoteInvalidation).
+ *
+ * Les validateurs HTTP (ResourceVersion) sont gardés avec les octets : une revalidation réussie (304) ne coûte
+ * qu'une lecture dans la map. En cas d'absence, les requêtes simultanées sur le même livre partagent un seul
+ * chargement (SingleFlight), dont le résultat est gardé pour les suivantes.
+ *
+ * Taille bornée en octets : au-delà de max-bytes, les entrées non lues depuis le dernier nettoyage sont retirées.
+ */
+@Component
+@RequiredArgsConstructor
+public class BookResponseCache {
+
+    private static final int STRIPES = 64;
+
+    private final BookMapper bookMapper;
+    private final ObjectMapper objectMapper;
+    private final SingleFlight<Integer, SerializedBook> bookLoads;
+    private final CacheInvalidationBus invalidationBus;
+
+    private final Map<Integer, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLongArray invalidations = new AtomicLongArray(STRIPES);
+    private final AtomicLong totalBytes = new AtomicLong();
+    private final ReentrantLock sweepLock = new ReentrantLock();
+
+    @Value("${application.book-responses.max-bytes}")
+    private long maxBytes;
+
+    @Value("${application.book-responses.max-entry-bytes}")
+    private int maxEntryBytes;
+
+    /**
+     * @param loader      charge le livre (et lève EntityNotFoundException s'il n'existe pas) ; appelé seulement en cas d'absence
+     * @param notModified true si le client a déjà cette version
+     * @return vide si notModified a répondu true
+     */
+    public Optional<SerializedBook> get(Integer bookId, Supplier<Book> loader, Predicate<ResourceVersion> notModified) {
+        Entry entry = entries.get(bookId);
+        if (entry != null) {
+            entry.hit = true;
+            return notModified.test(entry.book.resourceVersion()) ? Optional.empty() : Optional.of(entry.book);
+        }
+
+        SerializedBook serialized = bookLoads.execute(bookId, () -> load(bookId, loader));
+        return notModified.test(serialized.resourceVersion()) ? Optional.empty() : Optional.of(serialized);
+    }
+
+    public void evict(Integer bookId) {
+        invalidations.incrementAndGet(stripe(bookId));
+        Entry removed = entries.remove(bookId);
+        if (removed != null) {
+            totalBytes.addAndGet(-removed.size());
+        }
+    }
+
+    public void evictAfterCommit(Integer bookId) {
+        evictAfterCommit(List.of(bookId));
+    }
+
+    /**
+     * Sans transaction active (appel depuis BookService, où chaque save est sa propre transaction),
+     * l'écriture est déjà validée : l'invalidation est immédiate.
+     */
+    public void evictAfterCommit(Collection<Integer> bookIds) {
+        // ici d'abord : un échec de la notification ne laisse pas d'entrée périmée sur cette instance
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            bookIds.forEach(this::evict);
+        } else {
+            List<Integer> ids = List.copyOf(bookIds);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    ids.forEach(BookResponseCache.this::evict);
+                }
+            });
+        }
+        invalidationBus.publish(CachedEntity.BOOK, bookIds);
+    }
+
+    @EventListener
+    public void onRemoteInvalidation(RemoteInvalidationEvent event) {
+        if (event.flushAll()) {
+            // y compris les chargements en cours de livres absents du cache
+            for (int stripe = 0; stripe < STRIPES; stripe++) {
+                invalidations.incrementAndGet(stripe);
+            }
+            entries.keySet().forEach(this::evict);
+        } else {
+            event.ids(CachedEntity.BOOK).forEach(this::evict);
+        }
+    }
+
+    private SerializedBook load(Integer bookId, Supplier<Book> loader) {
+        int stripe = stripe(bookId);
+        long stamp = invalidations.get(stripe);
+        // jamais d'un réplica en retard : l'entrée survivrait à l'invalidation qui a précédé ce chargement
+        Book book = ReadYourWrites.onPrimary(loader);
+        SerializedBook serialized = new SerializedBook(
+                book.getVersion(), ResourceVersion.of(book, book.getVersion()), serialize(bookMapper.toBookResponse(book)));
+        // les couvertures très lourdes ne sont pas gardées : elles videraient le cache à elles seules
+        if (serialized.json().length <= maxEntryBytes) {
+            store(bookId, serialized, stripe, stamp);
+        }
+        return serialized;
+    }
+
+    private void store(Integer bookId, SerializedBook serialized, int stripe, long stamp) {
+        entries.compute(bookId, (id, existing) -> {
+            // invalidé pendant la construction, ou déjà remplacé par une version au moins aussi récente
+            if (invalidations.get(stripe) != stamp
+                    || (existing != null && existing.book.version() >= serialized.version())) {
+                return existing;
+            }
+            totalBytes.addAndGet(serialized.json().length - (existing == null ? 0 : existing.size()));
+            return new Entry(serialized);
+        });
+        if (totalBytes.get() > maxBytes) {
+            sweep();
+        }
+    }
+
+    /**
+     * Seconde chance : une entrée lue depuis le dernier passage est gardée (et marquée non lue), les autres sont
+     * retirées jusqu'à redescendre à 90 % de max-bytes. Deux passages au plus, un seul thread à la fois.
+     */
+    private void sweep() {
+        if (!sweepLock.tryLock()) {
+            return;
+        }
+        try {
+            long target = maxBytes - maxBytes / 10;
+            for (int pass = 0; pass < 2 && totalBytes.get() > target; pass++) {
+                for (Map.Entry<Integer, Entry> candidate : entries.entrySet()) {
+                    if (totalBytes.get() <= target) {
+                        break;
+                    }
+                    Entry entry = candidate.getValue();
+                    if (entry.hit) {
+                        entry.hit = false;
+                    } else if (entries.remove(candidate.getKey(), entry)) {
+                        totalBytes.addAndGet(-entry.size());
+                    }
+                }
+            }
+        } finally {
+            sweepLock.unlock();
+        }
+    }
+
+    private byte[] serialize(BookResponse response) {
+        try {
+            return objectMapper.writeValueAsBytes(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize book " + response.getId(), e);
+        }
+    }
+
+    private static int stripe(Integer bookId) {
+        return Math.floorMod(bookId, STRIPES);
+    }
+
+    public record SerializedBook(long version, ResourceVersion resourceVersion, byte[] json) {
+    }
+
+    private static final class Entry {
+
+        private final SerializedBook book;
+        private volatile boolean hit;
+
+        private Entry(SerializedBook book) {
+            this.book = book;
+        }
+
+        private int size() {
+            return book.json().length;
+        }
+    }
+}
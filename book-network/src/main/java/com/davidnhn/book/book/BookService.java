@@ -1,14 +1,25 @@
 package com.davidnhn.book.book;
 
+import com.davidnhn.book.common.FieldSelection;
 import com.davidnhn.book.common.PageResponse;
+import com.davidnhn.book.common.PaginationMode;
+import com.davidnhn.book.common.ResourceVersion;
+import com.davidnhn.book.common.Paginator;
+import com.davidnhn.book.common.ProjectionQuery;
+import com.davidnhn.book.common.Projections;
 import com.davidnhn.book.exceptions.OperationNotPermittedException;
 import com.davidnhn.book.file.FileStorageService;
 import com.davidnhn.book.history.BookTransactionHistory;
 import com.davidnhn.book.history.BookTransactionHistoryRepository;
+import com.davidnhn.book.history.LoanEvent;
+import com.davidnhn.book.history.LoanEventType;
+import com.davidnhn.book.trending.TrendingService;
 import com.davidnhn.book.user.User;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
@@ -16,34 +27,92 @@ import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 @RequiredArgsConstructor
 @Service
 public class BookService {
 
+    // condition de BookRepository.findAllDisplayableBooks / findTopRatedBooks, pour les réponses partielles
+    private static final String DISPLAYABLE_FOR_USER = "book.archived = false AND book.shareable = true AND book.owner.id != :userId";
+
     private final BookMapper bookMapper;
     private final BookTransactionHistoryRepository transactionHistoryRepository;
     private final BookRepository bookRepository;
     private final FileStorageService fileStorageService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final BookRanking bookRanking;
+    private final TrendingService trendingService;
+    private final BookCatalog bookCatalog;
+    private final BookResponseCache bookResponseCache;
+    private final Paginator paginator;
+    private final Projections projections;
+
+    @Value("${application.bulk.chunk-size}")
+    private int bulkChunkSize;
+
+    @Value("${application.multi-get.max-ids}")
+    private int multiGetMaxIds;
+
+    @Value("${application.loans.duration-days}")
+    private int loanDurationDays;
 
     public Integer save(BookRequest request, Authentication connectedUser) {
         User user = ((User) connectedUser.getPrincipal());
         Book book = bookMapper.toBook(request);
         book.setOwner(user);
+        book.setRankingScore(bookRanking.getPriorMean());
+        boolean wasDisplayable = false;
+        if (request.id() != null) {
+            // modification : les compteurs d'avis ne viennent pas de la requête
+            Book existing = bookRepository.findById(request.id()).orElse(null);
+            if (existing != null) {
+                book.setFeedbackCount(existing.getFeedbackCount());
+                book.setNoteSum(existing.getNoteSum());
+                book.setRankingScore(existing.getRankingScore());
+                book.setVersion(existing.getVersion());
+                wasDisplayable = existing.isShareable() && !existing.isArchived();
+            }
+        }
 
-        return bookRepository.save(book).getId();
+        Book saved = bookRepository.save(book);
+        bookResponseCache.evictAfterCommit(saved.getId());
+        boolean displayable = saved.isShareable() && !saved.isArchived();
+        eventPublisher.publishEvent(BookChangedEvent.of(saved, request.id() == null || displayable != wasDisplayable));
+        return saved.getId();
     }
 
-    public BookResponse findById(Integer bookId) {
-        return bookRepository.findById(bookId)
-                .map(bookMapper::toBookResponse)
-                .orElseThrow(() -> new EntityNotFoundException("Book with id : " + bookId + " not found "));
+    /**
+     * @param notModified true si le client a déjà cette version du livre (voir ResourceVersion)
+     * @return la réponse déjà sérialisée en JSON, servie telle quelle par le contrôleur (voir BookResponseCache),
+     *         ou vide pour un 304
+     */
+    @Transactional(readOnly = true)
+    public Optional<BookResponseCache.SerializedBook> findById(Integer bookId, Predicate<ResourceVersion> notModified) {
+        Optional<BookResponseCache.SerializedBook> response = bookResponseCache.get(bookId, () -> bookRepository.findById(bookId)
+                .orElseThrow(() -> new EntityNotFoundException("Book with id : " + bookId + " not found ")), notModified);
+        trendingService.recordView(bookId);
+        return response;
     }
 
     /**
@@ -51,97 +120,179 @@ public class BookService {
      *
      * @param page Le numéro de la page à récupérer.
      * @param size Le nombre de livres par page.
+     * @param mode Le mode de pagination (utilisé seulement si l'instantané du catalogue n'est pas encore chargé).
+     * @param fields Les champs demandés (voir BookField), tous si absent.
      * @param connectedUser L'objet Authentication représentant l'utilisateur actuellement connecté.
      * @return Une réponse paginée contenant les livres et les informations de pagination.
      */
-    public PageResponse<BookResponse> findAllBooks(int page, int size, Authentication connectedUser) {
+    @Transactional(readOnly = true)
+    public PageResponse<BookResponse> findAllBooks(int page, int size, PaginationMode mode, String fields, Authentication connectedUser) {
         User user = ((User) connectedUser.getPrincipal());
+        Set<BookField> selected = FieldSelection.parse(fields, BookField.class, BookField.ID);
+
+        // chemin normal : page calculée en mémoire, seuls les livres de la page sont lus en base (total exact sans COUNT)
+        Optional<BookCatalog.CatalogPage> catalogPage = bookCatalog.findDisplayableBooks(user.getId(), page, size);
+        if (catalogPage.isPresent()) {
+            return toPageResponse(catalogPage.get(), page, size, selected);
+        }
 
         // Crée un objet Pageable pour la pagination, trié par date de création décroissante
         Pageable pageable = PageRequest.of(page, size, Sort.by("createdDate").descending());
+        String countKey = "books.displayable:" + user.getId();
+        if (!FieldSelection.isAll(selected, BookField.class)) {
+            return fetchBooks(mode, pageable, countKey, new ProjectionQuery(
+                    "Book book", DISPLAYABLE_FOR_USER, "book.createdDate DESC", Map.of("userId", user.getId())), selected);
+        }
 
-        // Récupère la page de livres affichables pour l'utilisateur connecté
-        Page<Book> books = bookRepository.findAllDisplayableBooks(pageable, user.getId());
+        // Récupère la page de livres affichables pour l'utilisateur connecté et convertit les entités Book en BookResponse
+        return paginator.fetch(mode, pageable, countKey,
+                p -> bookRepository.findAllDisplayableBooks(p, user.getId()),
+                p -> bookRepository.findDisplayableBooksSlice(p, user.getId()),
+                bookMapper::toBookResponse);
+    }
 
-        // Convertit les entités Book en BookResponse
-        List<BookResponse> bookResponse = books.stream()
-                .map(bookMapper::toBookResponse)
+    private PageResponse<BookResponse> toPageResponse(BookCatalog.CatalogPage catalogPage, int page, int size, Set<BookField> fields) {
+        Map<Integer, BookResponse> books = findBookResponses(catalogPage.bookIds(), fields);
+        List<BookResponse> bookResponse = catalogPage.bookIds().stream()
+                .map(books::get)
+                .filter(Objects::nonNull)
                 .toList();
 
+        int totalPages = size == 0 ? 1 : (int) Math.ceil((double) catalogPage.totalElements() / size);
         return new PageResponse<>(
-                bookResponse, // Liste des réponses de livres
-                books.getNumber(), // Numéro de la page actuelle
-                books.getSize(), // Taille de la page (nombre d'éléments par page)
-                books.getTotalPages(), // Nombre total de pages disponibles
-                books.getTotalElements(), // Nombre total d'éléments disponibles
-                books.isFirst(), // Indique si c'est la première page
-                books.isLast() // Indique si c'est la dernière page
-
+                bookResponse,
+                page,
+                size,
+                totalPages,
+                catalogPage.totalElements(),
+                page == 0,
+                page + 1 >= totalPages
         );
     }
 
-    public PageResponse<BookResponse> findAllBooksByOwner(int page, int size, Authentication connectedUser) {
-        User user = ((User) connectedUser.getPrincipal());
-        Pageable pageable = PageRequest.of(page, size, Sort.by("createdDate").descending());
-        Page<Book> books = bookRepository.findAll(BookSpecification.withOwnerId(user.getId()), pageable);
-
-        // Convertit les entités Book en BookResponse
-        List<BookResponse> bookResponse = books.stream()
-                .map(bookMapper::toBookResponse)
+    /**
+     * Multi-get : les livres demandés en une seule requête IN (propriétaires chargés par lot, la note vient des
+     * compteurs du livre), au lieu d'un GET /books/{book-id} par livre.
+     *
+     * @param ids    ids demandés, au plus max-ids ; un id répété donne un élément par occurrence
+     * @param fields champs demandés (voir BookField), tous si absent
+     * @return un élément par id, dans l'ordre de la requête, found à false pour un livre inexistant
+     */
+    @Transactional(readOnly = true)
+    public List<BookLookupResponse> findAllByIds(List<Integer> ids, String fields) {
+        if (ids == null || ids.isEmpty()) {
+            throw new OperationNotPermittedException("You must provide at least one book id");
+        }
+        if (ids.size() > multiGetMaxIds) {
+            throw new OperationNotPermittedException("You cannot request more than " + multiGetMaxIds + " books at once");
+        }
+        Set<BookField> selected = FieldSelection.parse(fields, BookField.class, BookField.ID);
+        List<Integer> requestedIds = ids.stream().filter(Objects::nonNull).toList();
+        Map<Integer, BookResponse> books = findBookResponses(requestedIds.stream().distinct().toList(), selected);
+        return requestedIds.stream()
+                .map(id -> BookLookupResponse.of(id, books.get(id)))
                 .toList();
+    }
 
-        return new PageResponse<>(
-                bookResponse, // Liste des réponses de livres
-                books.getNumber(), // Numéro de la page actuelle
-                books.getSize(), // Taille de la page (nombre d'éléments par page)
-                books.getTotalPages(), // Nombre total de pages disponibles
-                books.getTotalElements(), // Nombre total d'éléments disponibles
-                books.isFirst(), // Indique si c'est la première page
-                books.isLast() // Indique si c'est la dernière page
+    private Map<Integer, BookResponse> findBookResponses(List<Integer> ids, Set<BookField> fields) {
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+        if (FieldSelection.isAll(fields, BookField.class)) {
+            // réponse complète : entités lues par id, servies par le cache de second niveau
+            return bookRepository.findAllById(ids).stream()
+                    .collect(Collectors.toMap(Book::getId, bookMapper::toBookResponse));
+        }
+        return projections.list(
+                        new ProjectionQuery("Book book", "book.id IN :ids", null, Map.of("ids", ids)),
+                        FieldSelection.selections(fields)).stream()
+                .map(row -> bookMapper.toBookResponse(row, fields))
+                .collect(Collectors.toMap(BookResponse::getId, Function.identity()));
+    }
 
-        );
+    @Transactional(readOnly = true)
+    public PageResponse<BookResponse> findTopRatedBooks(int page, int size, PaginationMode mode, String fields, Authentication connectedUser) {
+        User user = ((User) connectedUser.getPrincipal());
+        Set<BookField> selected = FieldSelection.parse(fields, BookField.class, BookField.ID);
+        Pageable pageable = PageRequest.of(page, size);
+        String countKey = "books.top-rated:" + user.getId();
+        if (!FieldSelection.isAll(selected, BookField.class)) {
+            return fetchBooks(mode, pageable, countKey, new ProjectionQuery(
+                    "Book book", DISPLAYABLE_FOR_USER, "book.rankingScore DESC, book.id DESC", Map.of("userId", user.getId())), selected);
+        }
+        return paginator.fetch(mode, pageable, countKey,
+                p -> bookRepository.findTopRatedBooks(p, user.getId()),
+                p -> bookRepository.findTopRatedBooksSlice(p, user.getId()),
+                bookMapper::toBookResponse);
+    }
+
+    @Transactional(readOnly = true)
+    public PageResponse<BookResponse> findAllBooksByOwner(int page, int size, PaginationMode mode, String fields, Authentication connectedUser) {
+        User user = ((User) connectedUser.getPrincipal());
+        Set<BookField> selected = FieldSelection.parse(fields, BookField.class, BookField.ID);
+        Pageable pageable = PageRequest.of(page, size, Sort.by("createdDate").descending());
+        String countKey = "books.owner:" + user.getId();
+        if (!FieldSelection.isAll(selected, BookField.class)) {
+            return fetchBooks(mode, pageable, countKey, new ProjectionQuery(
+                    "Book book", "book.owner.id = :ownerId", "book.createdDate DESC", Map.of("ownerId", user.getId())), selected);
+        }
 
+        // Convertit les entités Book en BookResponse
+        return paginator.fetch(mode, pageable, countKey,
+                p -> bookRepository.findAll(BookSpecification.withOwnerId(user.getId()), p),
+                p -> bookRepository.findByOwnerId(user.getId(), p),
+                bookMapper::toBookResponse);
     }
 
-public PageResponse<BorrowedBookResponse> findAllBorrowedBooks(int page, int size, Authentication connectedUser) {
+@Transactional(readOnly = true)
+public PageResponse<BorrowedBookResponse> findAllBorrowedBooks(int page, int size, PaginationMode mode, String fields, Authentication connectedUser) {
     User user = ((User) connectedUser.getPrincipal());
+    Set<BorrowedBookField> selected = FieldSelection.parse(fields, BorrowedBookField.class, BorrowedBookField.ID);
     Pageable pageable = PageRequest.of(page, size, Sort.by("createdDate").descending());
-    Page<BookTransactionHistory> allBorrowedBooks = transactionHistoryRepository.findAllBorrowedBooks(pageable, user.getId());
-    List<BorrowedBookResponse> bookResponse = allBorrowedBooks.stream()
-            .map(bookMapper::toBorrowedBookResponse)
-            .toList();
-
-    return new PageResponse<>(
-            bookResponse, // Liste des réponses de livres
-            allBorrowedBooks.getNumber(), // Numéro de la page actuelle
-            allBorrowedBooks.getSize(), // Taille de la page (nombre d'éléments par page)
-            allBorrowedBooks.getTotalPages(), // Nombre total de pages disponibles
-            allBorrowedBooks.getTotalElements(), // Nombre total d'éléments disponibles
-            allBorrowedBooks.isFirst(), // Indique si c'est la première page
-            allBorrowedBooks.isLast() // Indique si c'est la dernière page
-
-    );
-
+    String countKey = "history.borrowed:" + user.getId();
+    if (!FieldSelection.isAll(selected, BorrowedBookField.class)) {
+        return fetchBorrowedBooks(mode, pageable, countKey, new ProjectionQuery(
+                "BookTransactionHistory history", "history.user.id = :userId", "history.createdDate DESC", Map.of("userId", user.getId())), selected);
+    }
+    return paginator.fetch(mode, pageable, countKey,
+            p -> transactionHistoryRepository.findAllBorrowedBooks(p, user.getId()),
+            p -> transactionHistoryRepository.findBorrowedBooksSlice(p, user.getId()),
+            bookMapper::toBorrowedBookResponse);
 }
 
-    public PageResponse<BorrowedBookResponse> findAllReturnedBooks(int page, int size, Authentication connectedUser) {
+    @Transactional(readOnly = true)
+    public PageResponse<BorrowedBookResponse> findAllReturnedBooks(int page, int size, PaginationMode mode, String fields, Authentication connectedUser) {
         User user = ((User) connectedUser.getPrincipal());
+        Set<BorrowedBookField> selected = FieldSelection.parse(fields, BorrowedBookField.class, BorrowedBookField.ID);
         Pageable pageable = PageRequest.of(page, size, Sort.by("createdDate").descending());
-        Page<BookTransactionHistory> allReturnedBooks = transactionHistoryRepository.findAllReturnedBooks(pageable, user.getId());
-        List<BorrowedBookResponse> bookResponse = allReturnedBooks.stream()
-                .map(bookMapper::toBorrowedBookResponse)
-                .toList();
+        String countKey = "history.returned:" + user.getId();
+        if (!FieldSelection.isAll(selected, BorrowedBookField.class)) {
+            return fetchBorrowedBooks(mode, pageable, countKey, new ProjectionQuery(
+                    "BookTransactionHistory history", "history.book.owner.id = :userId", "history.createdDate DESC", Map.of("userId", user.getId())), selected);
+        }
+        return paginator.fetch(mode, pageable, countKey,
+                p -> transactionHistoryRepository.findAllReturnedBooks(p, user.getId()),
+                p -> transactionHistoryRepository.findReturnedBooksSlice(p, user.getId()),
+                bookMapper::toBorrowedBookResponse);
+    }
 
-        return new PageResponse<>(
-                bookResponse, // Liste des réponses de livres
-                allReturnedBooks.getNumber(), // Numéro de la page actuelle
-                allReturnedBooks.getSize(), // Taille de la page (nombre d'éléments par page)
-                allReturnedBooks.getTotalPages(), // Nombre total de pages disponibles
-                allReturnedBooks.getTotalElements(), // Nombre total d'éléments disponibles
-                allReturnedBooks.isFirst(), // Indique si c'est la première page
-                allReturnedBooks.isLast() // Indique si c'est la dernière page
+    // réponses partielles (fields=) : mêmes conditions que les requêtes du repository, colonnes choisies à l'exécution
+    private PageResponse<BookResponse> fetchBooks(PaginationMode mode, Pageable pageable, String countKey,
+                                                  ProjectionQuery query, Set<BookField> fields) {
+        List<String> selections = FieldSelection.selections(fields);
+        return paginator.fetch(mode, pageable, countKey,
+                p -> projections.page(query, selections, p),
+                p -> projections.slice(query, selections, p),
+                row -> bookMapper.toBookResponse(row, fields));
+    }
 
-        );
+    private PageResponse<BorrowedBookResponse> fetchBorrowedBooks(PaginationMode mode, Pageable pageable, String countKey,
+                                                                  ProjectionQuery query, Set<BorrowedBookField> fields) {
+        List<String> selections = FieldSelection.selections(fields);
+        return paginator.fetch(mode, pageable, countKey,
+                p -> projections.page(query, selections, p),
+                p -> projections.slice(query, selections, p),
+                row -> bookMapper.toBorrowedBookResponse(row, fields));
     }
 
     public Integer updateShareableStatus(Integer bookId, Authentication connectedUser) {
@@ -156,6 +307,8 @@ public PageResponse<BorrowedBookResponse> findAllBorrowedBooks(int page, int siz
 
         book.setShareable(!book.isShareable());
         bookRepository.save(book);
+        bookResponseCache.evictAfterCommit(bookId);
+        eventPublisher.publishEvent(BookChangedEvent.of(book, true));
 
         return bookId;
     }
@@ -171,6 +324,8 @@ public PageResponse<BorrowedBookResponse> findAllBorrowedBooks(int page, int siz
         }
         book.setArchived(!book.isArchived());
         bookRepository.save(book);
+        bookResponseCache.evictAfterCommit(bookId);
+        eventPublisher.publishEvent(BookChangedEvent.of(book, true));
 
         return bookId;
     }
@@ -200,9 +355,12 @@ public PageResponse<BorrowedBookResponse> findAllBorrowedBooks(int page, int siz
                 .book(book)
                 .returned(false)
                 .returnApproved(false)
+                .dueDate(LocalDateTime.now().plusDays(loanDurationDays))
                 .build();
 
-        return transactionHistoryRepository.save(bookTransactionHistory).getId();
+        BookTransactionHistory savedHistory = transactionHistoryRepository.save(bookTransactionHistory);
+        eventPublisher.publishEvent(LoanEvent.of(LoanEventType.BORROWED, savedHistory));
+        return savedHistory.getId();
     }
 
     public Integer returnBorrowedBook(Integer bookId, Authentication connectedUser) {
@@ -223,7 +381,9 @@ public PageResponse<BorrowedBookResponse> findAllBorrowedBooks(int page, int siz
                 .orElseThrow(() -> new OperationNotPermittedException("You did not borrow this book"));
 
         bookTransactionHistory.setReturned(true);
-        return transactionHistoryRepository.save(bookTransactionHistory).getId();
+        BookTransactionHistory savedHistory = transactionHistoryRepository.save(bookTransactionHistory);
+        eventPublisher.publishEvent(LoanEvent.of(LoanEventType.RETURNED, savedHistory));
+        return savedHistory.getId();
 
     }
 
@@ -242,7 +402,108 @@ public PageResponse<BorrowedBookResponse> findAllBorrowedBooks(int page, int siz
                 .orElseThrow(() -> new OperationNotPermittedException("The book is not returned yet. You cannot approve its return"));
 
         bookTransactionHistory.setReturnApproved(true);
-        return transactionHistoryRepository.save(bookTransactionHistory).getId();
+        BookTransactionHistory savedHistory = transactionHistoryRepository.save(bookTransactionHistory);
+        eventPublisher.publishEvent(LoanEvent.of(LoanEventType.RETURN_APPROVED, savedHistory));
+        return savedHistory.getId();
+    }
+
+    public BulkOperationResponse updateShareableStatuses(BulkBookUpdateRequest request, Authentication connectedUser) {
+        User user = ((User) connectedUser.getPrincipal());
+        return updateOwnedBooks(request, user, (ownedIds, now) ->
+                bookRepository.updateShareableStatus(user.getId(), ownedIds, request.value(), now));
+    }
+
+    public BulkOperationResponse updateArchivedStatuses(BulkBookUpdateRequest request, Authentication connectedUser) {
+        User user = ((User) connectedUser.getPrincipal());
+        return updateOwnedBooks(request, user, (ownedIds, now) ->
+                bookRepository.updateArchivedStatus(user.getId(), ownedIds, request.value(), now));
+    }
+
+    /**
+     * Approuve les retours en attente du propriétaire, par lots : un SELECT ... FOR UPDATE puis un seul UPDATE par lot,
+     * chaque lot dans sa propre transaction.
+     */
+    public BulkOperationResponse approveReturnBorrowedBooks(BulkReturnApprovalRequest request, Authentication connectedUser) {
+        User user = ((User) connectedUser.getPrincipal());
+        List<Integer> approvedIds = new ArrayList<>();
+        Set<Integer> matchedBookIds = new HashSet<>();
+
+        if (request.bookIds() == null || request.bookIds().isEmpty()) {
+            List<BookTransactionHistory> approved;
+            do {
+                approved = approveChunk(user, () -> transactionHistoryRepository.findPendingReturns(user.getId(), Limit.of(bulkChunkSize)));
+                approved.forEach(history -> approvedIds.add(history.getId()));
+            } while (approved.size() == bulkChunkSize);
+            return new BulkOperationResponse(approvedIds, List.of());
+        }
+
+        for (List<Integer> chunk : chunks(request.bookIds())) {
+            List<BookTransactionHistory> approved = approveChunk(user, () -> transactionHistoryRepository.findPendingReturnsByBookIds(user.getId(), chunk));
+            approved.forEach(history -> {
+                approvedIds.add(history.getId());
+                matchedBookIds.add(history.getBook().getId());
+            });
+        }
+        List<Integer> rejectedIds = request.bookIds().stream()
+                .filter(bookId -> !matchedBookIds.contains(bookId))
+                .toList();
+        return new BulkOperationResponse(approvedIds, rejectedIds);
+    }
+
+    private List<BookTransactionHistory> approveChunk(User user, Supplier<List<BookTransactionHistory>> pendingReturns) {
+        List<BookTransactionHistory> approved = transactionTemplate.execute(status -> {
+            List<BookTransactionHistory> histories = pendingReturns.get();
+            if (!histories.isEmpty()) {
+                List<Integer> historyIds = histories.stream().map(BookTransactionHistory::getId).toList();
+                transactionHistoryRepository.approveReturns(user.getId(), historyIds, LocalDateTime.now());
+            }
+            return histories;
+        });
+        approved.forEach(history -> eventPublisher.publishEvent(LoanEvent.of(LoanEventType.RETURN_APPROVED, history)));
+        return approved;
+    }
+
+    private BulkOperationResponse updateOwnedBooks(BulkBookUpdateRequest request, User user,
+                                                   BiFunction<Collection<Integer>, LocalDateTime, Integer> update) {
+        boolean byIds = request.bookIds() != null && !request.bookIds().isEmpty();
+        if (!byIds && (request.authorName() == null || request.authorName().isBlank())) {
+            throw new OperationNotPermittedException("You must provide book ids or an author name");
+        }
+
+        List<Integer> candidateIds = byIds
+                ? request.bookIds()
+                : bookRepository.findOwnedBookIdsByAuthorName(user.getId(), request.authorName());
+
+        List<Integer> updatedIds = new ArrayList<>();
+        for (List<Integer> chunk : chunks(candidateIds)) {
+            List<Integer> ownedIds = transactionTemplate.execute(status -> {
+                List<Integer> owned = byIds ? bookRepository.findOwnedBookIds(user.getId(), chunk) : chunk;
+                if (!owned.isEmpty()) {
+                    update.apply(owned, LocalDateTime.now());
+                    bookResponseCache.evictAfterCommit(owned);
+                    // état après mise à jour (l'autre indicateur n'est pas connu de l'UPDATE), notifié après commit
+                    bookRepository.findAllById(owned)
+                            .forEach(book -> eventPublisher.publishEvent(BookChangedEvent.of(book, true)));
+                }
+                return owned;
+            });
+            updatedIds.addAll(ownedIds);
+        }
+
+        Set<Integer> updated = new HashSet<>(updatedIds);
+        List<Integer> rejectedIds = candidateIds.stream()
+                .filter(bookId -> !updated.contains(bookId))
+                .toList();
+        return new BulkOperationResponse(updatedIds, rejectedIds);
+    }
+
+    private List<List<Integer>> chunks(List<Integer> ids) {
+        List<Integer> distinctIds = ids.stream().filter(Objects::nonNull).distinct().toList();
+        List<List<Integer>> chunks = new ArrayList<>();
+        for (int from = 0; from < distinctIds.size(); from += bulkChunkSize) {
+            chunks.add(distinctIds.subList(from, Math.min(from + bulkChunkSize, distinctIds.size())));
+        }
+        return chunks;
     }
 
     public void uploadBookCoverPicture(MultipartFile file, Authentication connectedUser, Integer bookId) {
@@ -252,6 +513,7 @@ public PageResponse<BorrowedBookResponse> findAllBorrowedBooks(int page, int siz
         var bookCover = fileStorageService.saveFile(file, user.getId());
         book.setBookCover(bookCover);
         bookRepository.save(book);
+        bookResponseCache.evictAfterCommit(bookId);
     }
 }
 
@@ -0,0 +1,40 @@
+package com.davidnhn.book.book;
+
+import com.davidnhn.book.common.SelectableField;
+
+import java.util.List;
+
+/**
+ * Champs de BorrowedBookResponse demandables avec fields= ; alias "history" (BookTransactionHistory).
+ * Seuls les champs du livre demandent une jointure sur book.
+ */
+public enum BorrowedBookField implements SelectableField {
+
+    ID("id", "history.book.id AS id"),
+    TITLE("title", "history.book.title AS title"),
+    AUTHOR_NAME("authorName", "history.book.authorName AS authorName"),
+    ISBN("isbn", "history.book.isbn AS isbn"),
+    RATE("rate", "history.book.feedbackCount AS feedbackCount", "history.book.noteSum AS noteSum"),
+    RETURNED("returned", "history.returned AS returned"),
+    RETURN_APPROVED("returnApproved", "history.returnApproved AS returnApproved"),
+    DUE_DATE("dueDate", "history.dueDate AS dueDate"),
+    OVERDUE("overdue", "history.returned AS returned", "history.dueDate AS dueDate");
+
+    private final String fieldName;
+    private final List<String> selections;
+
+    BorrowedBookField(String fieldName, String... selections) {
+        this.fieldName = fieldName;
+        this.selections = List.of(selections);
+    }
+
+    @Override
+    public String fieldName() {
+        return fieldName;
+    }
+
+    @Override
+    public List<String> selections() {
+        return selections;
+    }
+}
@@ -1,18 +1,24 @@
 package com.davidnhn.book.book;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.*;
 
+import java.time.LocalDateTime;
+
 @Getter
 @Setter
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
+@JsonInclude(JsonInclude.Include.NON_NULL) // champs non demandés (fields=) absents du JSON
 public class BorrowedBookResponse {
     private Integer id;
     private String title;
     private String authorName;
     private String isbn;
-    private double rate;
-    private boolean returned;
-    private boolean returnApproved;
+    private Double rate;
+    private Boolean returned;
+    private Boolean returnApproved;
+    private LocalDateTime dueDate;
+    private Boolean overdue;
 }
@@ -0,0 +1,15 @@
+package com.davidnhn.book.book;
+
+import jakarta.validation.constraints.NotNull;
+
+import java.util.List;
+
+public record BulkBookUpdateRequest(
+        List<Integer> bookIds, // les livres ciblés, ou bien ...
+
+        String authorName, // ... tous les livres du propriétaire écrits par cet auteur
+
+        @NotNull(message = "104")
+        Boolean value // nouvelle valeur du statut (shareable ou archived)
+) {
+}
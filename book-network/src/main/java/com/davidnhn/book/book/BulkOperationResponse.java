@@ -0,0 +1,16 @@
+package com.davidnhn.book.book;
+
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BulkOperationResponse {
+
+    private List<Integer> updatedIds;
+    private List<Integer> rejectedIds; // ids demandés qui n'existent pas ou n'appartiennent pas à l'utilisateur
+}
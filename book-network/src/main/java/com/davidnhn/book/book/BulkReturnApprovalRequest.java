@@ -0,0 +1,8 @@
+package com.davidnhn.book.book;
+
+import java.util.List;
+
+public record BulkReturnApprovalRequest(
+        List<Integer> bookIds // null ou vide : tous les retours en attente du propriétaire
+) {
+}
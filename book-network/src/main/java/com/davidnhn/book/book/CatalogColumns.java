@@ -0,0 +1,151 @@
+package com.davidnhn.book.book;
+
+import com.davidnhn.book.common.IntIntHashMap;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Instantané en colonnes de la table book : un tableau de primitives par colonne utile au listing
+ * (id, propriétaire, date de création) et un bitmap des lignes affichables (partageables et non archivées).
+ *
+ * Les lignes sont rangées par (date de création, id) croissants : les livres les plus récents sont à la fin.
+ * Le nombre de livres affichables par propriétaire est tenu à jour pour donner le total d'une page sans COUNT.
+ *
+ * Non thread-safe : BookCatalog protège les accès par un verrou lecture/écriture.
+ */
+final class CatalogColumns {
+
+    private int[] ids;
+    private int[] ownerIds;
+    private long[] createdAt;
+    private final BitSet displayable = new BitSet();
+    private int size;
+
+    // id du livre -> index de ligne + 1 (0 = absent)
+    private final IntIntHashMap rowById;
+    private final IntIntHashMap displayableByOwner = new IntIntHashMap();
+    private int displayableCount;
+
+    CatalogColumns(int expectedSize) {
+        int capacity = Math.max(16, expectedSize);
+        this.ids = new int[capacity];
+        this.ownerIds = new int[capacity];
+        this.createdAt = new long[capacity];
+        this.rowById = new IntIntHashMap(capacity);
+    }
+
+    /**
+     * Ajoute le livre ou met à jour son propriétaire et son état affichable.
+     * createdAtMs n'est utilisé que pour un livre encore inconnu.
+     */
+    void upsert(int id, int ownerId, long createdAtMs, boolean isDisplayable) {
+        int row = rowById.get(id) - 1;
+        if (row < 0) {
+            row = insertRow(id, ownerId, createdAtMs);
+        } else if (ownerIds[row] != ownerId) {
+            if (displayable.get(row)) {
+                displayableByOwner.addTo(ownerIds[row], -1);
+                displayableByOwner.addTo(ownerId, 1);
+            }
+            ownerIds[row] = ownerId;
+        }
+        setDisplayable(row, isDisplayable);
+    }
+
+    /**
+     * Ids des livres affichables n'appartenant pas à excludedOwnerId, du plus récent au plus ancien.
+     * Le résultat n'est jamais plus grand que le nombre de livres restant après offset.
+     */
+    int[] page(int excludedOwnerId, long offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Invalid page: offset " + offset + ", limit " + limit);
+        }
+        long remaining = countDisplayable(excludedOwnerId) - offset;
+        if (remaining <= 0 || limit == 0) {
+            return new int[0];
+        }
+        int[] result = new int[(int) Math.min(limit, remaining)];
+        int found = 0;
+        long skipped = 0;
+        for (int row = displayable.previousSetBit(size - 1); row >= 0 && found < result.length; row = displayable.previousSetBit(row - 1)) {
+            if (ownerIds[row] == excludedOwnerId) {
+                continue;
+            }
+            if (skipped < offset) {
+                skipped++;
+                continue;
+            }
+            result[found++] = ids[row];
+        }
+        return found == result.length ? result : Arrays.copyOf(result, found);
+    }
+
+    long countDisplayable(int excludedOwnerId) {
+        return displayableCount - displayableByOwner.get(excludedOwnerId);
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void setDisplayable(int row, boolean value) {
+        if (displayable.get(row) == value) {
+            return;
+        }
+        displayable.set(row, value);
+        int delta = value ? 1 : -1;
+        displayableCount += delta;
+        displayableByOwner.addTo(ownerIds[row], delta);
+    }
+
+    private int insertRow(int id, int ownerId, long createdAtMs) {
+        if (size == ids.length) {
+            int capacity = size + (size >> 1);
+            ids = Arrays.copyOf(ids, capacity);
+            ownerIds = Arrays.copyOf(ownerIds, capacity);
+            createdAt = Arrays.copyOf(createdAt, capacity);
+        }
+        int row = size;
+        if (size > 0 && isBefore(createdAtMs, id, size - 1)) {
+            // cas rare (horloges de plusieurs instances) : on décale les lignes plus récentes
+            row = insertionPoint(createdAtMs, id);
+            shiftRight(row);
+        }
+        ids[row] = id;
+        ownerIds[row] = ownerId;
+        createdAt[row] = createdAtMs;
+        displayable.clear(row);
+        rowById.put(id, row + 1);
+        size++;
+        return row;
+    }
+
+    private boolean isBefore(long createdAtMs, int id, int row) {
+        return createdAtMs < createdAt[row] || (createdAtMs == createdAt[row] && id < ids[row]);
+    }
+
+    private int insertionPoint(long createdAtMs, int id) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (isBefore(createdAtMs, id, middle)) {
+                high = middle - 1;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+
+    private void shiftRight(int from) {
+        System.arraycopy(ids, from, ids, from + 1, size - from);
+        System.arraycopy(ownerIds, from, ownerIds, from + 1, size - from);
+        System.arraycopy(createdAt, from, createdAt, from + 1, size - from);
+        for (int row = size; row > from; row--) {
+            displayable.set(row, displayable.get(row - 1));
+            rowById.put(ids[row], row + 1);
+        }
+    }
+}
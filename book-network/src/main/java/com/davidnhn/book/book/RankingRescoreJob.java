@@ -0,0 +1,75 @@
+package com.davidnhn.book.book;
+
+import com.davidnhn.book.job.ClusterJob;
+import com.davidnhn.book.job.JobChunk;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Recalcule ranking_score de tous les livres quand l'a priori configuré (application.ranking) diffère de celui avec
+ * lequel les scores ont été calculés (table ranking_prior).
+ *
+ * Sans changement, une exécution se limite à la lecture de ranking_prior. Sinon les livres sont parcourus par plages
+ * d'ids (la position est le dernier id traité), verrouillés et recalculés sur l'entité comme pour un avis
+ * (FeedbackService) ; le nouvel a priori est enregistré avec le dernier lot. Les avis reçus pendant le parcours
+ * utilisent déjà le nouvel a priori.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RankingRescoreJob implements ClusterJob {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BookRepository bookRepository;
+    private final BookRanking bookRanking;
+
+    @Value("${application.jobs.ranking-rescore.cron}")
+    private String cron;
+
+    @Value("${application.jobs.chunk-size}")
+    private int chunkSize;
+
+    @Override
+    public String name() {
+        return "ranking-rescore";
+    }
+
+    @Override
+    public String cron() {
+        return cron;
+    }
+
+    @Override
+    public JobChunk processChunk(String checkpoint) {
+        if (checkpoint == null && isCurrentPrior()) {
+            return JobChunk.last(0);
+        }
+        int after = checkpoint == null ? 0 : Integer.parseInt(checkpoint);
+        List<Integer> ids = jdbcTemplate.queryForList(
+                "SELECT id FROM book WHERE id > ? ORDER BY id LIMIT ?", Integer.class, after, chunkSize);
+        if (!ids.isEmpty()) {
+            bookRepository.findAllByIdForUpdate(ids)
+                    .forEach(book -> bookRanking.apply(book, book.getFeedbackCount(), book.getNoteSum()));
+        }
+        if (ids.size() < chunkSize) {
+            jdbcTemplate.update("UPDATE ranking_prior SET prior_weight = ?, prior_mean = ?, updated_date = now() WHERE id = 1",
+                    bookRanking.getPriorWeight(), bookRanking.getPriorMean());
+            log.info("Ranking scores recomputed with prior weight {} and prior mean {}",
+                    bookRanking.getPriorWeight(), bookRanking.getPriorMean());
+            return JobChunk.last(ids.size());
+        }
+        return JobChunk.more(ids.size(), String.valueOf(ids.get(ids.size() - 1)));
+    }
+
+    private boolean isCurrentPrior() {
+        Map<String, Object> prior = jdbcTemplate.queryForMap("SELECT prior_weight, prior_mean FROM ranking_prior WHERE id = 1");
+        return ((Number) prior.get("prior_weight")).doubleValue() == bookRanking.getPriorWeight()
+                && ((Number) prior.get("prior_mean")).doubleValue() == bookRanking.getPriorMean();
+    }
+}
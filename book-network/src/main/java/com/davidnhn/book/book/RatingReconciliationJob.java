@@ -0,0 +1,100 @@
+package com.davidnhn.book.book;
+
+import com.davidnhn.book.job.ClusterJob;
+import com.davidnhn.book.job.JobChunk;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Recalcule feedback_count et note_sum de chaque livre à partir de la table feedback et corrige les écarts
+ * (les compteurs sont incrémentés par FeedbackService, un avis modifié ou supprimé hors application les fausse).
+ *
+ * Parcours par plages d'ids de livres : la position est le dernier id traité. Les livres en écart sont verrouillés
+ * (BookRepository.findAllByIdForUpdate) puis recalculés : l'agrégat lu après le verrou voit tous les avis validés
+ * avant lui, et un avis concurrent attend le verrou pour incrémenter les compteurs corrigés. La correction passe par
+ * les entités : seules leurs entrées du cache de second niveau sont remplacées.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RatingReconciliationJob implements ClusterJob {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BookRepository bookRepository;
+    private final BookRanking bookRanking;
+    private final BookResponseCache bookResponseCache;
+
+    @Value("${application.jobs.rating-reconciliation.cron}")
+    private String cron;
+
+    @Value("${application.jobs.chunk-size}")
+    private int chunkSize;
+
+    @Override
+    public String name() {
+        return "rating-reconciliation";
+    }
+
+    @Override
+    public String cron() {
+        return cron;
+    }
+
+    @Override
+    public JobChunk processChunk(String checkpoint) {
+        int after = checkpoint == null ? 0 : Integer.parseInt(checkpoint);
+        List<Integer> ids = jdbcTemplate.queryForList(
+                "SELECT id FROM book WHERE id > ? ORDER BY id LIMIT ?", Integer.class, after, chunkSize);
+        if (ids.isEmpty()) {
+            return JobChunk.last(0);
+        }
+        int last = ids.get(ids.size() - 1);
+
+        List<Integer> mismatches = jdbcTemplate.queryForList("""
+                SELECT book.id
+                FROM book
+                LEFT JOIN (SELECT book_id, COUNT(*) AS feedback_count, SUM(note) AS note_sum
+                           FROM feedback
+                           WHERE note IS NOT NULL AND book_id > ? AND book_id <= ?
+                           GROUP BY book_id) agg ON agg.book_id = book.id
+                WHERE book.id > ? AND book.id <= ?
+                  AND (book.feedback_count <> COALESCE(agg.feedback_count, 0)
+                       OR abs(book.note_sum - COALESCE(agg.note_sum, 0)) > 1e-6)
+                """,
+                Integer.class, after, last, after, last);
+
+        if (!mismatches.isEmpty()) {
+            List<Book> books = bookRepository.findAllByIdForUpdate(mismatches);
+            Map<Integer, Rating> ratings = new HashMap<>();
+            jdbcTemplate.query("""
+                    SELECT book_id, COUNT(*) AS feedback_count, COALESCE(SUM(note), 0) AS note_sum
+                    FROM feedback
+                    WHERE note IS NOT NULL AND book_id = ANY(?)
+                    GROUP BY book_id
+                    """,
+                    (RowCallbackHandler) row -> ratings.put(row.getInt("book_id"),
+                            new Rating(row.getInt("feedback_count"), row.getDouble("note_sum"))),
+                    (Object) mismatches.toArray(Integer[]::new));
+            books.forEach(book -> {
+                Rating rating = ratings.getOrDefault(book.getId(), Rating.NONE);
+                bookRanking.apply(book, rating.feedbackCount(), rating.noteSum());
+            });
+            log.info("Rating counters corrected for books {}", mismatches);
+            bookResponseCache.evictAfterCommit(mismatches);
+        }
+        return ids.size() < chunkSize ? JobChunk.last(ids.size()) : JobChunk.more(ids.size(), String.valueOf(last));
+    }
+
+    private record Rating(int feedbackCount, double noteSum) {
+
+        static final Rating NONE = new Rating(0, 0);
+    }
+}
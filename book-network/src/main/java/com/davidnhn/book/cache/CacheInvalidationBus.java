@@ -0,0 +1,289 @@
+package com.davidnhn.book.cache;
+
+import com.davidnhn.book.concurrency.RequestDeadline;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+
+/**
+ * Invalidation des caches en mémoire entre instances, par LISTEN/NOTIFY sur la base principale.
+ *
+ * Émission : les ids modifiés dans une transaction sont regroupés puis envoyés par pg_notify juste avant le commit,
+ * dans la même transaction : Postgres ne délivre la notification qu'au commit, et jamais en cas de rollback. Hors
+ * transaction, la modification est déjà validée et la notification part immédiatement. Message :
+ * "<instance> b:1,2,3 u:7", découpé sous la limite de 8000 octets de NOTIFY.
+ *
+ * Un envoi hors transaction qui échoue n'est pas remonté à l'appelant (sa modification est validée) : les autres
+ * instances reçoivent à la place une invalidation complète ("<instance> *"), retentée toutes les poll-timeout ms
+ * jusqu'à ce qu'elle parte.
+ *
+ * Réception : un thread par instance garde une connexion dédiée (hors pool) en LISTEN, regroupe les notifications
+ * arrivées ensemble, ignore celles de l'instance elle-même (déjà invalidée localement) et publie un
+ * RemoteInvalidationEvent. La connexion est vérifiée à chaque attente sans notification et rouverte en cas d'erreur
+ * (délai doublé jusqu'à max-reconnect-delay). Chaque LISTEN, y compris le premier, est suivi d'une invalidation
+ * complète : ce qui a changé pendant que l'instance n'écoutait pas est oublié.
+ */
+@Component
+@Slf4j
+public class CacheInvalidationBus {
+
+    private static final int MAX_PAYLOAD = 7900;
+    private static final String FLUSH_ALL = "*";
+    private static final Duration MIN_RECONNECT_DELAY = Duration.ofMillis(500);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSourceProperties dataSourceProperties;
+    private final ApplicationEventPublisher eventPublisher;
+    private final String instanceId = UUID.randomUUID().toString();
+    private final Counter sent;
+    private final Counter received;
+    private final Counter flushes;
+
+    @Value("${application.cache-invalidation.channel}")
+    private String channel;
+
+    @Value("${application.cache-invalidation.poll-timeout}")
+    private int pollTimeoutMs;
+
+    @Value("${application.cache-invalidation.max-reconnect-delay}")
+    private Duration maxReconnectDelay;
+
+    private volatile boolean running;
+    private volatile boolean flushPending;
+    private Thread listener;
+
+    public CacheInvalidationBus(JdbcTemplate jdbcTemplate,
+                                DataSourceProperties dataSourceProperties,
+                                ApplicationEventPublisher eventPublisher,
+                                MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSourceProperties = dataSourceProperties;
+        this.eventPublisher = eventPublisher;
+        this.sent = Counter.builder("cache.invalidations").tag("direction", "sent").register(meterRegistry);
+        this.received = Counter.builder("cache.invalidations").tag("direction", "received").register(meterRegistry);
+        this.flushes = Counter.builder("cache.invalidation.flushes")
+                .description("Full local cache flushes after (re)subscribing")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Annonce aux autres instances que ces entités ont changé, au commit de la transaction courante s'il y en a une.
+     */
+    public void publish(CachedEntity entity, Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            // écriture déjà validée : hors de l'échéance de la requête, et sans échec pour l'appelant
+            RequestDeadline.exempt(() -> sendOrFlushLater(Map.of(entity, new TreeSet<>(ids))));
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        Map<CachedEntity, Set<Integer>> pending = (Map<CachedEntity, Set<Integer>>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            Map<CachedEntity, Set<Integer>> transactionIds = new EnumMap<>(CachedEntity.class);
+            pending = transactionIds;
+            TransactionSynchronizationManager.bindResource(this, transactionIds);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    send(transactionIds);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(CacheInvalidationBus.this);
+                }
+            });
+        }
+        pending.computeIfAbsent(entity, e -> new TreeSet<>()).addAll(ids);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        running = true;
+        listener = new Thread(this::listen, "cache-invalidation-listener");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (listener != null) {
+            listener.interrupt();
+        }
+    }
+
+    /**
+     * Invalidation complète des autres instances, à la place d'un envoi perdu.
+     */
+    @Scheduled(fixedDelayString = "${application.cache-invalidation.poll-timeout}")
+    public void sendPendingFlush() {
+        if (!flushPending) {
+            return;
+        }
+        try {
+            jdbcTemplate.queryForList("SELECT pg_notify(?, ?)", channel, instanceId + " " + FLUSH_ALL);
+            flushPending = false;
+            sent.increment();
+        } catch (DataAccessException e) {
+            log.debug("Full cache invalidation still pending", e);
+        }
+    }
+
+    private void sendOrFlushLater(Map<CachedEntity, Set<Integer>> ids) {
+        try {
+            send(ids);
+        } catch (DataAccessException e) {
+            flushPending = true;
+            log.warn("Could not notify cache invalidation {}, other instances will be flushed", ids, e);
+        }
+    }
+
+    private void send(Map<CachedEntity, Set<Integer>> ids) {
+        for (String payload : encode(instanceId, ids)) {
+            jdbcTemplate.queryForList("SELECT pg_notify(?, ?)", channel, payload);
+            sent.increment();
+        }
+    }
+
+    private void listen() {
+        Duration reconnectDelay = MIN_RECONNECT_DELAY;
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(
+                    dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(),
+                    dataSourceProperties.determinePassword())) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + channel);
+                }
+                log.info("Listening for cache invalidations on channel {}", channel);
+                reconnectDelay = MIN_RECONNECT_DELAY;
+                flushes.increment();
+                eventPublisher.publishEvent(RemoteInvalidationEvent.flush());
+
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(pollTimeoutMs);
+                    if (notifications != null && notifications.length > 0) {
+                        dispatch(notifications);
+                    } else if (!connection.isValid(pollTimeoutMs / 1000 + 1)) {
+                        throw new SQLException("Cache invalidation listener connection lost");
+                    }
+                }
+            } catch (SQLException | RuntimeException e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Cache invalidation listener failed, reconnecting in {}", reconnectDelay, e);
+                try {
+                    Thread.sleep(reconnectDelay.toMillis());
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+                reconnectDelay = reconnectDelay.multipliedBy(2).compareTo(maxReconnectDelay) > 0
+                        ? maxReconnectDelay
+                        : reconnectDelay.multipliedBy(2);
+            }
+        }
+    }
+
+    // toutes les notifications reçues ensemble : un seul événement, chaque id une seule fois
+    private void dispatch(PGNotification[] notifications) {
+        Map<CachedEntity, Set<Integer>> ids = new EnumMap<>(CachedEntity.class);
+        boolean flushAll = false;
+        for (PGNotification notification : notifications) {
+            received.increment();
+            flushAll |= decode(instanceId, notification.getParameter(), ids);
+        }
+        if (flushAll) {
+            flushes.increment();
+            eventPublisher.publishEvent(RemoteInvalidationEvent.flush());
+        } else if (!ids.isEmpty()) {
+            eventPublisher.publishEvent(new RemoteInvalidationEvent(ids, false));
+        }
+    }
+
+    static List<String> encode(String instanceId, Map<CachedEntity, Set<Integer>> ids) {
+        List<String> payloads = new ArrayList<>();
+        StringBuilder payload = new StringBuilder(instanceId);
+        for (Map.Entry<CachedEntity, Set<Integer>> entry : ids.entrySet()) {
+            boolean sectionOpen = false;
+            for (Integer id : entry.getValue()) {
+                String value = id.toString();
+                if (payload.length() + value.length() + 4 > MAX_PAYLOAD) {
+                    payloads.add(payload.toString());
+                    payload = new StringBuilder(instanceId);
+                    sectionOpen = false;
+                }
+                if (!sectionOpen) {
+                    payload.append(' ').append(entry.getKey().code()).append(':');
+                    sectionOpen = true;
+                } else {
+                    payload.append(',');
+                }
+                payload.append(value);
+            }
+        }
+        if (payload.length() > instanceId.length()) {
+            payloads.add(payload.toString());
+        }
+        return payloads;
+    }
+
+    /**
+     * Messages de l'instance elle-même ignorés ; un message illisible est journalisé et ignoré.
+     *
+     * @return true pour une invalidation complète
+     */
+    static boolean decode(String instanceId, String payload, Map<CachedEntity, Set<Integer>> into) {
+        String[] sections = payload.split(" ");
+        if (sections[0].equals(instanceId)) {
+            return false;
+        }
+        try {
+            for (int i = 1; i < sections.length; i++) {
+                if (sections[i].equals(FLUSH_ALL)) {
+                    return true;
+                }
+                Set<Integer> entityIds = into.computeIfAbsent(CachedEntity.ofCode(sections[i].charAt(0)), e -> new HashSet<>());
+                for (String id : sections[i].substring(2).split(",")) {
+                    entityIds.add(Integer.valueOf(id));
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Ignoring malformed cache invalidation: {}", payload, e);
+        }
+        return false;
+    }
+}
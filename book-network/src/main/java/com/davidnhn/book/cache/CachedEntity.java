@@ -0,0 +1,32 @@
+package com.davidnhn.book.cache;
+
+/**
+ * Entités dont une copie est gardée en mémoire par chaque instance (cache de second niveau Hibernate, BookResponseCache,
+ * BookCatalog, compteurs de non-lus de NotificationService). Le code d'une lettre est celui des messages de
+ * CacheInvalidationBus.
+ */
+public enum CachedEntity {
+    BOOK('b'),
+    USER('u'),
+    // ids d'utilisateurs dont le nombre de notifications non lues a changé
+    UNREAD_COUNT('n');
+
+    private final char code;
+
+    CachedEntity(char code) {
+        this.code = code;
+    }
+
+    public char code() {
+        return code;
+    }
+
+    static CachedEntity ofCode(char code) {
+        for (CachedEntity entity : values()) {
+            if (entity.code == code) {
+                return entity;
+            }
+        }
+        throw new IllegalArgumentException("Unknown cached entity code: " + code);
+    }
+}
@@ -0,0 +1,45 @@
+package com.davidnhn.book.cache;
+
+import com.davidnhn.book.book.Book;
+import com.davidnhn.book.user.User;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Applique au cache de second niveau Hibernate les modifications faites par les autres instances : sans cela, une
+ * entité modifiée ailleurs reste lue dans son ancien état jusqu'à l'expiration de sa région (ehcache.xml).
+ *
+ * Les résultats de requêtes en cache ne contiennent que des ids, relus ensuite dans les régions des entités, mais
+ * leur validité n'est vérifiée que contre les écritures locales (update-timestamps) : un résultat vide de
+ * UserRepository.findByEmail resterait vide après l'inscription de cet utilisateur sur une autre instance. La région
+ * des requêtes est donc vidée à chaque modification d'utilisateur.
+ */
+@Component
+@RequiredArgsConstructor
+public class HibernateCacheInvalidator {
+
+    private static final String USER_ROLES = User.class.getName() + ".roles";
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    @EventListener
+    public void onRemoteInvalidation(RemoteInvalidationEvent event) {
+        Cache cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+        if (event.flushAll()) {
+            cache.evictAllRegions();
+            return;
+        }
+        event.ids(CachedEntity.BOOK).forEach(id -> cache.evictEntityData(Book.class, id));
+        event.ids(CachedEntity.USER).forEach(id -> {
+            cache.evictEntityData(User.class, id);
+            cache.evictCollectionData(USER_ROLES, id);
+        });
+        if (!event.ids(CachedEntity.USER).isEmpty()) {
+            cache.evictDefaultQueryRegion();
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.davidnhn.book.cache;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Publié localement (sur le thread d'écoute de CacheInvalidationBus) quand d'autres instances ont modifié des entités.
+ *
+ * @param ids      ids modifiés par entité, regroupés sur toutes les notifications reçues ensemble
+ * @param flushAll l'écoute a été interrompue : des notifications ont pu être perdues, tout ce qui est en mémoire
+ *                 doit être oublié (ids est alors vide)
+ */
+public record RemoteInvalidationEvent(Map<CachedEntity, Set<Integer>> ids, boolean flushAll) {
+
+    public static RemoteInvalidationEvent flush() {
+        return new RemoteInvalidationEvent(Map.of(), true);
+    }
+
+    public Set<Integer> ids(CachedEntity entity) {
+        return ids.getOrDefault(entity, Set.of());
+    }
+}
@@ -0,0 +1,101 @@
+package com.davidnhn.book.common;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Nombres d'éléments approchés pour la pagination ESTIMATED.
+ *
+ * La requête ne fait jamais de COUNT : elle lit la dernière valeur connue et, si elle est absente ou trop
+ * ancienne, demande un recalcul à un unique thread d'arrière-plan (les COUNT sont donc exécutés un par un,
+ * jamais en rafale). En attendant la première valeur, on renvoie la borne inférieure connue par la page.
+ */
+@Component
+@Slf4j
+public class CountEstimator {
+
+    private final Map<String, CachedCount> counts = new ConcurrentHashMap<>();
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+    private final ThreadPoolExecutor refresher;
+
+    @Value("${application.pagination.count-ttl}")
+    private long countTtl;
+
+    @Value("${application.pagination.max-entries}")
+    private int maxEntries;
+
+    public CountEstimator(@Value("${application.pagination.refresh-queue-size}") int refreshQueueSize) {
+        this.refresher = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(refreshQueueSize),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "count-refresh");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * @param lowerBound nombre minimal d'éléments déduit de la page courante
+     * @param counter    COUNT exact, exécuté en arrière-plan
+     */
+    public long estimate(String key, long lowerBound, Supplier<Long> counter) {
+        CachedCount cached = counts.get(key);
+        if (cached == null || System.currentTimeMillis() - cached.computedAt() > countTtl) {
+            scheduleRefresh(key, counter);
+        }
+        return cached == null ? lowerBound : Math.max(cached.value(), lowerBound);
+    }
+
+    /**
+     * Total exact observé gratuitement (dernière page atteinte) : pas besoin de COUNT.
+     */
+    public void record(String key, long total) {
+        store(key, total);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refresher.shutdownNow();
+    }
+
+    private void scheduleRefresh(String key, Supplier<Long> counter) {
+        if (!refreshing.add(key)) {
+            return;
+        }
+        try {
+            refresher.execute(() -> {
+                try {
+                    store(key, counter.get());
+                } catch (RuntimeException e) {
+                    log.warn("Could not refresh count {}", key, e);
+                } finally {
+                    refreshing.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // file pleine : la valeur actuelle reste servie, un prochain appel redemandera le recalcul
+            refreshing.remove(key);
+        }
+    }
+
+    private void store(String key, long total) {
+        if (counts.size() >= maxEntries && !counts.containsKey(key)) {
+            counts.clear();
+        }
+        counts.put(key, new CachedCount(total, System.currentTimeMillis()));
+    }
+
+    private record CachedCount(long value, long computedAt) {
+    }
+}
@@ -0,0 +1,21 @@
+package com.davidnhn.book.common;
+
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * Page obtenue par pagination par curseur (keyset) : pas d'OFFSET ni de COUNT,
+ * le client renvoie nextCursor pour obtenir la page suivante.
+ */
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorResponse<T> {
+
+    private List<T> content;
+    private Integer nextCursor;
+    private boolean hasNext;
+}
@@ -0,0 +1,34 @@
+package com.davidnhn.book.common;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.json.JsonGeneratorImpl;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+/**
+ * Écrit un document JSON déjà sérialisé (une réponse de BookResponseCache, par exemple) à l'intérieur d'une autre réponse :
+ * recopié tel quel en JSON, jeton par jeton en CBOR ou Smile, qui n'acceptent pas de valeur brute (voir ResponseFormat.copy).
+ */
+public class EmbeddedJsonSerializer extends StdSerializer<String> {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    public EmbeddedJsonSerializer() {
+        super(String.class);
+    }
+
+    @Override
+    public void serialize(String json, JsonGenerator generator, SerializerProvider provider) throws IOException {
+        if (generator instanceof JsonGeneratorImpl) {
+            generator.writeRawValue(json);
+            return;
+        }
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            ResponseFormat.copy(parser, generator);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.davidnhn.book.common;
+
+import com.davidnhn.book.exceptions.OperationNotPermittedException;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Lecture du paramètre fields= ("id,title,authorName") des endpoints de liste.
+ *
+ * Les champs retenus déterminent la projection SQL (voir Projections) et les étapes de mapping exécutées :
+ * un champ non demandé n'est ni lu en base, ni calculé, ni présent dans le JSON.
+ */
+public final class FieldSelection {
+
+    private FieldSelection() {
+    }
+
+    /**
+     * @param fields valeur du paramètre ; vide ou absent = tous les champs
+     */
+    public static <F extends Enum<F> & SelectableField> Set<F> parse(String fields, Class<F> type) {
+        if (fields == null || fields.isBlank()) {
+            return EnumSet.allOf(type);
+        }
+        Set<F> selected = EnumSet.noneOf(type);
+        for (String name : fields.split(",")) {
+            String trimmed = name.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            selected.add(Arrays.stream(type.getEnumConstants())
+                    .filter(field -> field.fieldName().equals(trimmed))
+                    .findFirst()
+                    .orElseThrow(() -> new OperationNotPermittedException("Unknown field: " + trimmed)));
+        }
+        return selected;
+    }
+
+    /**
+     * @param required champ toujours renvoyé (identifiant)
+     */
+    public static <F extends Enum<F> & SelectableField> Set<F> parse(String fields, Class<F> type, F required) {
+        Set<F> selected = parse(fields, type);
+        selected.add(required);
+        return selected;
+    }
+
+    public static <F extends Enum<F>> boolean isAll(Set<F> fields, Class<F> type) {
+        return fields.size() == type.getEnumConstants().length;
+    }
+
+    /**
+     * Expressions à sélectionner, sans doublon, dans l'ordre des champs.
+     */
+    public static List<String> selections(Collection<? extends SelectableField> fields) {
+        Set<String> selections = new LinkedHashSet<>();
+        fields.forEach(field -> selections.addAll(field.selections()));
+        return List.copyOf(selections);
+    }
+}
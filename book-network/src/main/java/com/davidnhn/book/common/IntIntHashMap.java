@@ -0,0 +1,162 @@
+package com.davidnhn.book.common;
+
+/**
+ * Table de hachage int -> int à adressage ouvert (sondage linéaire), sans objets Integer ni entrées :
+ * deux tableaux de primitives, soit 8 octets par case.
+ *
+ * Les clés doivent être strictement positives (0 marque une case vide), ce qui convient aux identifiants
+ * générés par les séquences. Non thread-safe.
+ */
+public final class IntIntHashMap {
+
+    private static final int EMPTY = 0;
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private int[] keys;
+    private int[] values;
+    private int size;
+    private int resizeThreshold;
+
+    public IntIntHashMap() {
+        this(4);
+    }
+
+    public IntIntHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(2, (int) (expectedSize / LOAD_FACTOR)) * 2 - 1);
+        allocate(Math.max(capacity, 4));
+    }
+
+    public int get(int key) {
+        if (key <= EMPTY) {
+            return 0;
+        }
+        int index = indexOf(key);
+        return keys[index] == key ? values[index] : 0;
+    }
+
+    public boolean containsKey(int key) {
+        return key > EMPTY && keys[indexOf(key)] == key;
+    }
+
+    public void put(int key, int value) {
+        checkKey(key);
+        int index = indexOf(key);
+        if (keys[index] == key) {
+            values[index] = value;
+            return;
+        }
+        insertAt(index, key, value);
+    }
+
+    /**
+     * Ajoute delta à la valeur de key (0 si absente) et renvoie la nouvelle valeur.
+     */
+    public int addTo(int key, int delta) {
+        checkKey(key);
+        int index = indexOf(key);
+        if (keys[index] == key) {
+            values[index] += delta;
+            return values[index];
+        }
+        insertAt(index, key, delta);
+        return delta;
+    }
+
+    public void addAll(IntIntHashMap other) {
+        other.forEach(this::addTo);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void forEach(IntIntConsumer consumer) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) {
+                consumer.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    public int[] keys() {
+        int[] result = new int[size];
+        int position = 0;
+        for (int key : keys) {
+            if (key != EMPTY) {
+                result[position++] = key;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Taille approximative en mémoire (tableaux et en-têtes), pour les métriques et benchmarks.
+     */
+    public long footprintBytes() {
+        return 16L + 2 * (16L + 4L * keys.length) + 12;
+    }
+
+    private int indexOf(int key) {
+        int mask = keys.length - 1;
+        int index = mix(key) & mask;
+        while (keys[index] != EMPTY && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    private void insertAt(int index, int key, int value) {
+        keys[index] = key;
+        values[index] = value;
+        if (++size > resizeThreshold) {
+            rehash(keys.length * 2);
+        }
+    }
+
+    private void rehash(int newCapacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(newCapacity);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int index = indexOf(oldKeys[i]);
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+                size++;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        resizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static void checkKey(int key) {
+        if (key <= EMPTY) {
+            throw new IllegalArgumentException("Keys must be strictly positive: " + key);
+        }
+    }
+
+    // les identifiants sont séquentiels : on les disperse pour éviter les longues chaînes de sondage
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    @Override
+    public String toString() {
+        return "IntIntHashMap{size=" + size + ", capacity=" + keys.length + "}";
+    }
+
+    @FunctionalInterface
+    public interface IntIntConsumer {
+        void accept(int key, int value);
+    }
+}
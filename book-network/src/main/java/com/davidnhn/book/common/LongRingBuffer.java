@@ -0,0 +1,82 @@
+package com.davidnhn.book.common;
+
+import java.util.function.LongPredicate;
+
+/**
+ * Tampon circulaire de long de capacité fixe : une fois plein, chaque ajout écrase la valeur la plus ancienne.
+ * Un seul tableau long[], sans objet par élément. Les méthodes sont synchronisées.
+ */
+public final class LongRingBuffer {
+
+    private final long[] values;
+    private int head; // prochaine case écrite
+    private int size;
+
+    public LongRingBuffer(int capacity) {
+        this.values = new long[capacity];
+    }
+
+    public synchronized void add(long value) {
+        values[head] = value;
+        head = (head + 1) % values.length;
+        if (size < values.length) {
+            size++;
+        }
+    }
+
+    /**
+     * Ajoute value sauf si elle est déjà présente, ou si le tampon est plein et qu'elle est plus petite que toutes
+     * les valeurs gardées (elle en sortirait la première).
+     *
+     * @return true si value a été ajoutée
+     */
+    public synchronized boolean offer(long value) {
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            long kept = values[Math.floorMod(head - 1 - i, values.length)];
+            if (kept == value) {
+                return false;
+            }
+            min = Math.min(min, kept);
+        }
+        if (size == values.length && value < min) {
+            return false;
+        }
+        add(value);
+        return true;
+    }
+
+    /**
+     * @return les valeurs, de la plus récente à la plus ancienne
+     */
+    public synchronized long[] toArray() {
+        long[] result = new long[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = values[Math.floorMod(head - 1 - i, values.length)];
+        }
+        return result;
+    }
+
+    public synchronized void removeIf(LongPredicate predicate) {
+        long[] kept = new long[size];
+        int count = 0;
+        // du plus ancien au plus récent pour conserver l'ordre
+        for (int i = size - 1; i >= 0; i--) {
+            long value = values[Math.floorMod(head - 1 - i, values.length)];
+            if (!predicate.test(value)) {
+                kept[count++] = value;
+            }
+        }
+        System.arraycopy(kept, 0, values, 0, count);
+        head = count % values.length;
+        size = count;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return values.length;
+    }
+}
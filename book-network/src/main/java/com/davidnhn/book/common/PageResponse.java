@@ -1,8 +1,11 @@
 package com.davidnhn.book.common;
 
 import lombok.*;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 
 import java.util.List;
+import java.util.function.Function;
 
 @Getter
 @Setter
@@ -18,4 +21,51 @@ public class PageResponse<T> {
     private long totalElements;
     private boolean first;
     private boolean last;
+    private boolean hasNext;
+    private PaginationMode mode;
+
+    public PageResponse(List<T> content, int number, int size, int totalPages, long totalElements, boolean first, boolean last) {
+        this(content, number, size, totalPages, totalElements, first, last, !last, PaginationMode.EXACT);
+    }
+
+    public static <T> PageResponse<T> of(Page<?> page, List<T> content) {
+        return new PageResponse<>(
+                content,
+                page.getNumber(),
+                page.getSize(),
+                page.getTotalPages(),
+                page.getTotalElements(),
+                page.isFirst(),
+                page.isLast()
+        );
+    }
+
+    /**
+     * @param estimatedTotal null en mode SLICE (total inconnu)
+     */
+    public static <T> PageResponse<T> of(Slice<?> slice, List<T> content, Long estimatedTotal) {
+        int totalPages = -1;
+        if (estimatedTotal != null) {
+            totalPages = slice.getSize() == 0 ? 1 : (int) Math.ceil((double) estimatedTotal / slice.getSize());
+        }
+        return new PageResponse<>(
+                content,
+                slice.getNumber(),
+                slice.getSize(),
+                totalPages,
+                estimatedTotal == null ? -1 : estimatedTotal,
+                slice.isFirst(),
+                slice.isLast(),
+                slice.hasNext(),
+                estimatedTotal == null ? PaginationMode.SLICE : PaginationMode.ESTIMATED
+        );
+    }
+
+    /**
+     * Même page (numéro, totaux, mode) avec le contenu converti.
+     */
+    public <R> PageResponse<R> map(Function<? super T, ? extends R> mapper) {
+        List<R> mapped = content.stream().<R>map(mapper).toList();
+        return new PageResponse<>(mapped, number, size, totalPages, totalElements, first, last, hasNext, mode);
+    }
 }
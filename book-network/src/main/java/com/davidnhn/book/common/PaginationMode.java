@@ -0,0 +1,13 @@
+package com.davidnhn.book.common;
+
+/**
+ * Mode de pagination choisi par le client (paramètre mode des endpoints paginés).
+ */
+public enum PaginationMode {
+    // COUNT(*) exact à chaque page (comportement historique)
+    EXACT,
+    // pas de COUNT : seul hasNext est renseigné, totalPages et totalElements valent -1
+    SLICE,
+    // pas de COUNT sur le chemin de la requête : total issu d'un cache rafraîchi en arrière-plan
+    ESTIMATED
+}
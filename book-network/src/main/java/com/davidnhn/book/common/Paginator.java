@@ -0,0 +1,68 @@
+package com.davidnhn.book.common;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Exécute une requête paginée selon le mode demandé.
+ *
+ * EXACT utilise la variante Page du repository (requête + COUNT). SLICE et ESTIMATED utilisent la variante Slice :
+ * Spring Data lit size + 1 lignes pour connaître hasNext, sans COUNT. En ESTIMATED, le total vient de CountEstimator,
+ * qui rafraîchit son cache en exécutant la variante Page sur une page d'un élément.
+ */
+@Component
+@RequiredArgsConstructor
+public class Paginator {
+
+    private final CountEstimator countEstimator;
+
+    /**
+     * @param countKey identifie la requête et ses paramètres (ex. "books.owner:42") pour le cache des totaux
+     */
+    public <E, T> PageResponse<T> fetch(PaginationMode mode,
+                                        Pageable pageable,
+                                        String countKey,
+                                        Function<Pageable, Page<E>> pageQuery,
+                                        Function<Pageable, Slice<E>> sliceQuery,
+                                        Function<E, T> mapper) {
+        return fetchEntities(mode, pageable, countKey, pageQuery, sliceQuery).map(mapper);
+    }
+
+    /**
+     * Comme fetch, mais renvoie les entités : l'appelant peut répondre 304 (voir ResourceVersion)
+     * avant de construire les DTO.
+     */
+    public <E> PageResponse<E> fetchEntities(PaginationMode mode,
+                                             Pageable pageable,
+                                             String countKey,
+                                             Function<Pageable, Page<E>> pageQuery,
+                                             Function<Pageable, Slice<E>> sliceQuery) {
+        if (mode == null || mode == PaginationMode.EXACT) {
+            Page<E> page = pageQuery.apply(pageable);
+            return PageResponse.of(page, page.getContent());
+        }
+
+        Slice<E> slice = sliceQuery.apply(pageable);
+        List<E> content = slice.getContent();
+        if (mode == PaginationMode.SLICE) {
+            return PageResponse.of(slice, content, null);
+        }
+
+        long lowerBound = pageable.getOffset() + slice.getNumberOfElements();
+        if (!slice.hasNext() && (slice.hasContent() || pageable.getOffset() == 0)) {
+            // dernière page : le total est connu exactement
+            countEstimator.record(countKey, lowerBound);
+            return PageResponse.of(slice, content, lowerBound);
+        }
+        long estimate = countEstimator.estimate(countKey, slice.hasNext() ? lowerBound + 1 : lowerBound,
+                () -> pageQuery.apply(PageRequest.of(0, 1)).getTotalElements());
+        return PageResponse.of(slice, content, estimate);
+    }
+}
@@ -0,0 +1,13 @@
+package com.davidnhn.book.common;
+
+import java.util.Map;
+
+/**
+ * Requête JPQL dont la clause SELECT est choisie à l'exécution (voir Projections).
+ *
+ * @param from    entité et alias, ex. "Book book"
+ * @param where   condition sans le mot-clé WHERE
+ * @param orderBy tri sans le mot-clé ORDER BY, null si aucun
+ */
+public record ProjectionQuery(String from, String where, String orderBy, Map<String, Object> parameters) {
+}
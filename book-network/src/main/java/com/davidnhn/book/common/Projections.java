@@ -0,0 +1,68 @@
+package com.davidnhn.book.common;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Exécute une ProjectionQuery en ne sélectionnant que les colonnes demandées (fields=) : le SQL généré ne lit
+ * que ces colonnes et ne fait les jointures (propriétaire, livre d'un emprunt) que si un champ en a besoin.
+ *
+ * Le nombre de requêtes JPQL distinctes reste borné (une par combinaison de champs), Hibernate garde donc
+ * leur plan d'exécution en cache comme pour les requêtes des repositories.
+ */
+@Component
+@RequiredArgsConstructor
+public class Projections {
+
+    private final EntityManager entityManager;
+
+    public List<Tuple> list(ProjectionQuery query, List<String> selections) {
+        return select(query, selections).getResultList();
+    }
+
+    public Page<Tuple> page(ProjectionQuery query, List<String> selections, Pageable pageable) {
+        List<Tuple> content = select(query, selections)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize())
+                .getResultList();
+        // pas de COUNT quand la page suffit à connaître le total (première page incomplète, par exemple)
+        return PageableExecutionUtils.getPage(content, pageable, () -> count(query));
+    }
+
+    // comme page, sans COUNT : une ligne de plus pour savoir s'il existe une page suivante
+    public Slice<Tuple> slice(ProjectionQuery query, List<String> selections, Pageable pageable) {
+        List<Tuple> content = select(query, selections)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize() + 1)
+                .getResultList();
+        boolean hasNext = content.size() > pageable.getPageSize();
+        return new SliceImpl<>(hasNext ? content.subList(0, pageable.getPageSize()) : content, pageable, hasNext);
+    }
+
+    private TypedQuery<Tuple> select(ProjectionQuery query, List<String> selections) {
+        String jpql = "SELECT " + String.join(", ", selections)
+                + " FROM " + query.from()
+                + " WHERE " + query.where()
+                + (query.orderBy() == null ? "" : " ORDER BY " + query.orderBy());
+        TypedQuery<Tuple> typedQuery = entityManager.createQuery(jpql, Tuple.class);
+        query.parameters().forEach(typedQuery::setParameter);
+        return typedQuery;
+    }
+
+    private long count(ProjectionQuery query) {
+        TypedQuery<Long> typedQuery = entityManager.createQuery(
+                "SELECT COUNT(*) FROM " + query.from() + " WHERE " + query.where(), Long.class);
+        query.parameters().forEach(typedQuery::setParameter);
+        return typedQuery.getSingleResult();
+    }
+}
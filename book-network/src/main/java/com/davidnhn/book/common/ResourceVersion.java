@@ -0,0 +1,107 @@
+package com.davidnhn.book.common;
+
+import org.springframework.web.context.request.WebRequest;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HexFormat;
+import java.util.function.Predicate;
+
+/**
+ * Validateurs HTTP d'une réponse (ETag fort et Last-Modified), calculés à partir des colonnes @Version
+ * et des dates d'audit, avant tout mapping ou sérialisation.
+ *
+ * Les contrôleurs les passent à WebRequest.checkNotModified : si le client a déjà cette version,
+ * la réponse est un 304 sans corps.
+ *
+ * @param lastModified en millisecondes, -1 si inconnu (pas d'en-tête Last-Modified)
+ */
+public record ResourceVersion(String etag, long lastModified) {
+
+    public static ResourceVersion of(BaseEntity entity, long version) {
+        return new ResourceVersion("\"" + entity.getId() + "-" + version + "\"", lastModified(entity));
+    }
+
+    /**
+     * Positionne ETag et Last-Modified sur la réponse ; true si le client a déjà cette version
+     * (le statut est alors 304 et le contrôleur renvoie null).
+     *
+     * L'ETag d'une réponse CBOR ou Smile porte le nom du format : deux encodages d'une même version ne sont pas
+     * identiques octet pour octet et un ETag fort ne doit pas les confondre.
+     */
+    public static Predicate<ResourceVersion> notModified(WebRequest request) {
+        ResponseFormat format = ResponseFormat.of(request);
+        return version -> request.checkNotModified(version.withFormat(format).etag(), version.lastModified());
+    }
+
+    public ResourceVersion withFormat(ResponseFormat format) {
+        if (format == ResponseFormat.JSON) {
+            return this;
+        }
+        return new ResourceVersion(etag.substring(0, etag.length() - 1) + "-" + format.name().toLowerCase() + "\"", lastModified);
+    }
+
+    /**
+     * ETag d'une liste : empreinte de tout ce qui détermine le corps (paramètres, totaux, id et version de chaque élément).
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    private static long lastModified(BaseEntity entity) {
+        return lastModified(entity.getCreatedDate(), entity.getLastModifiedDate());
+    }
+
+    private static long lastModified(LocalDateTime createdDate, LocalDateTime lastModifiedDate) {
+        LocalDateTime date = lastModifiedDate != null ? lastModifiedDate : createdDate;
+        return date == null ? -1 : date.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    public static final class Builder {
+
+        private final MessageDigest digest;
+        private final ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+        private long lastModified = -1;
+
+        private Builder() {
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        public Builder add(long value) {
+            digest.update(buffer.clear().putLong(value).array());
+            return this;
+        }
+
+        public Builder add(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            add(bytes.length);
+            digest.update(bytes);
+            return this;
+        }
+
+        public Builder add(BaseEntity entity, long version) {
+            return add(entity.getId(), version, entity.getCreatedDate(), entity.getLastModifiedDate());
+        }
+
+        // élément lu par projection (voir Projections), sans entité
+        public Builder add(Integer id, long version, LocalDateTime createdDate, LocalDateTime lastModifiedDate) {
+            add(id);
+            add(version);
+            lastModified = Math.max(lastModified, ResourceVersion.lastModified(createdDate, lastModifiedDate));
+            return this;
+        }
+
+        public ResourceVersion build() {
+            // 128 bits suffisent pour qu'une collision entre deux versions d'une même liste soit exclue en pratique
+            return new ResourceVersion("\"" + HexFormat.of().formatHex(digest.digest(), 0, 16) + "\"", lastModified);
+        }
+    }
+}
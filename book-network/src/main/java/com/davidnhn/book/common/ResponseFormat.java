@@ -0,0 +1,108 @@
+package com.davidnhn.book.common;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.context.request.WebRequest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Encodages proposés par l'API, choisis par l'en-tête Accept. JSON reste l'encodage par défaut (Accept absent ou générique) ;
+ * CBOR et Smile, binaires, sont plus compacts et plus rapides à écrire, surtout pour les couvertures (octets bruts
+ * au lieu de base64).
+ *
+ * Les réponses construites par Spring MVC passent par les convertisseurs Jackson CBOR et Smile (ajoutés par Spring dès
+ * que jackson-dataformat-cbor et jackson-dataformat-smile sont présents). Les réponses déjà sérialisées en JSON
+ * (BookResponseCache) sont recopiées jeton par jeton dans le format demandé (transcode), sans repasser par les objets.
+ */
+public enum ResponseFormat {
+
+    JSON(MediaType.APPLICATION_JSON, new JsonFactory()),
+    CBOR(MediaType.APPLICATION_CBOR, new CBORFactory()),
+    SMILE(MediaType.parseMediaType("application/x-jackson-smile"), new SmileFactory());
+
+    // champs byte[] des réponses (BookResponse.cover), seuls à être écrits en base64 par Jackson
+    private static final Set<String> BINARY_FIELDS = Set.of("cover");
+
+    private final MediaType mediaType;
+    private final JsonFactory factory;
+
+    ResponseFormat(MediaType mediaType, JsonFactory factory) {
+        this.mediaType = mediaType;
+        this.factory = factory;
+    }
+
+    public MediaType mediaType() {
+        return mediaType;
+    }
+
+    /**
+     * Premier format accepté par le client, par qualité puis précision décroissantes ; JSON si rien ne correspond
+     * (Spring répondra alors 406 si JSON n'est pas accepté non plus).
+     */
+    public static ResponseFormat of(WebRequest request) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        if (accept == null || accept.isBlank()) {
+            return JSON;
+        }
+        List<MediaType> accepted;
+        try {
+            accepted = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            return JSON;
+        }
+        MimeTypeUtils.sortBySpecificity(accepted);
+        for (MediaType mediaType : accepted) {
+            for (ResponseFormat format : values()) {
+                if (mediaType.getQualityValue() > 0 && mediaType.includes(format.mediaType)) {
+                    return format;
+                }
+            }
+        }
+        return JSON;
+    }
+
+    /**
+     * Recopie un document JSON dans ce format.
+     */
+    public byte[] transcode(byte[] json) {
+        if (this == JSON) {
+            return json;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length);
+        try (JsonParser parser = JSON.factory.createParser(json);
+             JsonGenerator generator = factory.createGenerator(out)) {
+            copy(parser, generator);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Recopie jeton par jeton le document JSON lu par parser. Les champs binaires (base64 en JSON) sont décodés et écrits
+     * en octets bruts, ce que CBOR et Smile savent représenter.
+     */
+    public static void copy(JsonParser parser, JsonGenerator generator) throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != null) {
+            if (token == JsonToken.VALUE_STRING && BINARY_FIELDS.contains(parser.currentName())) {
+                generator.writeBinary(parser.getBinaryValue());
+            } else {
+                generator.copyCurrentEvent(parser);
+            }
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.davidnhn.book.common;
+
+import java.util.List;
+
+/**
+ * Champ d'une réponse pouvant être demandé avec le paramètre fields= (voir FieldSelection).
+ */
+public interface SelectableField {
+
+    /**
+     * Nom du champ dans le JSON, tel qu'il est écrit dans fields=.
+     */
+    String fieldName();
+
+    /**
+     * Expressions JPQL ("chemin AS alias") à sélectionner pour remplir ce champ.
+     */
+    List<String> selections();
+}
@@ -0,0 +1,102 @@
+package com.davidnhn.book.common;
+
+import com.davidnhn.book.concurrency.RequestDeadline;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Regroupe les chargements identiques simultanés : le premier appelant pour une clé exécute le chargement,
+ * les suivants attendent son résultat (ou son exception) au lieu d'interroger la base à leur tour.
+ *
+ * L'attente est bornée par maxWait : passé ce délai, l'appelant charge lui-même, pour qu'une requête lente
+ * ne bloque pas toutes les autres. Rien n'est gardé une fois le chargement terminé (ce n'est pas un cache).
+ *
+ * Le chargement partagé s'exécute sous l'échéance du premier appelant (RequestDeadline), qu'un client peut
+ * raccourcir (X-Request-Timeout) : un échec survenu après cette échéance n'est pas transmis aux autres, qui
+ * recommencent avec la leur.
+ *
+ * Aucun verrou ni bloc synchronized : l'attente passe par CompletableFuture.get, ce qui convient aussi
+ * bien aux threads classiques qu'aux threads virtuels.
+ *
+ * Métriques : singleflight.coalesced (appels servis par le chargement d'un autre) et singleflight.timeouts,
+ * avec le tag name.
+ */
+public class SingleFlight<K, V> {
+
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final long maxWaitMillis;
+    private final Counter coalesced;
+    private final Counter timeouts;
+
+    public SingleFlight(String name, Duration maxWait, MeterRegistry meterRegistry) {
+        this.maxWaitMillis = maxWait.toMillis();
+        this.coalesced = Counter.builder("singleflight.coalesced")
+                .description("Loads served by a concurrent identical load")
+                .tag("name", name)
+                .register(meterRegistry);
+        this.timeouts = Counter.builder("singleflight.timeouts")
+                .description("Callers that stopped waiting and loaded on their own")
+                .tag("name", name)
+                .register(meterRegistry);
+    }
+
+    public V execute(K key, Supplier<V> loader) {
+        CompletableFuture<V> own = new CompletableFuture<>();
+        CompletableFuture<V> leader = inFlight.putIfAbsent(key, own);
+        if (leader == null) {
+            return load(key, own, loader);
+        }
+
+        coalesced.increment();
+        try {
+            return leader.get(maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            timeouts.increment();
+            return loader.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof LeaderDeadlineExceeded) {
+                return execute(key, loader);
+            }
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for " + key, e);
+        }
+    }
+
+    private V load(K key, CompletableFuture<V> own, Supplier<V> loader) {
+        try {
+            V value = loader.get();
+            own.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            own.completeExceptionally(RequestDeadline.expired() ? new LeaderDeadlineExceeded() : e);
+            throw e;
+        } finally {
+            inFlight.remove(key, own);
+        }
+    }
+
+    // échec propre à l'échéance du premier appelant
+    private static final class LeaderDeadlineExceeded extends RuntimeException {
+
+        private LeaderDeadlineExceeded() {
+            super(null, null, false, false);
+        }
+    }
+}
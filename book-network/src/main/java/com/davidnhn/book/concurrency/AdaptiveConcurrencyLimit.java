@@ -0,0 +1,101 @@
+package com.davidnhn.book.concurrency;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limite de requêtes simultanées ajustée d'après la latence observée (algorithme "gradient").
+ *
+ * Deux moyennes mobiles de la durée des requêtes : l'une longue (~600 requêtes), la latence de référence, l'autre
+ * courte (~10 requêtes), la latence actuelle. Le gradient tolerance * référence / actuelle vaut 1 tant que la latence
+ * reste dans la tolérance et baisse quand les requêtes commencent à attendre (pool de connexions, CPU) :
+ *
+ * nouvelle limite = limite * gradient + sqrt(limite)
+ *
+ * Le terme sqrt(limite) laisse la limite monter quand la latence est stable ; le gradient (borné à 0,5) la fait
+ * redescendre dès que la latence se dégrade, avant que les requêtes ne s'accumulent jusqu'aux timeouts. La nouvelle
+ * valeur est lissée (smoothing) et bornée par [min, max].
+ */
+final class AdaptiveConcurrencyLimit {
+
+    private static final double LONG_WINDOW = 600;
+    private static final double SHORT_WINDOW = 10;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final double smoothing;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    // lu sans verrou par tryAcquire
+    private volatile int limit;
+    // le reste est protégé par this
+    private double estimatedLimit;
+    private double longRttNanos;
+    private double shortRttNanos;
+
+    AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double tolerance, double smoothing) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.smoothing = smoothing;
+        this.estimatedLimit = initialLimit;
+        this.limit = initialLimit;
+    }
+
+    /**
+     * @return le nombre de requêtes en cours, celle-ci comprise, ou -1 si la limite est atteinte
+     */
+    int tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                return -1;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return current + 1;
+            }
+        }
+    }
+
+    /**
+     * @param rttNanos         durée de la requête, ou -1 si elle ne doit pas compter dans la latence (requête asynchrone)
+     * @param inFlightAtStart  valeur renvoyée par tryAcquire
+     */
+    void release(long rttNanos, int inFlightAtStart) {
+        inFlight.decrementAndGet();
+        if (rttNanos >= 0) {
+            onSample(rttNanos, inFlightAtStart);
+        }
+    }
+
+    int limit() {
+        return limit;
+    }
+
+    int inFlight() {
+        return inFlight.get();
+    }
+
+    private synchronized void onSample(long rttNanos, int inFlightAtStart) {
+        if (longRttNanos == 0) {
+            longRttNanos = rttNanos;
+            shortRttNanos = rttNanos;
+            return;
+        }
+        shortRttNanos += (rttNanos - shortRttNanos) / SHORT_WINDOW;
+        longRttNanos += (rttNanos - longRttNanos) / LONG_WINDOW;
+        // latence redevenue bien plus basse que la référence : celle-ci la rejoint plus vite que la moyenne longue
+        if (longRttNanos > 2 * shortRttNanos) {
+            longRttNanos *= 0.95;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * longRttNanos / shortRttNanos));
+        double newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        // loin de la limite, une latence stable ne prouve pas qu'on peut en accepter davantage
+        if (newLimit > estimatedLimit && inFlightAtStart < estimatedLimit / 2) {
+            return;
+        }
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, estimatedLimit * (1 - smoothing) + newLimit * smoothing));
+        limit = (int) estimatedLimit;
+    }
+}
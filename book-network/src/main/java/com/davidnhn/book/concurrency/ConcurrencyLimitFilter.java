@@ -0,0 +1,106 @@
+package com.davidnhn.book.concurrency;
+
+import com.davidnhn.book.handler.ExceptionResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+
+import static com.davidnhn.book.handler.BusinessErrorCodes.SERVER_OVERLOADED;
+
+/**
+ * Délestage : au-delà de la limite de requêtes simultanées de sa classe de route (RouteClass), une requête est
+ * refusée immédiatement (503, Retry-After) au lieu d'attendre dans la file de Tomcat puis une connexion du pool
+ * Hikari, ce qui ralentirait toutes les autres. Chaque limite s'ajuste à la latence observée (AdaptiveConcurrencyLimit).
+ *
+ * Placé avant JwtFilter (SecurityConfig) : une requête refusée ne coûte ni lecture de l'utilisateur ni vérification
+ * du jeton. Métriques par classe (tag route) : http.concurrency.limit, http.concurrency.in-flight,
+ * http.concurrency.shed.
+ */
+@Component
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    private final ObjectMapper objectMapper;
+    private final Map<RouteClass, AdaptiveConcurrencyLimit> limits = new EnumMap<>(RouteClass.class);
+    private final Map<RouteClass, Counter> shed = new EnumMap<>(RouteClass.class);
+
+    public ConcurrencyLimitFilter(Environment environment, MeterRegistry meterRegistry, ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        double tolerance = environment.getRequiredProperty("application.concurrency-limits.rtt-tolerance", Double.class);
+        double smoothing = environment.getRequiredProperty("application.concurrency-limits.smoothing", Double.class);
+        for (RouteClass route : RouteClass.values()) {
+            String prefix = "application.concurrency-limits." + route.key() + ".";
+            AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(
+                    environment.getRequiredProperty(prefix + "initial", Integer.class),
+                    environment.getRequiredProperty(prefix + "min", Integer.class),
+                    environment.getRequiredProperty(prefix + "max", Integer.class),
+                    tolerance,
+                    smoothing);
+            limits.put(route, limit);
+            Gauge.builder("http.concurrency.limit", limit, AdaptiveConcurrencyLimit::limit)
+                    .tag("route", route.key())
+                    .register(meterRegistry);
+            Gauge.builder("http.concurrency.in-flight", limit, AdaptiveConcurrencyLimit::inFlight)
+                    .tag("route", route.key())
+                    .register(meterRegistry);
+            shed.put(route, Counter.builder("http.concurrency.shed")
+                    .description("Requests rejected with 503 because the route class was at its concurrency limit")
+                    .tag("route", route.key())
+                    .register(meterRegistry));
+        }
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain
+    ) throws ServletException, IOException {
+        RouteClass route = RouteClass.of(request);
+        if (route == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        AdaptiveConcurrencyLimit limit = limits.get(route);
+        int inFlight = limit.tryAcquire();
+        if (inFlight < 0) {
+            shed.get(route).increment();
+            reject(response);
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            // une requête asynchrone libère sa place au retour du thread, sans compter dans la latence
+            limit.release(request.isAsyncStarted() ? -1 : System.nanoTime() - start, inFlight);
+        }
+    }
+
+    private void reject(HttpServletResponse response) throws IOException {
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), ExceptionResponse.builder()
+                .businessErrorCode(SERVER_OVERLOADED.getCode())
+                .businessErrorDescription(SERVER_OVERLOADED.getDescription())
+                .build());
+    }
+}
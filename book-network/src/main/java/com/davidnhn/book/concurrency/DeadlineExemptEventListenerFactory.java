@@ -0,0 +1,35 @@
+package com.davidnhn.book.concurrency;
+
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalApplicationListenerMethodAdapter;
+import org.springframework.transaction.event.TransactionalEventListenerFactory;
+
+import java.lang.reflect.Method;
+
+/**
+ * Méthodes @TransactionalEventListener exécutées sans l'échéance de la requête (RequestDeadline) : après le commit,
+ * ou immédiatement hors transaction (fallbackExecution), l'écriture qui les déclenche est déjà validée. Une échéance
+ * dépassée pendant la diffusion (fil des abonnés, catalogue, notifications...) renverrait un 504 pour une écriture
+ * réussie.
+ *
+ * Prend le pas sur la fabrique de Spring (ordre plus petit), même traitement par ailleurs.
+ */
+@Component
+public class DeadlineExemptEventListenerFactory extends TransactionalEventListenerFactory {
+
+    public DeadlineExemptEventListenerFactory() {
+        setOrder(0);
+    }
+
+    @Override
+    public ApplicationListener<?> createApplicationListener(String beanName, Class<?> type, Method method) {
+        return new TransactionalApplicationListenerMethodAdapter(beanName, type, method) {
+            @Override
+            public void processEvent(ApplicationEvent event) {
+                RequestDeadline.exempt(() -> super.processEvent(event));
+            }
+        };
+    }
+}
@@ -0,0 +1,85 @@
+package com.davidnhn.book.concurrency;
+
+import com.davidnhn.book.exceptions.RequestDeadlineExceededException;
+
+import java.util.function.Supplier;
+
+/**
+ * Échéance de la requête en cours (System.nanoTime), posée par RequestDeadlineFilter pour le thread de la requête.
+ * Une tâche lancée sur un autre thread pour la même requête la reprend avec propagate.
+ *
+ * Lue par DeadlineAwareDataSource : pas de connexion après l'échéance, et chaque ordre SQL reçoit le temps restant
+ * comme timeout. Le travail qui suit une écriture validée (écouteurs @TransactionalEventListener, voir
+ * DeadlineExemptEventListenerFactory, et notifications d'invalidation) s'exécute sans échéance : l'écriture a eu lieu,
+ * un échec à ce stade ne doit pas devenir un 504.
+ */
+public final class RequestDeadline {
+
+    private static final ThreadLocal<Long> DEADLINE = new ThreadLocal<>();
+
+    private RequestDeadline() {
+    }
+
+    /**
+     * @return temps restant en ns (négatif si l'échéance est passée), Long.MAX_VALUE sans échéance
+     */
+    public static long remainingNanos() {
+        Long deadline = DEADLINE.get();
+        return deadline == null ? Long.MAX_VALUE : deadline - System.nanoTime();
+    }
+
+    public static boolean expired() {
+        return remainingNanos() <= 0;
+    }
+
+    public static void checkNotExpired() {
+        if (expired()) {
+            throw new RequestDeadlineExceededException("Request deadline exceeded");
+        }
+    }
+
+    /**
+     * @param deadlineNanos échéance propre à la tâche ; la plus proche des deux s'applique
+     */
+    public static <T> Supplier<T> propagate(long deadlineNanos, Supplier<T> task) {
+        Long requestDeadline = DEADLINE.get();
+        long deadline = requestDeadline == null ? deadlineNanos : Math.min(requestDeadline, deadlineNanos);
+        return () -> {
+            // la tâche peut s'exécuter sur le thread de la requête (CallerRunsPolicy) : son échéance est rétablie ensuite
+            Long previous = DEADLINE.get();
+            DEADLINE.set(deadline);
+            try {
+                return task.get();
+            } finally {
+                if (previous == null) {
+                    DEADLINE.remove();
+                } else {
+                    DEADLINE.set(previous);
+                }
+            }
+        };
+    }
+
+    /**
+     * Exécute task sans échéance, puis rétablit celle du thread.
+     */
+    public static void exempt(Runnable task) {
+        Long previous = DEADLINE.get();
+        DEADLINE.remove();
+        try {
+            task.run();
+        } finally {
+            if (previous != null) {
+                DEADLINE.set(previous);
+            }
+        }
+    }
+
+    static void set(long deadlineNanos) {
+        DEADLINE.set(deadlineNanos);
+    }
+
+    static void clear() {
+        DEADLINE.remove();
+    }
+}
@@ -0,0 +1,73 @@
+package com.davidnhn.book.concurrency;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.env.Environment;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Pose l'échéance de la requête (RequestDeadline) dès son arrivée : budget de sa classe de route
+ * (application.deadlines.*), que le client peut réduire avec l'en-tête X-Request-Timeout (en ms) quand il
+ * abandonne lui-même plus tôt. Les requêtes jamais limitées (flux SSE, actuator...) n'ont pas d'échéance.
+ */
+@Component
+public class RequestDeadlineFilter extends OncePerRequestFilter {
+
+    private static final String TIMEOUT_HEADER = "X-Request-Timeout";
+
+    private final Map<RouteClass, Long> budgets = new EnumMap<>(RouteClass.class);
+
+    public RequestDeadlineFilter(Environment environment) {
+        for (RouteClass route : RouteClass.values()) {
+            budgets.put(route, environment.getRequiredProperty("application.deadlines." + route.key(), Duration.class).toNanos());
+        }
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain
+    ) throws ServletException, IOException {
+        RouteClass route = RouteClass.of(request);
+        if (route == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        long budget = budgets.get(route);
+        Long clientTimeoutMs = clientTimeoutMs(request);
+        if (clientTimeoutMs != null) {
+            budget = Math.min(budget, Duration.ofMillis(clientTimeoutMs).toNanos());
+        }
+        RequestDeadline.set(System.nanoTime() + budget);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            RequestDeadline.clear();
+        }
+    }
+
+    // en-tête absent ou illisible : budget de la route
+    private static Long clientTimeoutMs(HttpServletRequest request) {
+        String header = request.getHeader(TIMEOUT_HEADER);
+        if (header == null) {
+            return null;
+        }
+        try {
+            long timeoutMs = Long.parseLong(header.trim());
+            return timeoutMs > 0 ? timeoutMs : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.davidnhn.book.concurrency;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpMethod;
+
+/**
+ * Classes de routes, chacune avec sa propre limite de requêtes simultanées (ConcurrencyLimitFilter) : une rafale
+ * d'envois de couvertures ou de connexions (bcrypt) ne réduit pas la capacité laissée aux lectures du catalogue.
+ */
+enum RouteClass {
+    AUTH("auth"),
+    READS("reads"),
+    WRITES("writes"),
+    UPLOADS("uploads");
+
+    private final String key;
+
+    RouteClass(String key) {
+        this.key = key;
+    }
+
+    /**
+     * Suffixe des propriétés application.concurrency-limits.* et tag route des métriques.
+     */
+    String key() {
+        return key;
+    }
+
+    /**
+     * @return null pour les requêtes jamais limitées : préflight CORS, flux SSE (ouverts pour de longues minutes),
+     *         actuator (sondes de santé) et documentation
+     */
+    static RouteClass of(HttpServletRequest request) {
+        String path = request.getServletPath();
+        String method = request.getMethod();
+        if (HttpMethod.OPTIONS.matches(method)
+                || path.startsWith("/events")
+                || path.startsWith("/actuator")
+                || path.startsWith("/v3/api-docs")
+                || path.startsWith("/swagger-ui")) {
+            return null;
+        }
+        if (path.startsWith("/auth/")) {
+            return AUTH;
+        }
+        if (path.startsWith("/books/cover/")) {
+            return UPLOADS;
+        }
+        return HttpMethod.GET.matches(method) || HttpMethod.HEAD.matches(method) ? READS : WRITES;
+    }
+}
@@ -71,9 +71,14 @@ public class BeansConfig {
                 ORIGIN,          // En-tête spécifiant l'origine de la requête.
                 CONTENT_TYPE,    // En-tête spécifiant le type de contenu de la requête.
                 ACCEPT,          // En-tête indiquant les types de contenu que le client est prêt à accepter.
-                AUTHORIZATION    // En-tête utilisé pour transmettre des informations d'autorisation.
+                AUTHORIZATION,   // En-tête utilisé pour transmettre des informations d'autorisation.
+                IF_NONE_MATCH,   // Revalidation conditionnelle (ETag déjà reçu).
+                IF_MODIFIED_SINCE
         ));
 
+        // En-têtes de réponse lisibles par le front : nécessaires pour qu'il puisse revalider (304 Not Modified).
+        config.setExposedHeaders(Arrays.asList(ETAG, LAST_MODIFIED));
+
         // Spécifie les méthodes HTTP autorisées pour les requêtes CORS.
         config.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "PATCH", "OPTION"));
 
@@ -0,0 +1,89 @@
+package com.davidnhn.book.config;
+
+import com.davidnhn.book.datasource.DeadlineAwareDataSource;
+import com.davidnhn.book.datasource.ReplicaAwareTransactionManager;
+import com.davidnhn.book.datasource.ReplicaDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.transaction.TransactionManagerCustomizers;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Base principale et réplicas en lecture (application.datasource.replicas, mêmes identifiants que spring.datasource).
+ *
+ * La DataSource utilisée par JPA, Flyway et JdbcTemplate est un LazyConnectionDataSourceProxy : la connexion réelle
+ * n'est ouverte qu'à la première requête SQL de la transaction, une fois la transaction marquée read-only ou non.
+ * Les transactions read-only vont à ReplicaDataSource, les autres à la base principale. L'open-in-view est désactivé
+ * (application-dev.yaml) : sinon la première connexion d'une requête HTTP servirait à toutes ses transactions.
+ * Le tout est enveloppé par DeadlineAwareDataSource (échéance de la requête HTTP en timeout des ordres SQL).
+ * Le gestionnaire de transactions (ReplicaAwareTransactionManager) empêche les lectures sur réplica d'alimenter le
+ * cache de second niveau.
+ */
+@Configuration
+public class DataSourceConfig {
+
+    @Value("${application.datasource.replicas}")
+    private List<String> replicaUrls;
+
+    @Value("${application.datasource.replica-max-lag}")
+    private Duration replicaMaxLag;
+
+    @Value("${application.datasource.replica-pool-size}")
+    private int replicaPoolSize;
+
+    @Value("${application.datasource.probe-timeout}")
+    private Duration probeTimeout;
+
+    @Bean(destroyMethod = "close")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties, MeterRegistry meterRegistry) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        dataSource.setMetricRegistry(meterRegistry);
+        return dataSource;
+    }
+
+    @Bean(destroyMethod = "close")
+    public ReplicaDataSource replicaDataSource(HikariDataSource primaryDataSource, DataSourceProperties properties,
+                                               MeterRegistry meterRegistry) {
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (String url : replicaUrls) {
+            HikariDataSource replica = properties.initializeDataSourceBuilder().type(HikariDataSource.class).url(url).build();
+            replica.setPoolName("replica-" + (replicas.size() + 1));
+            replica.setMaximumPoolSize(replicaPoolSize);
+            replica.setReadOnly(true);
+            // réplica injoignable : lecture sur la base principale (et mesure du retard abandonnée) sans attendre 30 s
+            replica.setConnectionTimeout(probeTimeout.toMillis());
+            replica.setMetricRegistry(meterRegistry);
+            replicas.add(replica);
+        }
+        return new ReplicaDataSource(primaryDataSource, replicas, replicaMaxLag, probeTimeout, meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, ReplicaDataSource replicaDataSource) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primaryDataSource);
+        dataSource.setReadOnlyDataSource(replicaDataSource);
+        return new DeadlineAwareDataSource(dataSource);
+    }
+
+    @Bean
+    public PlatformTransactionManager transactionManager(ReplicaDataSource replicaDataSource,
+                                                         ObjectProvider<TransactionManagerCustomizers> customizers) {
+        ReplicaAwareTransactionManager transactionManager = new ReplicaAwareTransactionManager(replicaDataSource);
+        customizers.ifAvailable(customizer -> customizer.customize(transactionManager));
+        return transactionManager;
+    }
+}
@@ -0,0 +1,34 @@
+package com.davidnhn.book.config;
+
+import com.davidnhn.book.book.BookResponseCache;
+import com.davidnhn.book.common.PageResponse;
+import com.davidnhn.book.common.SingleFlight;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.Tuple;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Regroupement des lectures simultanées des endpoints les plus sollicités (voir SingleFlight).
+ */
+@Configuration
+public class SingleFlightConfig {
+
+    @Value("${application.single-flight.max-wait}")
+    private Duration maxWait;
+
+    // GET /books/{book-id}, par id de livre (manques de BookResponseCache)
+    @Bean
+    public SingleFlight<Integer, BookResponseCache.SerializedBook> bookLoads(MeterRegistry meterRegistry) {
+        return new SingleFlight<>("book", maxWait, meterRegistry);
+    }
+
+    // GET /feedbacks/book/{book-id}, par livre, paramètres de pagination et champs demandés
+    @Bean
+    public SingleFlight<String, PageResponse<Tuple>> feedbackPageLoads(MeterRegistry meterRegistry) {
+        return new SingleFlight<>("feedback-page", maxWait, meterRegistry);
+    }
+}
@@ -0,0 +1,91 @@
+package com.davidnhn.book.datasource;
+
+import com.davidnhn.book.concurrency.RequestDeadline;
+import org.postgresql.jdbc.PgStatement;
+import org.springframework.jdbc.datasource.ConnectionProxy;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applique l'échéance de la requête HTTP (RequestDeadline) aux accès JDBC, y compris ceux de Hibernate :
+ * - échéance passée : ni connexion ni ordre SQL, RequestDeadlineExceededException ;
+ * - sinon chaque ordre SQL reçoit le temps restant comme timeout (au ms près avec le driver Postgres) : le budget
+ *   diminue d'un ordre à l'autre, et Postgres annule un ordre qui dépasse l'échéance au lieu de garder la connexion
+ *   pour un client parti.
+ *
+ * Sans échéance (jobs, tâches planifiées), rien ne change.
+ */
+public class DeadlineAwareDataSource extends DelegatingDataSource {
+
+    private static final Set<String> STATEMENT_FACTORIES = Set.of("createStatement", "prepareStatement", "prepareCall");
+
+    public DeadlineAwareDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        RequestDeadline.checkNotExpired();
+        return withDeadline(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        RequestDeadline.checkNotExpired();
+        return withDeadline(super.getConnection(username, password));
+    }
+
+    private static Connection withDeadline(Connection connection) {
+        // les connexions de LazyConnectionDataSourceProxy restent des ConnectionProxy
+        Class<?> type = connection instanceof ConnectionProxy ? ConnectionProxy.class : Connection.class;
+        return (Connection) Proxy.newProxyInstance(
+                DeadlineAwareDataSource.class.getClassLoader(),
+                new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        default:
+                            break;
+                    }
+                    boolean statementFactory = STATEMENT_FACTORIES.contains(method.getName());
+                    if (statementFactory) {
+                        // avant que LazyConnectionDataSourceProxy n'emprunte la connexion réelle
+                        RequestDeadline.checkNotExpired();
+                    }
+                    Object result;
+                    try {
+                        result = method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                    if (statementFactory) {
+                        applyTimeout((Statement) result);
+                    }
+                    return result;
+                });
+    }
+
+    private static void applyTimeout(Statement statement) throws SQLException {
+        long remainingNanos = RequestDeadline.remainingNanos();
+        if (remainingNanos == Long.MAX_VALUE) {
+            return;
+        }
+        long remainingMs = Math.max(1, TimeUnit.NANOSECONDS.toMillis(remainingNanos));
+        if (statement.isWrapperFor(PgStatement.class)) {
+            statement.unwrap(PgStatement.class).setQueryTimeoutMs(remainingMs);
+        } else {
+            statement.setQueryTimeout((int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(remainingMs + 999)));
+        }
+    }
+}
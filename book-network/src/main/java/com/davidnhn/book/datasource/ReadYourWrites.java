@@ -0,0 +1,113 @@
+package com.davidnhn.book.datasource;
+
+import com.davidnhn.book.user.User;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Lecture de ses propres écritures : après une requête d'écriture réussie (emprunt, enregistrement d'un livre...),
+ * les lectures du même utilisateur ne vont qu'aux réplicas qui ont rejoué au moins jusqu'à l'instant de cette écriture,
+ * la base principale sinon (voir ReplicaDataSource).
+ *
+ * L'instant minimal est posé pour le thread de la requête (preHandle) ; une tâche lancée sur un autre thread pour la
+ * même requête le reprend avec withRequiredPosition. Les lectures qui alimentent un cache partagé passent par onPrimary :
+ * un état lu sur un réplica en retard y resterait après l'invalidation qui l'a précédé.
+ */
+@Component
+public class ReadYourWrites implements HandlerInterceptor {
+
+    private static final ThreadLocal<Long> REQUIRED_POSITION = new ThreadLocal<>();
+
+    private final Map<Integer, Long> lastWrites = new ConcurrentHashMap<>();
+
+    @Value("${application.datasource.replica-max-lag}")
+    private Duration replicaMaxLag;
+
+    /**
+     * @return instant (ms) que le réplica doit avoir rejoué pour servir les lectures du thread courant, 0 si aucun
+     */
+    public static long requiredPosition() {
+        Long position = REQUIRED_POSITION.get();
+        return position == null ? 0 : position;
+    }
+
+    public static <T> Supplier<T> withRequiredPosition(Supplier<T> task) {
+        long position = requiredPosition();
+        return () -> withPosition(position, task);
+    }
+
+    /**
+     * Exécute task en lisant sur la base principale, à condition que la transaction n'ait pas encore ouvert sa
+     * connexion (LazyConnectionDataSourceProxy, voir DataSourceConfig).
+     */
+    public static <T> T onPrimary(Supplier<T> task) {
+        // aucun réplica ne peut avoir rejoué jusque-là
+        return withPosition(Long.MAX_VALUE, task);
+    }
+
+    // la tâche peut s'exécuter sur le thread de la requête (CallerRunsPolicy) : sa position est rétablie ensuite
+    private static <T> T withPosition(long position, Supplier<T> task) {
+        Long previous = REQUIRED_POSITION.get();
+        REQUIRED_POSITION.set(position);
+        try {
+            return task.get();
+        } finally {
+            if (previous == null) {
+                REQUIRED_POSITION.remove();
+            } else {
+                REQUIRED_POSITION.set(previous);
+            }
+        }
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        Integer userId = currentUserId();
+        Long lastWrite = userId == null ? null : lastWrites.get(userId);
+        if (lastWrite != null) {
+            REQUIRED_POSITION.set(lastWrite);
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        REQUIRED_POSITION.remove();
+        Integer userId = currentUserId();
+        if (userId != null && ex == null && response.getStatus() < 400 && !isSafe(request.getMethod())) {
+            // après la réponse, donc après le commit de la transaction d'écriture
+            lastWrites.put(userId, System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Un réplica plus en retard que replica-max-lag n'est plus utilisé : au-delà de deux fois ce délai (marge pour
+     * l'intervalle entre deux mesures du retard), tout réplica encore utilisé a rejoué l'écriture.
+     */
+    @Scheduled(fixedDelayString = "${application.datasource.lag-probe-interval}")
+    public void purgeOldWrites() {
+        long threshold = System.currentTimeMillis() - 2 * replicaMaxLag.toMillis();
+        lastWrites.values().removeIf(lastWrite -> lastWrite < threshold);
+    }
+
+    private static boolean isSafe(String method) {
+        return HttpMethod.GET.matches(method) || HttpMethod.HEAD.matches(method) || HttpMethod.OPTIONS.matches(method);
+    }
+
+    private static Integer currentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null && authentication.getPrincipal() instanceof User user ? user.getId() : null;
+    }
+}
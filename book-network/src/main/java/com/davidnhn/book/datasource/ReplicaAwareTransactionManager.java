@@ -0,0 +1,50 @@
+package com.davidnhn.book.datasource;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Les transactions read-only peuvent lire sur un réplica en retard (ReplicaDataSource) : leurs sessions Hibernate
+ * lisent le cache de second niveau mais n'y déposent rien (CacheMode.GET), sinon une entité ou un résultat de requête
+ * d'avant une écriture y reviendrait juste après son invalidation, pour toutes les instances qui le liront ensuite.
+ * Le cache n'est donc alimenté que par des lectures sur la base principale.
+ */
+public class ReplicaAwareTransactionManager extends JpaTransactionManager {
+
+    private final ReplicaDataSource replicaDataSource;
+
+    public ReplicaAwareTransactionManager(ReplicaDataSource replicaDataSource) {
+        this.replicaDataSource = replicaDataSource;
+    }
+
+    @Override
+    protected void doBegin(Object transaction, TransactionDefinition definition) {
+        super.doBegin(transaction, definition);
+        if (definition.isReadOnly() && replicaDataSource.hasReplicas()) {
+            EntityManager entityManager = currentEntityManager();
+            if (entityManager != null) {
+                entityManager.unwrap(Session.class).setCacheMode(CacheMode.GET);
+            }
+        }
+    }
+
+    @Override
+    protected void doCleanupAfterCompletion(Object transaction) {
+        // un EntityManager lié avant la transaction lui survit : mode par défaut rétabli
+        EntityManager entityManager = currentEntityManager();
+        if (entityManager != null && entityManager.isOpen()) {
+            entityManager.unwrap(Session.class).setCacheMode(CacheMode.NORMAL);
+        }
+        super.doCleanupAfterCompletion(transaction);
+    }
+
+    private EntityManager currentEntityManager() {
+        EntityManagerHolder holder = (EntityManagerHolder) TransactionSynchronizationManager.getResource(obtainEntityManagerFactory());
+        return holder == null ? null : holder.getEntityManager();
+    }
+}
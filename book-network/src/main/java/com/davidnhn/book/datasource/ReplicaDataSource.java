@@ -0,0 +1,193 @@
+package com.davidnhn.book.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Connexions des transactions en lecture seule (@Transactional(readOnly = true)) : LazyConnectionDataSourceProxy
+ * (voir DataSourceConfig) s'adresse ici quand la connexion a été marquée read-only avant sa première utilisation.
+ *
+ * Les réplicas sont pris à tour de rôle parmi ceux qui conviennent : retard mesuré inférieur à replica-max-lag et,
+ * pour un utilisateur qui vient d'écrire, rejoué au moins jusqu'à son écriture (ReadYourWrites). Sans réplica
+ * convenable, ou si l'ouverture de la connexion échoue, la lecture va à la base principale.
+ *
+ * Le retard est mesuré en positions WAL, toutes les lag-probe-interval ms : l'instant de la mesure est noté avant de
+ * lire la position courante de la base principale (pg_current_wal_lsn), donc toute transaction validée avant cet
+ * instant est à une position inférieure ou égale. Un réplica qui a rejoué (pg_last_wal_replay_lsn) jusqu'à la position
+ * d'une mesure a rejoué tout ce qui a été validé avant son instant : c'est l'instant jusqu'où il est à jour
+ * (caughtUpTo), comparé à celui d'une écriture par ReadYourWrites. Le retard est l'écart entre la dernière mesure et
+ * cet instant ; un réplica sans mesure couverte (plus en retard que l'historique gardé) ou qui n'est pas en
+ * réplication n'est pas utilisé. Les mesures durent au plus probe-timeout par réplica : la connexion d'un réplica
+ * injoignable échoue au bout du connectionTimeout de son pool (voir DataSourceConfig).
+ *
+ * Métriques : datasource.reads (tag target : nom du réplica ou primary), datasource.replica.lag ; les pools Hikari
+ * publient leurs propres métriques (hikaricp.*, tag pool).
+ */
+@Slf4j
+public class ReplicaDataSource extends AbstractDataSource implements AutoCloseable {
+
+    // positions WAL en octets ; NULL pour le réplica s'il n'est pas en réplication
+    private static final String PRIMARY_POSITION_QUERY = "SELECT pg_wal_lsn_diff(pg_current_wal_lsn(), '0/0')::bigint";
+    private static final String REPLAYED_POSITION_QUERY = "SELECT pg_wal_lsn_diff(pg_last_wal_replay_lsn(), '0/0')::bigint";
+
+    private final HikariDataSource primary;
+    private final List<Replica> replicas;
+    private final long maxLagMillis;
+    private final int probeTimeoutSeconds;
+    // mesures de la base principale sur deux fois replica-max-lag, de la plus ancienne à la plus récente
+    private final Deque<WalSample> samples = new ArrayDeque<>();
+    private final AtomicInteger next = new AtomicInteger();
+    private final Counter primaryReads;
+
+    public ReplicaDataSource(HikariDataSource primary, List<HikariDataSource> replicas, Duration maxLag,
+                             Duration probeTimeout, MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.maxLagMillis = maxLag.toMillis();
+        this.probeTimeoutSeconds = (int) Math.max(1, probeTimeout.toSeconds());
+        this.replicas = replicas.stream().map(dataSource -> new Replica(dataSource, meterRegistry)).toList();
+        this.primaryReads = Counter.builder("datasource.reads")
+                .description("Read-only connections, by target pool")
+                .tag("target", "primary")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Replica replica = choose(ReadYourWrites.requiredPosition());
+        if (replica != null) {
+            try {
+                Connection connection = replica.dataSource.getConnection();
+                replica.reads.increment();
+                return connection;
+            } catch (SQLException | RuntimeException e) {
+                // jusqu'à la prochaine mesure réussie (RuntimeException : pool qui n'a jamais pu démarrer)
+                replica.healthy = false;
+                log.warn("Replica {} unavailable, reading from primary", replica.dataSource.getPoolName(), e);
+            }
+        }
+        primaryReads.increment();
+        return primary.getConnection();
+    }
+
+    // aucun appelant (JPA, JdbcTemplate, Flyway passent par getConnection()) ; les pools Hikari le refusent aussi
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Connections use the configured credentials");
+    }
+
+    /**
+     * @return false si aucun réplica n'est configuré : toutes les lectures vont à la base principale
+     */
+    public boolean hasReplicas() {
+        return !replicas.isEmpty();
+    }
+
+    @Scheduled(fixedDelayString = "${application.datasource.lag-probe-interval}")
+    public synchronized void probeLag() {
+        if (replicas.isEmpty()) {
+            return;
+        }
+        long sampledAt = System.currentTimeMillis();
+        try (Connection connection = primary.getConnection()) {
+            samples.addLast(new WalSample(sampledAt, position(connection, PRIMARY_POSITION_QUERY)));
+        } catch (SQLException | RuntimeException e) {
+            // sans nouvelle mesure, les réplicas gardent leur dernier instant à jour et vieillissent
+            log.warn("Could not read the WAL position of the primary", e);
+        }
+        while (samples.size() > 1 && samples.peekFirst().at() < sampledAt - 2 * maxLagMillis) {
+            samples.removeFirst();
+        }
+
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.dataSource.getConnection()) {
+                Long replayed = position(connection, REPLAYED_POSITION_QUERY);
+                if (replayed == null) {
+                    throw new IllegalStateException("not a streaming replica (pg_last_wal_replay_lsn() is null)");
+                }
+                Iterator<WalSample> newestFirst = samples.descendingIterator();
+                while (newestFirst.hasNext()) {
+                    WalSample sample = newestFirst.next();
+                    if (sample.position() <= replayed) {
+                        replica.caughtUpTo = Math.max(replica.caughtUpTo, sample.at());
+                        break;
+                    }
+                }
+                replica.lagMillis = sampledAt - replica.caughtUpTo;
+                replica.healthy = replica.lagMillis <= maxLagMillis;
+            } catch (SQLException | RuntimeException e) {
+                replica.healthy = false;
+                log.warn("Could not measure lag of replica {}", replica.dataSource.getPoolName(), e);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        replicas.forEach(replica -> replica.dataSource.close());
+    }
+
+    private Replica choose(long requiredPosition) {
+        int size = replicas.size();
+        int start = Math.floorMod(next.getAndIncrement(), Math.max(size, 1));
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (replica.healthy && replica.caughtUpTo >= requiredPosition) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    private Long position(Connection connection, String query) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.setQueryTimeout(probeTimeoutSeconds);
+            try (ResultSet rs = statement.executeQuery(query)) {
+                rs.next();
+                long position = rs.getLong(1);
+                return rs.wasNull() ? null : position;
+            }
+        }
+    }
+
+    private record WalSample(long at, long position) {
+    }
+
+    private static final class Replica {
+
+        private final HikariDataSource dataSource;
+        private final Counter reads;
+        // pas de lecture avant la première mesure
+        private volatile boolean healthy;
+        private volatile long caughtUpTo;
+        private volatile long lagMillis;
+
+        private Replica(HikariDataSource dataSource, MeterRegistry meterRegistry) {
+            this.dataSource = dataSource;
+            this.reads = Counter.builder("datasource.reads")
+                    .description("Read-only connections, by target pool")
+                    .tag("target", dataSource.getPoolName())
+                    .register(meterRegistry);
+            Gauge.builder("datasource.replica.lag", this, replica -> replica.lagMillis)
+                    .description("Replication lag measured on the replica (ms)")
+                    .tag("replica", dataSource.getPoolName())
+                    .register(meterRegistry);
+        }
+    }
+}
@@ -12,6 +12,7 @@ import org.thymeleaf.spring6.SpringTemplateEngine;
 
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @Service
@@ -78,4 +79,31 @@ public class EmailService {
         mailSender.send(mimeMessage);
     }
 
+    /**
+     * Un seul rappel par emprunteur, listant tous ses livres en retard.
+     */
+    @Async
+    public void sendOverdueLoansReminder(
+            String to,
+            String username,
+            List<String> bookTitles
+    ) throws MessagingException {
+        MimeMessage mimeMessage = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(
+                mimeMessage,
+                MimeMessageHelper.MULTIPART_MODE_MIXED,
+                StandardCharsets.UTF_8.name()
+        );
+
+        Context context = new Context();
+        context.setVariable("username", username);
+        context.setVariable("bookTitles", bookTitles);
+
+        helper.setFrom("contact@booksocialnetwork.com");
+        helper.setTo(to);
+        helper.setSubject("Overdue books");
+        helper.setText(templateEngine.process(EmailTemplate.OVERDUE_LOANS.getName(), context), true);
+        mailSender.send(mimeMessage);
+    }
+
 }
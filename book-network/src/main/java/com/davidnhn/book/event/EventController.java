@@ -0,0 +1,27 @@
+package com.davidnhn.book.event;
+
+import com.davidnhn.book.user.User;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("events")
+@RequiredArgsConstructor
+@Tag(name = "Event")
+public class EventController {
+
+    private final EventStreamService service;
+
+    // flux SSE des emprunts/retours concernant l'utilisateur connecté (remplace le polling de /books/borrowed et /books/returned)
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamEvents(Authentication connectedUser) {
+        User user = ((User) connectedUser.getPrincipal());
+        return service.subscribe(user.getId());
+    }
+}
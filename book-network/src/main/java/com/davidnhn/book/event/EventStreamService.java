@@ -0,0 +1,186 @@
+package com.davidnhn.book.event;
+
+import com.davidnhn.book.history.LoanEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Diffuse les événements d'emprunt aux connexions SSE ouvertes par le propriétaire et l'emprunteur.
+ *
+ * Les connexions sont des requêtes asynchrones : une connexion inactive ne consomme aucun thread.
+ * Les envois passent par un petit pool partagé ; chaque connexion a un tampon borné et un client trop lent
+ * (tampon plein) est déconnecté plutôt que de retenir la mémoire ou le pool.
+ *
+ * Un envoi est une écriture bloquante : un client qui ne lit plus bloque son thread jusqu'au délai d'écriture du
+ * serveur. Un envoi qui dure plus de send-timeout déconnecte le client (evictStalledConsumers), et un thread
+ * supplémentaire remplace celui qui reste bloqué (au plus max-extra-threads), pour que quelques clients bloqués
+ * ne retiennent pas les événements de tous les autres.
+ */
+@Service
+@Slf4j
+public class EventStreamService {
+
+    private final Map<Integer, Set<EventSubscription>> subscriptions = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor dispatcher;
+    private final int dispatcherThreads;
+    // envois déclarés bloqués et pas encore terminés : autant de threads ajoutés au pool (au plus max-extra-threads)
+    private int stalledSends;
+
+    @Value("${application.events.buffer-size}")
+    private int bufferSize;
+
+    @Value("${application.events.emitter-timeout}")
+    private long emitterTimeout;
+
+    @Value("${application.events.send-timeout}")
+    private long sendTimeout;
+
+    @Value("${application.events.max-extra-threads}")
+    private int maxExtraThreads;
+
+    public EventStreamService(@Value("${application.events.dispatcher-threads}") int dispatcherThreads) {
+        this.dispatcherThreads = dispatcherThreads;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.dispatcher = new ThreadPoolExecutor(dispatcherThreads, dispatcherThreads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "sse-dispatcher-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    public SseEmitter subscribe(Integer userId) {
+        SseEmitter emitter = new SseEmitter(emitterTimeout);
+        EventSubscription subscription = new EventSubscription(userId, emitter, bufferSize, () -> stalledSendsChanged(-1));
+
+        emitter.onCompletion(() -> remove(subscription));
+        emitter.onTimeout(() -> remove(subscription));
+        emitter.onError(error -> remove(subscription));
+
+        subscriptions.computeIfAbsent(userId, id -> ConcurrentHashMap.newKeySet()).add(subscription);
+        return emitter;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLoanEvent(LoanEvent event) {
+        publish(event.ownerId(), event.type().name(), event);
+        if (!Objects.equals(event.ownerId(), event.borrowerId())) {
+            publish(event.borrowerId(), event.type().name(), event);
+        }
+    }
+
+    /**
+     * Envoie un événement nommé à toutes les connexions ouvertes d'un utilisateur.
+     */
+    public void publish(Integer userId, String name, Object data) {
+        Set<EventSubscription> userSubscriptions = subscriptions.get(userId);
+        if (userSubscriptions == null) {
+            return;
+        }
+        userSubscriptions.forEach(subscription -> enqueue(subscription, new EventSubscription.PendingEvent(name, data)));
+    }
+
+    /**
+     * Les commentaires SSE périodiques empêchent les proxys de couper les connexions inactives
+     * et détectent les clients partis.
+     */
+    @Scheduled(fixedRateString = "${application.events.heartbeat-interval}")
+    public void sendHeartbeats() {
+        subscriptions.values().forEach(userSubscriptions ->
+                userSubscriptions.forEach(subscription -> enqueue(subscription, EventSubscription.PendingEvent.heartbeat()))
+        );
+    }
+
+    @Scheduled(fixedDelayString = "${application.events.stall-check-interval}")
+    public void evictStalledConsumers() {
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeout);
+        subscriptions.values().forEach(userSubscriptions -> userSubscriptions.forEach(subscription -> {
+            if (subscription.markStalled(timeoutNanos)) {
+                log.info("Evicting stalled SSE consumer for user {}", subscription.getUserId());
+                stalledSendsChanged(1);
+                evict(subscription);
+            }
+        }));
+    }
+
+    public int getOpenConnections() {
+        return subscriptions.values().stream().mapToInt(Set::size).sum();
+    }
+
+    private void enqueue(EventSubscription subscription, EventSubscription.PendingEvent event) {
+        if (!subscription.offer(event)) {
+            if (!subscription.isClosed()) {
+                log.info("Evicting slow SSE consumer for user {}", subscription.getUserId());
+                evict(subscription);
+            }
+            return;
+        }
+        if (subscription.tryStartDrain()) {
+            dispatcher.execute(() -> drain(subscription));
+        }
+    }
+
+    private void drain(EventSubscription subscription) {
+        try {
+            subscription.drain();
+        } catch (IOException | IllegalStateException e) {
+            log.debug("SSE connection of user {} is gone", subscription.getUserId());
+            evict(subscription);
+            return;
+        }
+        // un événement a pu arriver entre la fin de la boucle et la libération du drapeau
+        if (subscription.hasPendingEvents() && subscription.tryStartDrain()) {
+            dispatcher.execute(() -> drain(subscription));
+        }
+    }
+
+    private synchronized void stalledSendsChanged(int delta) {
+        stalledSends += delta;
+        int size = dispatcherThreads + Math.min(stalledSends, maxExtraThreads);
+        // le maximum ne peut jamais passer sous le nombre de threads de base
+        if (size > dispatcher.getMaximumPoolSize()) {
+            dispatcher.setMaximumPoolSize(size);
+            dispatcher.setCorePoolSize(size);
+        } else if (size < dispatcher.getCorePoolSize()) {
+            dispatcher.setCorePoolSize(size);
+            dispatcher.setMaximumPoolSize(size);
+        }
+    }
+
+    private void evict(EventSubscription subscription) {
+        remove(subscription);
+        subscription.getEmitter().complete();
+    }
+
+    private void remove(EventSubscription subscription) {
+        subscription.close();
+        subscriptions.computeIfPresent(subscription.getUserId(), (userId, userSubscriptions) -> {
+            userSubscriptions.remove(subscription);
+            return userSubscriptions.isEmpty() ? null : userSubscriptions;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscriptions.values().forEach(userSubscriptions ->
+                userSubscriptions.forEach(subscription -> subscription.getEmitter().complete())
+        );
+        dispatcher.shutdown();
+    }
+}
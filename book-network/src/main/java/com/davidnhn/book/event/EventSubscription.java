@@ -0,0 +1,117 @@
+package com.davidnhn.book.event;
+
+import lombok.Getter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Une connexion SSE ouverte : l'emitter (requête asynchrone, aucun thread n'est bloqué tant qu'elle est inactive)
+ * et un tampon borné des événements en attente d'envoi.
+ */
+class EventSubscription {
+
+    // instants mesurés depuis ORIGIN (System.nanoTime() peut être négatif) : toujours strictement positifs
+    private static final long ORIGIN = System.nanoTime();
+    private static final long NOT_SENDING = 0;
+    private static final long STALLED = -1;
+
+    @Getter
+    private final Integer userId;
+    @Getter
+    private final SseEmitter emitter;
+    private final BlockingQueue<PendingEvent> buffer;
+    private final AtomicBoolean draining = new AtomicBoolean(false);
+    // début de l'envoi en cours, NOT_SENDING entre deux envois, STALLED s'il est déclaré bloqué
+    private final AtomicLong sendStartedAt = new AtomicLong(NOT_SENDING);
+    private final Runnable onStalledSendEnd;
+    private volatile boolean closed;
+
+    /**
+     * @param onStalledSendEnd appelé par le thread d'envoi quand un envoi déclaré bloqué (markStalled) se termine
+     */
+    EventSubscription(Integer userId, SseEmitter emitter, int bufferSize, Runnable onStalledSendEnd) {
+        this.userId = userId;
+        this.emitter = emitter;
+        this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        this.onStalledSendEnd = onStalledSendEnd;
+    }
+
+    /**
+     * @return false si le tampon est plein : le client ne lit pas assez vite.
+     */
+    boolean offer(PendingEvent event) {
+        return !closed && buffer.offer(event);
+    }
+
+    /**
+     * Un seul thread vide le tampon d'une connexion à la fois.
+     */
+    boolean tryStartDrain() {
+        return !closed && draining.compareAndSet(false, true);
+    }
+
+    void drain() throws IOException {
+        try {
+            PendingEvent event;
+            while (!closed && (event = buffer.poll()) != null) {
+                sendStartedAt.set(now());
+                emitter.send(event.toSseEvent());
+                endSend();
+            }
+        } finally {
+            endSend();
+            draining.set(false);
+        }
+    }
+
+    /**
+     * @return true si l'envoi en cours a commencé il y a plus de timeoutNanos : le client ne lit plus. Une seule fois
+     * par envoi ; onStalledSendEnd sera appelé à sa fin.
+     */
+    boolean markStalled(long timeoutNanos) {
+        long startedAt = sendStartedAt.get();
+        return startedAt > NOT_SENDING && now() - startedAt > timeoutNanos && sendStartedAt.compareAndSet(startedAt, STALLED);
+    }
+
+    private static long now() {
+        return System.nanoTime() - ORIGIN + 1;
+    }
+
+    private void endSend() {
+        if (sendStartedAt.getAndSet(NOT_SENDING) == STALLED) {
+            onStalledSendEnd.run();
+        }
+    }
+
+    boolean hasPendingEvents() {
+        return !buffer.isEmpty();
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    void close() {
+        closed = true;
+        buffer.clear();
+    }
+
+    record PendingEvent(String name, Object data) {
+
+        static PendingEvent heartbeat() {
+            return new PendingEvent(null, null);
+        }
+
+        SseEmitter.SseEventBuilder toSseEvent() {
+            if (name == null) {
+                return SseEmitter.event().comment("heartbeat");
+            }
+            return SseEmitter.event().name(name).data(data);
+        }
+    }
+}
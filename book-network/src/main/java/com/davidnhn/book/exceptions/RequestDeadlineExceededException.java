@@ -0,0 +1,7 @@
+package com.davidnhn.book.exceptions;
+
+public class RequestDeadlineExceededException extends RuntimeException {
+    public RequestDeadlineExceededException(String msg) {
+        super(msg);
+    }
+}
@@ -1,12 +1,17 @@
 package com.davidnhn.book.feedback;
 
 import com.davidnhn.book.common.PageResponse;
+import com.davidnhn.book.common.PaginationMode;
+import com.davidnhn.book.common.ResourceVersion;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 @RequiredArgsConstructor
 @RestController
@@ -29,9 +34,17 @@ public class FeedbackController {
             @PathVariable("book-id") Integer bookId,
             @RequestParam(name = "page", defaultValue = "0", required = false) int page,
             @RequestParam(name = "size", defaultValue = "0", required = false) int size,
-            Authentication connectedUser
+            @RequestParam(name = "mode", defaultValue = "EXACT", required = false) PaginationMode mode,
+            @RequestParam(name = "fields", required = false) String fields,
+            Authentication connectedUser,
+            WebRequest request
     ) {
-        return ResponseEntity.ok(service.findAllFeedbacksByBook(bookId, page, size, connectedUser));
+        return service.findAllFeedbacksByBook(bookId, page, size, mode, fields, connectedUser, ResourceVersion.notModified(request))
+                .map(feedbacks -> ResponseEntity.ok()
+                        .cacheControl(CacheControl.noCache().cachePrivate())
+                        .varyBy(HttpHeaders.ACCEPT) // l'ETag dépend du format (voir ResourceVersion.notModified)
+                        .body(feedbacks))
+                .orElse(null); // 304 : statut et en-têtes déjà positionnés par checkNotModified
     }
 
 
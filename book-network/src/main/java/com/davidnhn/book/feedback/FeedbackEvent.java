@@ -0,0 +1,14 @@
+package com.davidnhn.book.feedback;
+
+/**
+ * Publié par FeedbackService lorsqu'un lecteur laisse un avis sur un livre.
+ */
+public record FeedbackEvent(
+        Integer feedbackId,
+        Integer bookId,
+        String bookTitle,
+        Integer ownerId,
+        Integer authorId,
+        Double note
+) {
+}
@@ -0,0 +1,33 @@
+package com.davidnhn.book.feedback;
+
+import com.davidnhn.book.common.SelectableField;
+
+import java.util.List;
+
+/**
+ * Champs de FeedbackResponse demandables avec fields= ; alias "feedback".
+ */
+public enum FeedbackField implements SelectableField {
+
+    NOTE("note", "feedback.note AS note"),
+    COMMENT("comment", "feedback.comment AS comment"),
+    OWN_FEEDBACK("ownFeedback", "feedback.createdBy AS createdBy");
+
+    private final String fieldName;
+    private final List<String> selections;
+
+    FeedbackField(String fieldName, String... selections) {
+        this.fieldName = fieldName;
+        this.selections = List.of(selections);
+    }
+
+    @Override
+    public String fieldName() {
+        return fieldName;
+    }
+
+    @Override
+    public List<String> selections() {
+        return selections;
+    }
+}
@@ -1,9 +1,11 @@
 package com.davidnhn.book.feedback;
 
 import com.davidnhn.book.book.Book;
+import jakarta.persistence.Tuple;
 import org.springframework.stereotype.Service;
 
 import java.util.Objects;
+import java.util.Set;
 
 @Service
 public class FeedbackMapper {
@@ -32,4 +34,19 @@ public class FeedbackMapper {
                 .ownFeedback(Objects.equals(feedback.getCreatedBy(), id))
                 .build();
     }
+
+    // ligne lue par projection (fields=) : seuls les champs demandés sont remplis
+    public FeedbackResponse toFeedbackResponse(Tuple row, Set<FeedbackField> fields, Integer id) {
+        FeedbackResponse.FeedbackResponseBuilder response = FeedbackResponse.builder();
+        if (fields.contains(FeedbackField.NOTE)) {
+            response.note(row.get("note", Double.class));
+        }
+        if (fields.contains(FeedbackField.COMMENT)) {
+            response.comment(row.get("comment", String.class));
+        }
+        if (fields.contains(FeedbackField.OWN_FEEDBACK)) {
+            response.ownFeedback(Objects.equals(row.get("createdBy", Integer.class), id));
+        }
+        return response.build();
+    }
 }
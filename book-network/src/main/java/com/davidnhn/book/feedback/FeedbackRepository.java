@@ -1,19 +1,26 @@
 package com.davidnhn.book.feedback;
 
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
+// les pages de feedbacks d'un livre sont lues par projection (FeedbackService.findAllFeedbacksByBook)
 @Repository
 public interface FeedbackRepository extends JpaRepository<Feedback, Integer> {
+
+    // GET /sync : feedbacks de l'auteur créés ou modifiés dans ]since, until] (index idx_feedback_author_changed)
     @Query("""
            SELECT feedback
            FROM Feedback feedback
-           WHERE feedback.book.id = :bookId
-           
+           WHERE feedback.createdBy = :userId
+           AND COALESCE(feedback.lastModifiedDate, feedback.createdDate) > :since
+           AND COALESCE(feedback.lastModifiedDate, feedback.createdDate) <= :until
            """)
-    Page<Feedback> findAllByBookId(@Param("bookId") Integer bookId, Pageable pageable);
+    List<Feedback> findChangedFeedbacks(@Param("userId") Integer userId,
+                                        @Param("since") LocalDateTime since,
+                                        @Param("until") LocalDateTime until);
 }
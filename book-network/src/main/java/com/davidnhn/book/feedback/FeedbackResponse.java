@@ -1,5 +1,6 @@
 package com.davidnhn.book.feedback;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.*;
 
 @Getter
@@ -7,9 +8,10 @@ import lombok.*;
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
+@JsonInclude(JsonInclude.Include.NON_NULL) // champs non demandés (fields=) absents du JSON
 public class FeedbackResponse {
 
     private  Double note;
     private String comment;
-    private boolean ownFeedback;
+    private Boolean ownFeedback;
 }
@@ -1,31 +1,61 @@
 package com.davidnhn.book.feedback;
 
 import com.davidnhn.book.book.Book;
+import com.davidnhn.book.book.BookRanking;
 import com.davidnhn.book.book.BookRepository;
+import com.davidnhn.book.book.BookResponseCache;
+import com.davidnhn.book.common.FieldSelection;
 import com.davidnhn.book.common.PageResponse;
+import com.davidnhn.book.common.PaginationMode;
+import com.davidnhn.book.common.Paginator;
+import com.davidnhn.book.common.ProjectionQuery;
+import com.davidnhn.book.common.Projections;
+import com.davidnhn.book.common.ResourceVersion;
+import com.davidnhn.book.common.SingleFlight;
 import com.davidnhn.book.exceptions.OperationNotPermittedException;
 import com.davidnhn.book.user.User;
 import jakarta.persistence.EntityNotFoundException;
+import jakarta.persistence.Tuple;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Predicate;
 
 @RequiredArgsConstructor
 @Service
 public class FeedbackService {
 
+    // toujours lues : id, version et dates entrent dans l'ETag de la page
+    private static final List<String> VERSION_SELECTIONS = List.of(
+            "feedback.id AS id", "feedback.version AS version",
+            "feedback.createdDate AS createdDate", "feedback.lastModifiedDate AS lastModifiedDate");
+
     private final BookRepository bookRepository;
     private final FeedbackMapper feedbackMapper;
     private final FeedbackRepository feedbackRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final BookRanking bookRanking;
+    private final Paginator paginator;
+    private final BookResponseCache bookResponseCache;
+    private final SingleFlight<String, PageResponse<Tuple>> feedbackPageLoads;
+    private final Projections projections;
 
+    @Transactional
     public Integer save(FeedbackRequest request, Authentication connectedUser) {
-        Book book = bookRepository.findById(request.bookId())
+        // verrouillé dès la lecture : les compteurs d'avis sont incrémentés sur l'entité
+        Book book = bookRepository.findByIdForUpdate(request.bookId())
                 .orElseThrow(()-> new EntityNotFoundException("Book not found with id " + request.bookId()));
 
         if(book.isArchived() || !book.isShareable()) {
@@ -38,28 +68,63 @@ public class FeedbackService {
         }
 
         Feedback feedback = feedbackMapper.toFeedback(request);
-        return feedbackRepository.save(feedback).getId();
+        Integer feedbackId = feedbackRepository.save(feedback).getId();
+        if (request.note() != null) {
+            bookRanking.apply(book, book.getFeedbackCount() + 1, book.getNoteSum() + request.note());
+            bookResponseCache.evictAfterCommit(book.getId()); // la note moyenne fait partie de la réponse
+        }
+        eventPublisher.publishEvent(new FeedbackEvent(
+                feedbackId, book.getId(), book.getTitle(), book.getOwner().getId(), user.getId(), request.note()
+        ));
+        return feedbackId;
 
     }
 
-    public PageResponse<FeedbackResponse> findAllFeedbacksByBook(Integer bookId, int page, int size, Authentication connectedUser) {
+    /**
+     * Feedbacks lus par projection (voir Projections) : seules les colonnes des champs demandés sont lues,
+     * sans la jointure sur le livre et son propriétaire qu'impose le chargement des entités Feedback.
+     *
+     * @param fields      champs demandés (voir FeedbackField), tous si absent
+     * @param notModified appelé avec les validateurs de la page avant le mapping ; true si le client l'a déjà
+     * @return vide si notModified a répondu true (304)
+     */
+    @Transactional(readOnly = true)
+    public Optional<PageResponse<FeedbackResponse>> findAllFeedbacksByBook(Integer bookId, int page, int size, PaginationMode mode,
+                                                                           String fields, Authentication connectedUser,
+                                                                           Predicate<ResourceVersion> notModified) {
         Pageable pageable = PageRequest.of(page,size);
         User user = ((User) connectedUser.getPrincipal());
-        Page<Feedback> feedbacks = feedbackRepository.findAllByBookId(bookId, pageable);
-
-        List<FeedbackResponse> feedbackResponses = feedbacks.stream()
-                .map(feedback -> feedbackMapper.toFeedbackResponse(feedback,user.getId()))
-                .toList();
+        Set<FeedbackField> selected = FieldSelection.parse(fields, FeedbackField.class);
+        List<String> selections = new ArrayList<>(VERSION_SELECTIONS);
+        selections.addAll(FieldSelection.selections(selected));
+        ProjectionQuery query = new ProjectionQuery("Feedback feedback", "feedback.book.id = :bookId",
+                "feedback.createdDate DESC, feedback.id DESC", Map.of("bookId", bookId));
 
-        return new PageResponse<>(
-                feedbackResponses,
-                feedbacks.getNumber(),
-                feedbacks.getSize(),
-                feedbacks.getTotalPages(),
-                feedbacks.getTotalElements(),
-                feedbacks.isFirst(),
-                feedbacks.isLast()
-        );
+        // la page lue ne dépend pas de l'utilisateur : les requêtes simultanées identiques partagent la lecture
+        PageResponse<Tuple> feedbacks = feedbackPageLoads.execute(bookId + ":" + page + ":" + size + ":" + mode + ":" + selected,
+                () -> paginator.fetchEntities(mode, pageable, "feedbacks.book:" + bookId,
+                        p -> projections.page(query, selections, p),
+                        p -> projections.slice(query, selections, p)));
 
+        ResourceVersion.Builder version = ResourceVersion.builder()
+                .add(selected.toString())
+                .add(feedbacks.getMode().name())
+                .add(feedbacks.getNumber())
+                .add(feedbacks.getSize())
+                .add(feedbacks.getTotalElements())
+                .add(feedbacks.isHasNext() ? 1 : 0);
+        if (selected.contains(FeedbackField.OWN_FEEDBACK)) {
+            // ownFeedback dépend de l'utilisateur connecté : son id fait alors partie de l'ETag
+            version.add(user.getId());
+        }
+        feedbacks.getContent().forEach(row -> version.add(
+                row.get("id", Integer.class),
+                row.get("version", Long.class),
+                row.get("createdDate", LocalDateTime.class),
+                row.get("lastModifiedDate", LocalDateTime.class)));
+        if (notModified.test(version.build())) {
+            return Optional.empty();
+        }
+        return Optional.of(feedbacks.map(row -> feedbackMapper.toFeedbackResponse(row, selected, user.getId())));
     }
 }
@@ -0,0 +1,16 @@
+package com.davidnhn.book.follow;
+
+/**
+ * Livre d'un fil d'actualité, ordonné par shareSequence (Book.shareSequence : ordre de partage, pas de création).
+ */
+public record FeedEntry(Integer bookId, Integer shareSequence) {
+
+    // gardé dans un LongRingBuffer : l'ordre des long est celui des shareSequence
+    long encode() {
+        return ((long) shareSequence << 32) | (bookId & 0xFFFFFFFFL);
+    }
+
+    static FeedEntry decode(long value) {
+        return new FeedEntry((int) value, (int) (value >>> 32));
+    }
+}
@@ -0,0 +1,231 @@
+package com.davidnhn.book.follow;
+
+import com.davidnhn.book.common.LongRingBuffer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntFunction;
+
+/**
+ * Fils d'actualité en mémoire, avec un fan-out hybride.
+ *
+ * Propriétaire "normal" : à chaque livre partagé, l'entrée (livre, ordre de partage) est poussée dans le fil
+ * (LongRingBuffer borné) de chaque abonné dont le fil est chargé. Propriétaire "célèbre" (beaucoup d'abonnés) : rien
+ * n'est poussé, ses derniers livres sont gardés dans un seul tampon et fusionnés à la lecture avec le fil de chaque
+ * abonné. Une lecture coûte donc O(capacité x (1 + nombre de célébrités suivies)), quel que soit le nombre d'abonnés.
+ *
+ * Les fils sont triés par Book.shareSequence, attribuée par la base à chaque partage : un ancien livre partagé
+ * aujourd'hui apparaît en tête. Ils ne sont chargés qu'à la première lecture (FollowService.findFeed) et oubliés
+ * après idle-timeout sans lecture : seuls les utilisateurs actifs occupent de la mémoire.
+ */
+@Component
+@Slf4j
+class FeedTimelines {
+
+    private final int capacity;
+    private final Map<Integer, Timeline> timelines = new ConcurrentHashMap<>();
+    private final Map<Integer, LongRingBuffer> celebrityBooks = new ConcurrentHashMap<>();
+    private final Set<Integer> celebrities = ConcurrentHashMap.newKeySet();
+
+    @Value("${application.feed.idle-timeout}")
+    private Duration idleTimeout;
+
+    FeedTimelines(@Value("${application.feed.timeline-capacity}") int capacity) {
+        this.capacity = capacity;
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    boolean isCelebrity(int ownerId) {
+        return celebrities.contains(ownerId);
+    }
+
+    /**
+     * @return aucun fil ni tampon de célébrité chargé : les modifications n'ont rien à mettre à jour
+     */
+    boolean isEmpty() {
+        return timelines.isEmpty() && celebrityBooks.isEmpty();
+    }
+
+    /**
+     * Passe un propriétaire en mode "pull" ; ses abonnés déjà chargés le lisent désormais à la lecture.
+     */
+    void promote(int ownerId, Collection<Integer> followerIds) {
+        if (celebrities.add(ownerId)) {
+            followerIds.forEach(followerId -> followCelebrity(followerId, ownerId));
+        }
+    }
+
+    Timeline timeline(int userId) {
+        return timelines.get(userId);
+    }
+
+    /**
+     * @param recentBooks       livres des propriétaires suivis, du plus récent au plus ancien partage
+     * @param followedOwnerIds  tous les propriétaires suivis (seules les célébrités sont retenues)
+     */
+    Timeline load(int userId, List<FeedEntry> recentBooks, Collection<Integer> followedOwnerIds) {
+        Timeline timeline = new Timeline(capacity);
+        for (int i = recentBooks.size() - 1; i >= 0; i--) {
+            timeline.books.add(recentBooks.get(i).encode());
+        }
+        timeline.celebrities = followedOwnerIds.stream()
+                .filter(celebrities::contains)
+                .mapToInt(Integer::intValue)
+                .toArray();
+        Timeline existing = timelines.putIfAbsent(userId, timeline);
+        return existing != null ? existing : timeline;
+    }
+
+    void push(Collection<Integer> followerIds, FeedEntry entry) {
+        long value = entry.encode();
+        followerIds.forEach(followerId -> {
+            Timeline timeline = timelines.get(followerId);
+            if (timeline != null) {
+                timeline.books.offer(value);
+            }
+        });
+    }
+
+    void push(int followerId, FeedEntry entry) {
+        Timeline timeline = timelines.get(followerId);
+        if (timeline != null) {
+            timeline.books.offer(entry.encode());
+        }
+    }
+
+    void publishCelebrityBook(int ownerId, FeedEntry entry) {
+        LongRingBuffer books = celebrityBooks.get(ownerId);
+        if (books != null) {
+            books.offer(entry.encode());
+        }
+    }
+
+    void followCelebrity(int followerId, int ownerId) {
+        Timeline timeline = timelines.get(followerId);
+        if (timeline != null) {
+            timeline.addCelebrity(ownerId);
+        }
+    }
+
+    void unfollow(int followerId, int ownerId) {
+        Timeline timeline = timelines.get(followerId);
+        if (timeline != null) {
+            timeline.removeCelebrity(ownerId);
+        }
+    }
+
+    /**
+     * Oublie tous les fils et tampons (notifications d'autres instances perdues) ; ils seront rechargés à la
+     * prochaine lecture. Les célébrités sont gardées.
+     */
+    void clear() {
+        timelines.clear();
+        celebrityBooks.clear();
+    }
+
+    @Scheduled(fixedDelayString = "${application.feed.eviction-interval}")
+    public void evictIdleTimelines() {
+        int evicted = evictReadBefore(System.currentTimeMillis() - idleTimeout.toMillis());
+        if (evicted > 0) {
+            log.debug("{} idle feed timelines evicted", evicted);
+        }
+    }
+
+    int evictReadBefore(long millis) {
+        int before = timelines.size();
+        timelines.values().removeIf(timeline -> timeline.lastRead < millis);
+        // tampons qu'aucun fil restant ne lit ; rechargés à la prochaine lecture d'un abonné
+        Set<Integer> followed = new HashSet<>();
+        timelines.values().forEach(timeline -> Arrays.stream(timeline.celebrities).forEach(followed::add));
+        celebrityBooks.keySet().retainAll(followed);
+        return before - timelines.size();
+    }
+
+    /**
+     * Fusionne le fil de l'utilisateur et les tampons des célébrités suivies : entrées partagées avant
+     * beforeSequence, du plus récent au plus ancien partage. Un livre repartagé n'apparaît qu'à son dernier partage,
+     * y compris sur les pages suivantes.
+     *
+     * @param celebrityLoader derniers livres d'une célébrité, appelé si son tampon n'est pas encore chargé
+     */
+    List<FeedEntry> read(Timeline timeline, int beforeSequence, int limit, IntFunction<List<FeedEntry>> celebrityLoader) {
+        timeline.lastRead = System.currentTimeMillis();
+        long[] own = timeline.books.toArray();
+        int[] followed = timeline.celebrities;
+        long[][] sources = new long[followed.length + 1][];
+        sources[0] = own;
+        int total = own.length;
+        for (int i = 0; i < followed.length; i++) {
+            sources[i + 1] = celebrityBooks(followed[i], celebrityLoader).toArray();
+            total += sources[i + 1].length;
+        }
+
+        long[] candidates = new long[total];
+        int count = 0;
+        for (long[] source : sources) {
+            System.arraycopy(source, 0, candidates, count, source.length);
+            count += source.length;
+        }
+        Arrays.sort(candidates);
+
+        List<FeedEntry> result = new ArrayList<>(Math.min(limit, count));
+        Set<Integer> seen = new HashSet<>();
+        for (int i = count - 1; i >= 0 && result.size() < limit; i--) {
+            FeedEntry entry = FeedEntry.decode(candidates[i]);
+            // parcours complet depuis le début : un partage plus récent masque aussi ceux des pages suivantes
+            if (seen.add(entry.bookId()) && entry.shareSequence() < beforeSequence) {
+                result.add(entry);
+            }
+        }
+        return result;
+    }
+
+    private LongRingBuffer celebrityBooks(int ownerId, IntFunction<List<FeedEntry>> loader) {
+        return celebrityBooks.computeIfAbsent(ownerId, id -> {
+            LongRingBuffer books = new LongRingBuffer(capacity);
+            List<FeedEntry> recent = loader.apply(id);
+            for (int i = recent.size() - 1; i >= 0; i--) {
+                books.add(recent.get(i).encode());
+            }
+            return books;
+        });
+    }
+
+    static final class Timeline {
+
+        final LongRingBuffer books;
+        // célébrités suivies, remplacé en entier à chaque modification (lu sans verrou)
+        volatile int[] celebrities = new int[0];
+        volatile long lastRead = System.currentTimeMillis();
+
+        private Timeline(int capacity) {
+            this.books = new LongRingBuffer(capacity);
+        }
+
+        synchronized void addCelebrity(int ownerId) {
+            if (Arrays.stream(celebrities).noneMatch(id -> id == ownerId)) {
+                int[] updated = Arrays.copyOf(celebrities, celebrities.length + 1);
+                updated[celebrities.length] = ownerId;
+                celebrities = updated;
+            }
+        }
+
+        synchronized void removeCelebrity(int ownerId) {
+            celebrities = Arrays.stream(celebrities).filter(id -> id != ownerId).toArray();
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.davidnhn.book.follow;
+
+import com.davidnhn.book.user.User;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(
+        name = "uk_follow_follower_followed",
+        columnNames = {"follower_id", "followed_id"}
+))
+public class Follow {
+
+    @Id
+    @GeneratedValue
+    private Integer id;
+
+    @ManyToOne
+    @JoinColumn(name = "follower_id", nullable = false)
+    private User follower;
+
+    @ManyToOne
+    @JoinColumn(name = "followed_id", nullable = false)
+    private User followed; // propriétaire suivi
+
+    @Column(nullable = false)
+    private LocalDateTime createdDate;
+}
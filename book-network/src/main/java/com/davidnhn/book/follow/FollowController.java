@@ -0,0 +1,43 @@
+package com.davidnhn.book.follow;
+
+import com.davidnhn.book.book.BookResponse;
+import com.davidnhn.book.common.CursorResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequiredArgsConstructor
+@Tag(name = "Follow")
+public class FollowController {
+
+    private final FollowService service;
+
+    @PostMapping("/users/{user-id}/follow")
+    public ResponseEntity<Integer> followUser(
+            @PathVariable("user-id") Integer userId,
+            Authentication connectedUser
+    ) {
+        return ResponseEntity.ok(service.follow(userId, connectedUser));
+    }
+
+    @DeleteMapping("/users/{user-id}/follow")
+    public ResponseEntity<Integer> unfollowUser(
+            @PathVariable("user-id") Integer userId,
+            Authentication connectedUser
+    ) {
+        return ResponseEntity.ok(service.unfollow(userId, connectedUser));
+    }
+
+    // livres nouvellement partagés par les propriétaires suivis, du plus récent au plus ancien
+    @GetMapping("/feed")
+    public ResponseEntity<CursorResponse<BookResponse>> findFeed(
+            @RequestParam(name = "cursor", required = false) Integer cursor,
+            @RequestParam(name = "size", defaultValue = "20", required = false) int size,
+            Authentication connectedUser
+    ) {
+        return ResponseEntity.ok(service.findFeed(cursor, size, connectedUser));
+    }
+}
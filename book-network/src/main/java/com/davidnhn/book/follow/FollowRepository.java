@@ -0,0 +1,83 @@
+package com.davidnhn.book.follow;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface FollowRepository extends JpaRepository<Follow, Integer> {
+
+    boolean existsByFollowerIdAndFollowedId(Integer followerId, Integer followedId);
+
+    long countByFollowedId(Integer followedId);
+
+    @Modifying
+    @Query("""
+           DELETE FROM Follow follow
+           WHERE follow.follower.id = :followerId
+           AND follow.followed.id = :followedId
+           """)
+    int deleteFollow(@Param("followerId") Integer followerId, @Param("followedId") Integer followedId);
+
+    @Query("""
+           SELECT follow.follower.id
+           FROM Follow follow
+           WHERE follow.followed.id = :followedId
+           """)
+    List<Integer> findFollowerIds(@Param("followedId") Integer followedId);
+
+    @Query("""
+           SELECT follow.followed.id
+           FROM Follow follow
+           WHERE follow.follower.id = :followerId
+           """)
+    List<Integer> findFollowedIds(@Param("followerId") Integer followerId);
+
+    @Query("""
+           SELECT follow.followed.id
+           FROM Follow follow
+           GROUP BY follow.followed.id
+           HAVING COUNT(follow) >= :threshold
+           """)
+    List<Integer> findFollowedIdsWithAtLeast(@Param("threshold") long threshold);
+
+    /**
+     * Reconstruction du fil d'un utilisateur : derniers livres partagés par tous les propriétaires qu'il suit,
+     * dans l'ordre de partage (Book.shareSequence).
+     */
+    @Query("""
+           SELECT new com.davidnhn.book.follow.FeedEntry(book.id, book.shareSequence)
+           FROM Book book, Follow follow
+           WHERE follow.follower.id = :followerId
+           AND follow.followed = book.owner
+           AND book.archived = false
+           AND book.shareable = true
+           ORDER BY book.shareSequence DESC
+           """)
+    List<FeedEntry> findFeedEntries(@Param("followerId") Integer followerId, Limit limit);
+
+    // derniers livres partagés d'un propriétaire (index idx_book_owner_share)
+    @Query("""
+           SELECT new com.davidnhn.book.follow.FeedEntry(book.id, book.shareSequence)
+           FROM Book book
+           WHERE book.owner.id = :ownerId
+           AND book.archived = false
+           AND book.shareable = true
+           ORDER BY book.shareSequence DESC
+           """)
+    List<FeedEntry> findRecentSharedBooks(@Param("ownerId") Integer ownerId, Limit limit);
+
+    // livres modifiés par une autre instance et toujours affichables
+    @Query("""
+           SELECT new com.davidnhn.book.follow.SharedBook(book.id, book.owner.id, book.shareSequence)
+           FROM Book book
+           WHERE book.id IN :bookIds
+           AND book.archived = false
+           AND book.shareable = true
+           """)
+    List<SharedBook> findSharedBooks(@Param("bookIds") Collection<Integer> bookIds);
+}
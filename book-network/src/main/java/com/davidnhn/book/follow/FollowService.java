@@ -0,0 +1,199 @@
+package com.davidnhn.book.follow;
+
+import com.davidnhn.book.book.Book;
+import com.davidnhn.book.book.BookChangedEvent;
+import com.davidnhn.book.book.BookMapper;
+import com.davidnhn.book.book.BookRepository;
+import com.davidnhn.book.book.BookResponse;
+import com.davidnhn.book.cache.CachedEntity;
+import com.davidnhn.book.cache.RemoteInvalidationEvent;
+import com.davidnhn.book.common.CursorResponse;
+import com.davidnhn.book.datasource.ReadYourWrites;
+import com.davidnhn.book.exceptions.OperationNotPermittedException;
+import com.davidnhn.book.user.User;
+import com.davidnhn.book.user.UserRepository;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Abonnements entre utilisateurs et fil des livres nouvellement partagés par les propriétaires suivis.
+ *
+ * Un propriétaire passe en mode "pull" (voir FeedTimelines) quand il atteint application.feed.celebrity-threshold
+ * abonnés. Il y reste jusqu'au prochain redémarrage, même s'il repasse sous le seuil : cela évite d'alterner
+ * entre les deux modes autour du seuil.
+ *
+ * Chaque instance garde ses propres fils : les livres partagés ailleurs arrivent par CacheInvalidationBus
+ * (onRemoteInvalidation) et sont relus avant d'être poussés. Le curseur du fil est l'ordre de partage
+ * (Book.shareSequence) du dernier livre de la page.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class FollowService {
+
+    private final FollowRepository followRepository;
+    private final UserRepository userRepository;
+    private final BookRepository bookRepository;
+    private final BookMapper bookMapper;
+    private final FeedTimelines timelines;
+
+    @Value("${application.feed.celebrity-threshold}")
+    private long celebrityThreshold;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadCelebrities() {
+        List<Integer> celebrities = followRepository.findFollowedIdsWithAtLeast(celebrityThreshold);
+        celebrities.forEach(ownerId -> timelines.promote(ownerId, List.of()));
+        log.debug("{} owners served in pull mode", celebrities.size());
+    }
+
+    @Transactional
+    public Integer follow(Integer userId, Authentication connectedUser) {
+        User user = ((User) connectedUser.getPrincipal());
+        if (Objects.equals(user.getId(), userId)) {
+            throw new OperationNotPermittedException("You cannot follow yourself");
+        }
+        User followed = userRepository.findById(userId)
+                .orElseThrow(() -> new EntityNotFoundException("No user found with ID:: " + userId));
+        if (followRepository.existsByFollowerIdAndFollowedId(user.getId(), userId)) {
+            return userId;
+        }
+
+        followRepository.save(Follow.builder()
+                .follower(user)
+                .followed(followed)
+                .createdDate(LocalDateTime.now())
+                .build());
+
+        if (timelines.isCelebrity(userId)) {
+            timelines.followCelebrity(user.getId(), userId);
+        } else if (followRepository.countByFollowedId(userId) >= celebrityThreshold) {
+            timelines.promote(userId, followRepository.findFollowerIds(userId));
+            log.info("Owner {} reached {} followers, switching to pull mode", userId, celebrityThreshold);
+        } else if (timelines.timeline(user.getId()) != null) {
+            // rattrapage : les derniers livres du propriétaire apparaissent tout de suite dans le fil
+            followRepository.findRecentSharedBooks(userId, Limit.of(timelines.capacity()))
+                    .forEach(entry -> timelines.push(user.getId(), entry));
+        }
+        return userId;
+    }
+
+    @Transactional
+    public Integer unfollow(Integer userId, Authentication connectedUser) {
+        User user = ((User) connectedUser.getPrincipal());
+        if (followRepository.deleteFollow(user.getId(), userId) == 0) {
+            return userId;
+        }
+
+        timelines.unfollow(user.getId(), userId);
+        FeedTimelines.Timeline timeline = timelines.timeline(user.getId());
+        if (timeline != null) {
+            // on retire du fil les livres déjà poussés par ce propriétaire
+            List<Integer> bookIds = new ArrayList<>();
+            for (long value : timeline.books.toArray()) {
+                bookIds.add(FeedEntry.decode(value).bookId());
+            }
+            if (!bookIds.isEmpty()) {
+                Set<Integer> ownedIds = new HashSet<>(bookRepository.findOwnedBookIds(userId, bookIds));
+                timeline.books.removeIf(value -> ownedIds.contains(FeedEntry.decode(value).bookId()));
+            }
+        }
+        return userId;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        if (!event.displayable() || !event.visibilityChanged() || timelines.isEmpty()) {
+            return;
+        }
+        // l'ordre de partage est attribué par la base (trigger) : relu après le commit
+        ReadYourWrites.onPrimary(() -> followRepository.findSharedBooks(List.of(event.bookId())))
+                .forEach(this::share);
+    }
+
+    /**
+     * Livres modifiés par une autre instance : ceux qui sont affichables sont relus et poussés comme un partage local
+     * (déjà présents dans un fil, ils y sont ignorés). Écoute interrompue : tous les fils sont oubliés.
+     */
+    @EventListener
+    public void onRemoteInvalidation(RemoteInvalidationEvent event) {
+        if (event.flushAll()) {
+            timelines.clear();
+            return;
+        }
+        Set<Integer> bookIds = event.ids(CachedEntity.BOOK);
+        if (bookIds.isEmpty() || timelines.isEmpty()) {
+            return;
+        }
+        ReadYourWrites.onPrimary(() -> followRepository.findSharedBooks(bookIds)).forEach(this::share);
+    }
+
+    private void share(SharedBook book) {
+        if (timelines.isCelebrity(book.ownerId())) {
+            timelines.publishCelebrityBook(book.ownerId(), book.entry());
+        } else {
+            timelines.push(followRepository.findFollowerIds(book.ownerId()), book.entry());
+        }
+    }
+
+    /**
+     * @param cursor ordre de partage du dernier livre de la page précédente (nextCursor)
+     * @param size   plafonné à la capacité d'un fil
+     */
+    public CursorResponse<BookResponse> findFeed(Integer cursor, int size, Authentication connectedUser) {
+        if (size < 1) {
+            throw new OperationNotPermittedException("Size must be at least 1");
+        }
+        int limit = Math.min(size, timelines.capacity());
+        User user = ((User) connectedUser.getPrincipal());
+        FeedTimelines.Timeline timeline = timelines.timeline(user.getId());
+        if (timeline == null) {
+            timeline = timelines.load(
+                    user.getId(),
+                    followRepository.findFeedEntries(user.getId(), Limit.of(timelines.capacity())),
+                    followRepository.findFollowedIds(user.getId())
+            );
+        }
+
+        // un élément de plus pour savoir s'il existe une page suivante
+        List<FeedEntry> entries = timelines.read(timeline, cursor == null ? Integer.MAX_VALUE : cursor, limit + 1,
+                ownerId -> followRepository.findRecentSharedBooks(ownerId, Limit.of(timelines.capacity())));
+        boolean hasNext = entries.size() > limit;
+        List<FeedEntry> page = entries.subList(0, Math.min(limit, entries.size()));
+        List<Integer> pageIds = page.stream().map(FeedEntry::bookId).toList();
+
+        // les livres archivés ou retirés du partage depuis leur ajout au fil sont écartés ici
+        Map<Integer, Book> books = bookRepository.findAllById(pageIds).stream()
+                .collect(Collectors.toMap(Book::getId, Function.identity()));
+        List<BookResponse> content = pageIds.stream()
+                .map(books::get)
+                .filter(book -> book != null && !book.isArchived() && book.isShareable())
+                .map(bookMapper::toBookResponse)
+                .toList();
+
+        return new CursorResponse<>(
+                content,
+                hasNext ? page.get(page.size() - 1).shareSequence() : null,
+                hasNext
+        );
+    }
+}
@@ -0,0 +1,11 @@
+package com.davidnhn.book.follow;
+
+/**
+ * Livre affichable relu après une modification faite par une autre instance (FollowService.onRemoteInvalidation).
+ */
+public record SharedBook(Integer bookId, Integer ownerId, Integer shareSequence) {
+
+    FeedEntry entry() {
+        return new FeedEntry(bookId, shareSequence);
+    }
+}
@@ -14,6 +14,8 @@ public enum BusinessErrorCodes {
     ACCOUNT_LOCKED(302, FORBIDDEN, "User account is locked"),
     ACCOUNT_DISABLED(302, FORBIDDEN, "User account is disabled"),
     BAD_CREDENTIALS(404, BAD_REQUEST, "Login and / or password is incorrect"),
+    SERVER_OVERLOADED(503, SERVICE_UNAVAILABLE, "Too many concurrent requests, retry later"),
+    DEADLINE_EXCEEDED(504, GATEWAY_TIMEOUT, "Request deadline exceeded"),
     ;
 
     private final int code;
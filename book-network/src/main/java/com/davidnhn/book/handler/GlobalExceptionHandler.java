@@ -2,7 +2,9 @@ package com.davidnhn.book.handler;
 
 
 import com.davidnhn.book.exceptions.OperationNotPermittedException;
+import com.davidnhn.book.exceptions.RequestDeadlineExceededException;
 import jakarta.mail.MessagingException;
+import org.springframework.dao.QueryTimeoutException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.BadCredentialsException;
@@ -110,8 +112,36 @@ public class GlobalExceptionHandler {
                 );
     }
 
+    /**
+     * Échéance de la requête atteinte avant d'obtenir une connexion, ou ordre SQL annulé par son timeout.
+     * @param exp RequestDeadlineExceededException ou exception de timeout de requête (Spring, JPA).
+     * @return La réponse avec le statut HTTP.
+     */
+    @ExceptionHandler({
+            RequestDeadlineExceededException.class,
+            QueryTimeoutException.class,
+            jakarta.persistence.QueryTimeoutException.class
+    })
+    public ResponseEntity<ExceptionResponse> handleDeadlineExceeded(Exception exp) {
+        return ResponseEntity
+                .status(GATEWAY_TIMEOUT)
+                .body(
+                        ExceptionResponse.builder()
+                                .businessErrorCode(DEADLINE_EXCEEDED.getCode())
+                                .businessErrorDescription(DEADLINE_EXCEEDED.getDescription())
+                                .error(exp.getMessage())
+                                .build()
+                );
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ExceptionResponse> handleException(Exception exp) {
+        // échéance atteinte à l'ouverture d'une transaction : enveloppée dans CannotCreateTransactionException
+        for (Throwable cause = exp.getCause(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof RequestDeadlineExceededException) {
+                return handleDeadlineExceeded(exp);
+            }
+        }
         // log the exception
         exp.printStackTrace();
         return ResponseEntity
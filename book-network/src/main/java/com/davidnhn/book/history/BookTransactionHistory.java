@@ -12,6 +12,8 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.experimental.SuperBuilder;
 
+import java.time.LocalDateTime;
+
 @Getter
 @Setter
 @SuperBuilder
@@ -30,6 +32,8 @@ public class BookTransactionHistory extends BaseEntity {
     private boolean returned;
     private boolean returnApproved;
 
+    private LocalDateTime dueDate;
+    private boolean overdueNotified; // le rappel de retard a déjà été envoyé
 
 
 
@@ -1,12 +1,20 @@
 package com.davidnhn.book.history;
 
 import com.davidnhn.book.book.Book;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -26,6 +34,21 @@ public interface BookTransactionHistoryRepository extends JpaRepository<BookTran
            """)
     Page<BookTransactionHistory> findAllReturnedBooks(Pageable pageable, @Param("userId") Integer userId);
 
+    // variantes sans COUNT des deux requêtes précédentes (pagination SLICE / ESTIMATED)
+    @Query("""
+           SELECT history
+           FROM BookTransactionHistory history
+           WHERE history.user.id = :userId
+           """)
+    Slice<BookTransactionHistory> findBorrowedBooksSlice(Pageable pageable, @Param("userId") Integer userId);
+
+    @Query("""
+           SELECT history
+           FROM BookTransactionHistory history
+           WHERE history.book.owner.id = :userId
+           """)
+    Slice<BookTransactionHistory> findReturnedBooksSlice(Pageable pageable, @Param("userId") Integer userId);
+
     /**
      * Cette méthode vérifie si un livre est déjà emprunté par un utilisateur spécifique et si le retour n'a pas encore été approuvé.
      *
@@ -62,6 +85,111 @@ public interface BookTransactionHistoryRepository extends JpaRepository<BookTran
                AND transaction.returnApproved = false
                """)
     Optional<BookTransactionHistory> findByBookIdAndOwnerId(@Param("bookId") Integer bookId, @Param("ownerId") Integer ownerId);
+
+    // emprunt en cours de l'utilisateur sur ce livre (au plus un : voir isAlreadyBorrowedByUser), rendu ou non ;
+    // appelée seule par BookDetailService, d'où sa propre transaction read-only (réplica)
+    @Transactional(readOnly = true)
+    @Query("""
+           SELECT transaction
+           FROM BookTransactionHistory transaction
+           WHERE transaction.book.id = :bookId
+           AND transaction.user.id = :userId
+           AND transaction.returnApproved = false
+           """)
+    Optional<BookTransactionHistory> findOpenLoan(@Param("bookId") Integer bookId, @Param("userId") Integer userId);
+
+    /**
+     * Retours en attente d'approbation sur les livres (partageables et non archivés) du propriétaire.
+     * Les lignes sont verrouillées pour que l'approbation par lot qui suit porte exactement sur elles.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("""
+           SELECT transaction
+           FROM BookTransactionHistory transaction
+           WHERE transaction.book.owner.id = :ownerId
+           AND transaction.book.archived = false
+           AND transaction.book.shareable = true
+           AND transaction.returned = true
+           AND transaction.returnApproved = false
+           ORDER BY transaction.id
+           """)
+    List<BookTransactionHistory> findPendingReturns(@Param("ownerId") Integer ownerId, Limit limit);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("""
+           SELECT transaction
+           FROM BookTransactionHistory transaction
+           WHERE transaction.book.owner.id = :ownerId
+           AND transaction.book.id IN :bookIds
+           AND transaction.book.archived = false
+           AND transaction.book.shareable = true
+           AND transaction.returned = true
+           AND transaction.returnApproved = false
+           """)
+    List<BookTransactionHistory> findPendingReturnsByBookIds(@Param("ownerId") Integer ownerId, @Param("bookIds") Collection<Integer> bookIds);
+
+    @Modifying
+    @Query("""
+           UPDATE BookTransactionHistory transaction
+           SET transaction.returnApproved = true,
+               transaction.lastModifiedDate = :now,
+               transaction.lastModifiedBy = :ownerId
+           WHERE transaction.id IN :historyIds
+           AND transaction.returned = true
+           AND transaction.returnApproved = false
+           AND transaction.book.id IN (SELECT book.id FROM Book book WHERE book.owner.id = :ownerId)
+           """)
+    int approveReturns(@Param("ownerId") Integer ownerId, @Param("historyIds") Collection<Integer> historyIds, @Param("now") LocalDateTime now);
+
+    /**
+     * Échéances des emprunts en cours dans [from, to) : parcours de plage sur l'index partiel idx_history_open_due_date.
+     */
+    @Query("""
+           SELECT new com.davidnhn.book.history.LoanDeadline(transaction.id, transaction.dueDate)
+           FROM BookTransactionHistory transaction
+           WHERE transaction.returned = false
+           AND transaction.overdueNotified = false
+           AND transaction.dueDate >= :from
+           AND transaction.dueDate < :to
+           """)
+    List<LoanDeadline> findOpenLoanDeadlines(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    /**
+     * Emprunts échus pas encore signalés, verrouillés : sur plusieurs instances, un seul nœud envoie le rappel.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("""
+           SELECT transaction
+           FROM BookTransactionHistory transaction
+           WHERE transaction.id IN :historyIds
+           AND transaction.returned = false
+           AND transaction.overdueNotified = false
+           AND transaction.dueDate <= :now
+           """)
+    List<BookTransactionHistory> findOverdueLoansToNotify(@Param("historyIds") Collection<Integer> historyIds, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("""
+           UPDATE BookTransactionHistory transaction
+           SET transaction.overdueNotified = true
+           WHERE transaction.id IN :historyIds
+           """)
+    int markOverdueNotified(@Param("historyIds") Collection<Integer> historyIds);
+
+    // GET /sync : emprunts de l'utilisateur dont la ligne ou le livre (titre, note...) a changé dans ]since, until]
+    @Query("""
+           SELECT history
+           FROM BookTransactionHistory history
+           JOIN FETCH history.book book
+           WHERE history.user.id = :userId
+           AND ((COALESCE(history.lastModifiedDate, history.createdDate) > :since
+                 AND COALESCE(history.lastModifiedDate, history.createdDate) <= :until)
+             OR (COALESCE(book.lastModifiedDate, book.createdDate) > :since
+                 AND COALESCE(book.lastModifiedDate, book.createdDate) <= :until))
+           """)
+    List<BookTransactionHistory> findChangedLoans(@Param("userId") Integer userId,
+                                                  @Param("since") LocalDateTime since,
+                                                  @Param("until") LocalDateTime until);
 }
 
 
@@ -0,0 +1,7 @@
+package com.davidnhn.book.history;
+
+import java.time.LocalDateTime;
+
+// projection (id, échéance) utilisée pour remplir la roue de temporisation sans charger les entités
+public record LoanDeadline(Integer historyId, LocalDateTime dueDate) {
+}
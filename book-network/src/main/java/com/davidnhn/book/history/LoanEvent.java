@@ -0,0 +1,32 @@
+package com.davidnhn.book.history;
+
+import java.time.LocalDateTime;
+
+/**
+ * Événement publié par BookService à chaque étape d'un emprunt.
+ * Il est diffusé au propriétaire et à l'emprunteur du livre concerné.
+ */
+public record LoanEvent(
+        LoanEventType type,
+        Integer historyId,
+        Integer bookId,
+        String bookTitle,
+        Integer ownerId,
+        Integer borrowerId,
+        LocalDateTime dueDate,
+        LocalDateTime occurredAt
+) {
+
+    public static LoanEvent of(LoanEventType type, BookTransactionHistory history) {
+        return new LoanEvent(
+                type,
+                history.getId(),
+                history.getBook().getId(),
+                history.getBook().getTitle(),
+                history.getBook().getOwner().getId(),
+                history.getUser().getId(),
+                history.getDueDate(),
+                LocalDateTime.now()
+        );
+    }
+}
@@ -0,0 +1,8 @@
+package com.davidnhn.book.history;
+
+public enum LoanEventType {
+    BORROWED,
+    RETURNED,
+    RETURN_APPROVED,
+    OVERDUE
+}
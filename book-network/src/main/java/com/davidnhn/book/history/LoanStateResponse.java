@@ -0,0 +1,32 @@
+package com.davidnhn.book.history;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.LocalDateTime;
+
+/**
+ * Situation de l'utilisateur connecté vis-à-vis d'un livre (fiche agrégée GET /books/{book-id}/detail).
+ *
+ * @param dueDate absente si le livre n'est pas emprunté
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record LoanStateResponse(Status status, LocalDateTime dueDate, boolean overdue) {
+
+    public enum Status {
+        NONE, // pas d'emprunt en cours
+        BORROWED,
+        RETURNED // rendu, en attente de l'approbation du propriétaire
+    }
+
+    public static LoanStateResponse none() {
+        return new LoanStateResponse(Status.NONE, null, false);
+    }
+
+    public static LoanStateResponse of(BookTransactionHistory history, LocalDateTime now) {
+        if (history.isReturned()) {
+            return new LoanStateResponse(Status.RETURNED, history.getDueDate(), false);
+        }
+        return new LoanStateResponse(Status.BORROWED, history.getDueDate(),
+                history.getDueDate() != null && history.getDueDate().isBefore(now));
+    }
+}
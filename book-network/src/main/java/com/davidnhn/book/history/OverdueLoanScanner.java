@@ -0,0 +1,161 @@
+package com.davidnhn.book.history;
+
+import com.davidnhn.book.email.EmailService;
+import com.davidnhn.book.user.User;
+import jakarta.mail.MessagingException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Détecte les emprunts en retard sans jamais parcourir toute la table.
+ *
+ * Les échéances des prochaines heures (application.loans.overdue.horizon-hours) sont chargées par une requête
+ * de plage sur l'index idx_history_open_due_date puis placées dans une roue de temporisation hiérarchique ;
+ * les nouveaux emprunts y sont ajoutés directement et les retours les annulent. Chaque tick ne traite que les
+ * échéances atteintes : événement OVERDUE et un seul email de rappel par emprunteur.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OverdueLoanScanner {
+
+    private final BookTransactionHistoryRepository transactionHistoryRepository;
+    private final EmailService emailService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+
+    // historyId -> échéance programmée ; un emprunt retiré de cette map est considéré comme annulé
+    private final Map<Integer, Long> scheduledDeadlines = new ConcurrentHashMap<>();
+
+    @Value("${application.loans.overdue.tick-ms}")
+    private long tickMs;
+
+    @Value("${application.loans.overdue.wheel-size}")
+    private int wheelSize;
+
+    @Value("${application.loans.overdue.horizon-hours}")
+    private long horizonHours;
+
+    private TimingWheel<Integer> wheel;
+    private volatile LocalDateTime loadedUntil;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadUpcomingDeadlines() {
+        synchronized (this) {
+            wheel = new TimingWheel<>(tickMs, wheelSize, System.currentTimeMillis());
+        }
+        // premier chargement : y compris les emprunts déjà échus mais pas encore signalés
+        loadDeadlines(LocalDateTime.of(1970, 1, 1, 0, 0), LocalDateTime.now().plusHours(horizonHours));
+    }
+
+    @Scheduled(fixedRateString = "${application.loans.overdue.tick-ms}")
+    public void tick() {
+        if (loadedUntil == null) {
+            return;
+        }
+        List<Integer> expired = new ArrayList<>();
+        synchronized (this) {
+            wheel.advanceClock(System.currentTimeMillis(), timer -> schedule(timer, expired));
+        }
+        notifyOverdueLoans(expired);
+
+        // on étend la fenêtre chargée bien avant d'atteindre sa fin
+        LocalDateTime horizon = LocalDateTime.now().plusHours(horizonHours);
+        if (loadedUntil.isBefore(horizon.minusHours(horizonHours / 2))) {
+            loadDeadlines(loadedUntil, horizon);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLoanEvent(LoanEvent event) {
+        switch (event.type()) {
+            case BORROWED -> {
+                if (loadedUntil != null && event.dueDate() != null && event.dueDate().isBefore(loadedUntil)) {
+                    List<Integer> expired = new ArrayList<>();
+                    add(event.historyId(), event.dueDate(), expired);
+                    notifyOverdueLoans(expired);
+                }
+            }
+            case RETURNED, RETURN_APPROVED -> scheduledDeadlines.remove(event.historyId());
+            default -> {
+            }
+        }
+    }
+
+    private void loadDeadlines(LocalDateTime from, LocalDateTime to) {
+        List<LoanDeadline> deadlines = transactionHistoryRepository.findOpenLoanDeadlines(from, to);
+        List<Integer> expired = new ArrayList<>();
+        deadlines.forEach(deadline -> add(deadline.historyId(), deadline.dueDate(), expired));
+        loadedUntil = to;
+        notifyOverdueLoans(expired);
+        log.debug("Loaded {} loan deadlines until {}", deadlines.size(), to);
+    }
+
+    private void add(Integer historyId, LocalDateTime dueDate, List<Integer> expired) {
+        long deadlineMs = dueDate.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        if (scheduledDeadlines.putIfAbsent(historyId, deadlineMs) != null) {
+            return;
+        }
+        synchronized (this) {
+            schedule(new TimingWheel.Timer<>(deadlineMs, historyId), expired);
+        }
+    }
+
+    private void schedule(TimingWheel.Timer<Integer> timer, List<Integer> expired) {
+        Long scheduled = scheduledDeadlines.get(timer.payload());
+        if (scheduled == null || scheduled != timer.deadlineMs()) {
+            return; // annulé entre-temps
+        }
+        if (!wheel.add(timer)) {
+            scheduledDeadlines.remove(timer.payload());
+            expired.add(timer.payload());
+        }
+    }
+
+    private void notifyOverdueLoans(List<Integer> historyIds) {
+        if (historyIds.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<BookTransactionHistory> overdueLoans = transactionTemplate.execute(status -> {
+            List<BookTransactionHistory> loans = transactionHistoryRepository.findOverdueLoansToNotify(historyIds, now);
+            if (!loans.isEmpty()) {
+                transactionHistoryRepository.markOverdueNotified(loans.stream().map(BookTransactionHistory::getId).toList());
+            }
+            return loans;
+        });
+
+        Map<Integer, User> borrowers = new LinkedHashMap<>();
+        Map<Integer, List<String>> titlesByBorrower = new LinkedHashMap<>();
+        overdueLoans.forEach(loan -> {
+            eventPublisher.publishEvent(LoanEvent.of(LoanEventType.OVERDUE, loan));
+            borrowers.putIfAbsent(loan.getUser().getId(), loan.getUser());
+            titlesByBorrower.computeIfAbsent(loan.getUser().getId(), id -> new ArrayList<>()).add(loan.getBook().getTitle());
+        });
+
+        titlesByBorrower.forEach((borrowerId, titles) -> {
+            User borrower = borrowers.get(borrowerId);
+            try {
+                emailService.sendOverdueLoansReminder(borrower.getEmail(), borrower.fullName(), titles);
+            } catch (MessagingException e) {
+                log.warn("Could not send overdue reminder to user {}", borrower.getId(), e);
+            }
+        });
+    }
+}
@@ -0,0 +1,99 @@
+package com.davidnhn.book.history;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Roue de temporisation hiérarchique (non thread-safe, l'appelant synchronise).
+ *
+ * La roue de base a wheelSize cases de tickMs ; une échéance au-delà de son intervalle va dans une roue
+ * de débordement dont la case vaut l'intervalle entier de la roue inférieure, et ainsi de suite.
+ * Ajout en O(1) ; quand l'horloge avance, les cases des roues supérieures redescendent d'un niveau
+ * et celles de la roue de base sont échues.
+ */
+final class TimingWheel<T> {
+
+    private final long tickMs;
+    private final int wheelSize;
+    private final long interval;
+    private final List<List<Timer<T>>> buckets;
+    private long currentTime;
+    private TimingWheel<T> overflowWheel;
+
+    TimingWheel(long tickMs, int wheelSize, long startMs) {
+        this.tickMs = tickMs;
+        this.wheelSize = wheelSize;
+        this.interval = tickMs * wheelSize;
+        this.currentTime = startMs - (startMs % tickMs);
+        this.buckets = new ArrayList<>(wheelSize);
+        for (int i = 0; i < wheelSize; i++) {
+            buckets.add(new ArrayList<>());
+        }
+    }
+
+    /**
+     * @return false si l'échéance est déjà passée : l'appelant doit déclencher le timer immédiatement.
+     */
+    boolean add(Timer<T> timer) {
+        long deadline = timer.deadlineMs();
+        if (deadline < currentTime) {
+            return false;
+        }
+        if (deadline < currentTime + interval) {
+            buckets.get(bucketIndex(deadline)).add(timer);
+            return true;
+        }
+        if (overflowWheel == null) {
+            overflowWheel = new TimingWheel<>(interval, wheelSize, currentTime);
+        }
+        return overflowWheel.add(timer);
+    }
+
+    /**
+     * Avance l'horloge jusqu'à nowMs. Chaque timer sorti d'une case est passé à reinsert,
+     * qui doit le rajouter dans la roue de base (et le déclencher si add renvoie false).
+     */
+    void advanceClock(long nowMs, Consumer<Timer<T>> reinsert) {
+        while (currentTime + tickMs <= nowMs) {
+            // la case [currentTime, currentTime + tickMs) est entièrement échue ; l'horloge avance d'abord pour que
+            // add considère ses timers comme échus au lieu de les remettre dans la même case, un tour plus tard
+            long bucketTime = currentTime;
+            currentTime += tickMs;
+            drainBucket(bucketTime, reinsert);
+            if (overflowWheel != null) {
+                overflowWheel.cascade(currentTime, reinsert);
+            }
+        }
+    }
+
+    /**
+     * Roues supérieures : à l'entrée dans une nouvelle case, ses timers redescendent dans la roue inférieure.
+     */
+    private void cascade(long lowerWheelTime, Consumer<Timer<T>> reinsert) {
+        while (currentTime + tickMs <= lowerWheelTime) {
+            currentTime += tickMs;
+            drainBucket(currentTime, reinsert);
+            if (overflowWheel != null) {
+                overflowWheel.cascade(currentTime, reinsert);
+            }
+        }
+    }
+
+    private void drainBucket(long time, Consumer<Timer<T>> reinsert) {
+        List<Timer<T>> bucket = buckets.get(bucketIndex(time));
+        if (bucket.isEmpty()) {
+            return;
+        }
+        List<Timer<T>> drained = new ArrayList<>(bucket);
+        bucket.clear();
+        drained.forEach(reinsert);
+    }
+
+    private int bucketIndex(long time) {
+        return (int) ((time / tickMs) % wheelSize);
+    }
+
+    record Timer<T>(long deadlineMs, T payload) {
+    }
+}
@@ -0,0 +1,27 @@
+package com.davidnhn.book.job;
+
+/**
+ * Tâche de fond exécutée par une seule instance à la fois (voir ClusterJobScheduler), découpée en lots.
+ *
+ * Chaque lot s'exécute dans sa propre transaction, avec l'enregistrement de la position atteinte : un job interrompu
+ * (erreur, instance arrêtée) reprend au lot suivant le dernier lot validé, éventuellement sur une autre instance.
+ */
+public interface ClusterJob {
+
+    /**
+     * Nom unique, qui identifie le job dans job_run et job_checkpoint (64 caractères au plus).
+     */
+    String name();
+
+    /**
+     * Expression cron (Spring) des déclenchements.
+     */
+    String cron();
+
+    /**
+     * Traite un lot.
+     *
+     * @param checkpoint position renvoyée par le lot précédent, null pour le premier lot d'une exécution
+     */
+    JobChunk processChunk(String checkpoint);
+}
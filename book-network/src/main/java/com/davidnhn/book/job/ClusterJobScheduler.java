@@ -0,0 +1,253 @@
+package com.davidnhn.book.job;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.support.CronExpression;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Exécute les ClusterJob sur une seule instance à la fois, quel que soit le nombre d'instances déployées.
+ *
+ * Toutes les poll-interval ms, chaque instance regarde quels jobs sont dus (déclenchement cron passé depuis la
+ * dernière exécution réussie, ou exécution interrompue à reprendre) et tente d'en prendre la direction avec un verrou
+ * consultatif Postgres (pg_try_advisory_lock) sur une connexion dédiée, gardée pendant toute l'exécution. Le verrou est
+ * libéré par Postgres à la fin de la session : si l'instance meurt, une autre reprend le job au plus tard
+ * poll-interval ms après que Postgres a constaté la perte de la connexion (keepalives TCP de quelques secondes).
+ *
+ * Chaque lot est validé avec sa position dans job_checkpoint, dans la même transaction. La mise à jour de la position
+ * n'est acceptée que pour l'exécution qui a repris le job en dernier (run_id) : une instance qui aurait perdu son
+ * verrou sans s'en apercevoir ne peut pas valider de lot après la reprise par une autre. Un job en échec est retenté
+ * après retry-delay, à partir de son dernier lot validé.
+ *
+ * Les exécutions et leurs durées sont gardées dans job_run ; métriques jobs.run (timer, tags job et status)
+ * et jobs.items.
+ */
+@Component
+@Slf4j
+public class ClusterJobScheduler {
+
+    // premier argument de pg_try_advisory_lock(int, int), réservé aux jobs ("JOB")
+    private static final int LOCK_CLASS = 0x4A4F42;
+
+    private final List<ClusterJob> jobs;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final DataSourceProperties dataSourceProperties;
+    private final MeterRegistry meterRegistry;
+    private final ThreadPoolExecutor runner;
+    private final Set<String> runningJobs = ConcurrentHashMap.newKeySet();
+    private final Map<String, CronExpression> schedules = new ConcurrentHashMap<>();
+    private final String node = nodeName();
+
+    @Value("${application.jobs.retry-delay}")
+    private Duration retryDelay;
+
+    public ClusterJobScheduler(List<ClusterJob> jobs,
+                               JdbcTemplate jdbcTemplate,
+                               TransactionTemplate transactionTemplate,
+                               DataSourceProperties dataSourceProperties,
+                               MeterRegistry meterRegistry,
+                               @Value("${application.jobs.threads}") int threads) {
+        this.jobs = jobs;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.dataSourceProperties = dataSourceProperties;
+        this.meterRegistry = meterRegistry;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.runner = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "cluster-job-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @Scheduled(fixedDelayString = "${application.jobs.poll-interval}")
+    public void runDueJobs() {
+        for (ClusterJob job : jobs) {
+            // déjà en cours ici, ou en attente d'un thread
+            if (!runningJobs.contains(job.name()) && isDue(job) && runningJobs.add(job.name())) {
+                runner.execute(() -> {
+                    try {
+                        runIfLeader(job);
+                    } finally {
+                        runningJobs.remove(job.name());
+                    }
+                });
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // le lot en cours est annulé avec sa transaction, la prochaine exécution le reprendra
+        runner.shutdownNow();
+    }
+
+    private void runIfLeader(ClusterJob job) {
+        try (Connection lockConnection = openLockConnection()) {
+            if (!tryLock(lockConnection, job.name())) {
+                return;
+            }
+            // revérifié sous le verrou : une autre instance a pu terminer le job entre-temps
+            if (isDue(job)) {
+                run(job, lockConnection);
+            }
+        } catch (SQLException e) {
+            log.warn("Could not take the lead on job {}", job.name(), e);
+        }
+    }
+
+    private void run(ClusterJob job, Connection lockConnection) throws SQLException {
+        LocalDateTime startedAt = LocalDateTime.now();
+        Long runId = jdbcTemplate.queryForObject(
+                "INSERT INTO job_run (job_name, node, status, started_date) VALUES (?, ?, 'RUNNING', ?) RETURNING id",
+                Long.class, job.name(), node, Timestamp.valueOf(startedAt));
+        // exécutions laissées en cours par une instance perdue
+        jdbcTemplate.update(
+                "UPDATE job_run SET status = 'ABANDONED', finished_date = ? WHERE job_name = ? AND status = 'RUNNING' AND id <> ?",
+                Timestamp.valueOf(startedAt), job.name(), runId);
+        String checkpoint = jdbcTemplate.queryForObject("""
+                INSERT INTO job_checkpoint (job_name, run_id, position, updated_date) VALUES (?, ?, NULL, ?)
+                ON CONFLICT (job_name) DO UPDATE SET run_id = EXCLUDED.run_id, updated_date = EXCLUDED.updated_date
+                RETURNING position
+                """, String.class, job.name(), runId, Timestamp.valueOf(startedAt));
+        if (checkpoint != null) {
+            log.info("Resuming job {} from {}", job.name(), checkpoint);
+        }
+
+        long start = System.nanoTime();
+        long processed = 0;
+        Counter items = meterRegistry.counter("jobs.items", "job", job.name());
+        try {
+            JobChunk chunk;
+            do {
+                if (Thread.currentThread().isInterrupted() || !lockConnection.isValid(2)) {
+                    throw new IllegalStateException("Lost the lead on job " + job.name());
+                }
+                String position = checkpoint;
+                chunk = transactionTemplate.execute(status -> processChunk(job, runId, position));
+                processed += chunk.processed();
+                items.increment(chunk.processed());
+                checkpoint = chunk.checkpoint();
+                jdbcTemplate.update("UPDATE job_run SET items_processed = ? WHERE id = ?", processed, runId);
+            } while (!chunk.done());
+            finish(job, runId, "SUCCEEDED", processed, null, start);
+            log.info("Job {} succeeded: {} items in {} ms", job.name(), processed, (System.nanoTime() - start) / 1_000_000);
+        } catch (RuntimeException e) {
+            finish(job, runId, "FAILED", processed, e.toString(), start);
+            log.error("Job {} failed after {} items, will resume from its last checkpoint", job.name(), processed, e);
+        }
+    }
+
+    private JobChunk processChunk(ClusterJob job, Long runId, String checkpoint) {
+        JobChunk chunk = job.processChunk(checkpoint);
+        int updated = chunk.done()
+                ? jdbcTemplate.update("DELETE FROM job_checkpoint WHERE job_name = ? AND run_id = ?", job.name(), runId)
+                : jdbcTemplate.update(
+                        "UPDATE job_checkpoint SET position = ?, updated_date = ? WHERE job_name = ? AND run_id = ?",
+                        chunk.checkpoint(), Timestamp.valueOf(LocalDateTime.now()), job.name(), runId);
+        if (updated != 1) {
+            // repris par une autre instance : le lot est annulé
+            throw new IllegalStateException("Job " + job.name() + " was taken over by another run");
+        }
+        return chunk;
+    }
+
+    private void finish(ClusterJob job, Long runId, String status, long processed, String error, long startNanos) {
+        jdbcTemplate.update(
+                "UPDATE job_run SET status = ?, finished_date = ?, items_processed = ?, error = ? WHERE id = ?",
+                status, Timestamp.valueOf(LocalDateTime.now()), processed, error, runId);
+        Timer.builder("jobs.run")
+                .tag("job", job.name())
+                .tag("status", status)
+                .register(meterRegistry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private boolean isDue(ClusterJob job) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Map<String, Object>> latest = jdbcTemplate.queryForList(
+                "SELECT status, started_date FROM job_run WHERE job_name = ? ORDER BY started_date DESC LIMIT 1", job.name());
+        if (!latest.isEmpty() && "FAILED".equals(latest.get(0).get("status"))
+                && ((Timestamp) latest.get(0).get("started_date")).toLocalDateTime().isAfter(now.minus(retryDelay))) {
+            return false;
+        }
+        Integer interrupted = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM job_checkpoint WHERE job_name = ?", Integer.class, job.name());
+        if (interrupted != null && interrupted > 0) {
+            return true;
+        }
+        Timestamp lastSuccess = jdbcTemplate.queryForObject(
+                "SELECT MAX(started_date) FROM job_run WHERE job_name = ? AND status = 'SUCCEEDED'", Timestamp.class, job.name());
+        if (lastSuccess == null) {
+            return true;
+        }
+        LocalDateTime next = schedules.computeIfAbsent(job.name(), name -> CronExpression.parse(job.cron()))
+                .next(lastSuccess.toLocalDateTime());
+        return next != null && !next.isAfter(now);
+    }
+
+    /**
+     * Connexion hors pool (le pool ne doit pas perdre une connexion pendant toute la durée d'un job). Les keepalives
+     * TCP côté serveur font constater rapidement la perte de l'instance, et donc libérer son verrou.
+     */
+    private Connection openLockConnection() throws SQLException {
+        Connection connection = DriverManager.getConnection(
+                dataSourceProperties.determineUrl(),
+                dataSourceProperties.determineUsername(),
+                dataSourceProperties.determinePassword());
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SET tcp_keepalives_idle = 2");
+            statement.execute("SET tcp_keepalives_interval = 1");
+            statement.execute("SET tcp_keepalives_count = 3");
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+        return connection;
+    }
+
+    private static boolean tryLock(Connection connection, String jobName) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT pg_try_advisory_lock(?, hashtext(?))")) {
+            statement.setInt(1, LOCK_CLASS);
+            statement.setString(2, jobName);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+
+    private static String nodeName() {
+        String name = ManagementFactory.getRuntimeMXBean().getName(); // pid@hôte
+        return name.length() > 64 ? name.substring(0, 64) : name;
+    }
+}
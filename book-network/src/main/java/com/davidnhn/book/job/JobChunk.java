@@ -0,0 +1,19 @@
+package com.davidnhn.book.job;
+
+/**
+ * Résultat d'un lot de ClusterJob.
+ *
+ * @param processed  éléments traités par le lot (items_processed de job_run)
+ * @param checkpoint position à partir de laquelle traiter le lot suivant (peut être null si le job n'en a pas besoin)
+ * @param done       dernier lot de l'exécution
+ */
+public record JobChunk(int processed, String checkpoint, boolean done) {
+
+    public static JobChunk more(int processed, String checkpoint) {
+        return new JobChunk(processed, checkpoint, false);
+    }
+
+    public static JobChunk last(int processed) {
+        return new JobChunk(processed, null, true);
+    }
+}
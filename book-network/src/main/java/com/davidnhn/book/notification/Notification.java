@@ -0,0 +1,33 @@
+package com.davidnhn.book.notification;
+
+import com.davidnhn.book.user.User;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+public class Notification {
+
+    @Id
+    @GeneratedValue
+    private Integer id;
+
+    @ManyToOne
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user; // destinataire
+
+    @Enumerated(EnumType.STRING)
+    private NotificationType type;
+    private Integer bookId;
+    private String bookTitle;
+    private boolean seen;
+
+    // écrit par le flush en lot, hors requête HTTP : pas d'auditing (BaseEntity exige createdBy)
+    private LocalDateTime createdDate;
+}
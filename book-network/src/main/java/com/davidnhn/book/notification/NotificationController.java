@@ -0,0 +1,45 @@
+package com.davidnhn.book.notification;
+
+import com.davidnhn.book.common.CursorResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("notifications")
+@RequiredArgsConstructor
+@Tag(name = "Notification")
+public class NotificationController {
+
+    private final NotificationService service;
+
+    @GetMapping
+    public ResponseEntity<CursorResponse<NotificationResponse>> findNotifications(
+            @RequestParam(name = "cursor", required = false) Integer cursor,
+            @RequestParam(name = "size", defaultValue = "20", required = false) int size,
+            Authentication connectedUser
+    ) {
+        return ResponseEntity.ok(service.findNotifications(cursor, size, connectedUser));
+    }
+
+    @GetMapping("/unread-count")
+    public ResponseEntity<Long> countUnreadNotifications(Authentication connectedUser) {
+        return ResponseEntity.ok(service.countUnread(connectedUser));
+    }
+
+    @PatchMapping("/{notification-id}/seen")
+    public ResponseEntity<Void> markNotificationAsSeen(
+            @PathVariable("notification-id") Integer notificationId,
+            Authentication connectedUser) {
+        service.markAsSeen(notificationId, connectedUser);
+        return ResponseEntity.noContent().build();
+    }
+
+    @PatchMapping("/seen")
+    public ResponseEntity<Void> markAllNotificationsAsSeen(Authentication connectedUser) {
+        service.markAllAsSeen(connectedUser);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,44 @@
+package com.davidnhn.book.notification;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface NotificationRepository extends JpaRepository<Notification, Integer> {
+
+    /**
+     * Pagination par curseur : parcourt l'index (user_id, id desc) à partir du dernier id vu,
+     * sans OFFSET ni COUNT.
+     */
+    @Query("""
+           SELECT notification
+           FROM Notification notification
+           WHERE notification.user.id = :userId
+           AND notification.id < :cursor
+           ORDER BY notification.id DESC
+           """)
+    List<Notification> findAllBefore(@Param("userId") Integer userId, @Param("cursor") Integer cursor, Limit limit);
+
+    @Modifying
+    @Query("""
+           UPDATE Notification notification
+           SET notification.seen = true
+           WHERE notification.id = :notificationId
+           AND notification.user.id = :userId
+           AND notification.seen = false
+           """)
+    int markAsSeen(@Param("notificationId") Integer notificationId, @Param("userId") Integer userId);
+
+    @Modifying
+    @Query("""
+           UPDATE Notification notification
+           SET notification.seen = true
+           WHERE notification.user.id = :userId
+           AND notification.seen = false
+           """)
+    int markAllAsSeen(@Param("userId") Integer userId);
+}
@@ -0,0 +1,20 @@
+package com.davidnhn.book.notification;
+
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class NotificationResponse {
+
+    private Integer id;
+    private NotificationType type;
+    private Integer bookId;
+    private String bookTitle;
+    private boolean seen;
+    private LocalDateTime createdDate;
+}
@@ -0,0 +1,329 @@
+package com.davidnhn.book.notification;
+
+import com.davidnhn.book.cache.CacheInvalidationBus;
+import com.davidnhn.book.cache.CachedEntity;
+import com.davidnhn.book.cache.RemoteInvalidationEvent;
+import com.davidnhn.book.common.CursorResponse;
+import com.davidnhn.book.exceptions.OperationNotPermittedException;
+import com.davidnhn.book.feedback.FeedbackEvent;
+import com.davidnhn.book.history.LoanEvent;
+import com.davidnhn.book.user.User;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Boîte de réception des notifications.
+ *
+ * Les notifications sont mises en file lors des événements d'emprunt et d'avis, puis insérées en lot. La file est
+ * bornée (max-pending) : au-delà, les nouvelles notifications sont abandonnées (métrique notifications.dropped,
+ * reason=queue_full). Un lot refusé par une base indisponible est remis en file tel quel pour le flush suivant ; refusé
+ * pour ses données, il est coupé en deux jusqu'à isoler les notifications fautives, abandonnées après max-attempts
+ * essais (reason=failed) sans bloquer les autres.
+ * Le nombre de non-lus est tenu à jour de façon incrémentale dans notification_counter (une ligne par
+ * utilisateur) : /notifications/unread-count ne fait jamais de COUNT sur l'historique. Il est gardé en mémoire au plus
+ * unread-count-ttl (et pour max-cached-counters utilisateurs) ; les autres instances sont prévenues de chaque
+ * changement (CacheInvalidationBus) et relisent la ligne.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class NotificationService {
+
+    private final NotificationRepository notificationRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CacheInvalidationBus invalidationBus;
+    private final MeterRegistry meterRegistry;
+
+    private final Queue<PendingNotification> pendingNotifications = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final Map<Integer, UnreadCounter> unreadCounters = new ConcurrentHashMap<>();
+
+    @Value("${application.notifications.batch-size}")
+    private int batchSize;
+
+    @Value("${application.notifications.max-pending}")
+    private int maxPending;
+
+    @Value("${application.notifications.max-attempts}")
+    private int maxAttempts;
+
+    @Value("${application.notifications.max-page-size}")
+    private int maxPageSize;
+
+    @Value("${application.notifications.unread-count-ttl}")
+    private Duration unreadCountTtl;
+
+    @Value("${application.notifications.max-cached-counters}")
+    private int maxCachedCounters;
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLoanEvent(LoanEvent event) {
+        switch (event.type()) {
+            case BORROWED -> enqueue(event.ownerId(), NotificationType.BOOK_BORROWED, event.bookId(), event.bookTitle());
+            case RETURNED -> enqueue(event.ownerId(), NotificationType.BOOK_RETURNED, event.bookId(), event.bookTitle());
+            case RETURN_APPROVED -> enqueue(event.borrowerId(), NotificationType.RETURN_APPROVED, event.bookId(), event.bookTitle());
+            case OVERDUE -> enqueue(event.borrowerId(), NotificationType.LOAN_OVERDUE, event.bookId(), event.bookTitle());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFeedbackEvent(FeedbackEvent event) {
+        enqueue(event.ownerId(), NotificationType.FEEDBACK_RECEIVED, event.bookId(), event.bookTitle());
+    }
+
+    public CursorResponse<NotificationResponse> findNotifications(Integer cursor, int size, Authentication connectedUser) {
+        User user = ((User) connectedUser.getPrincipal());
+        if (size < 1) {
+            throw new OperationNotPermittedException("Size must be at least 1");
+        }
+        size = Math.min(size, maxPageSize);
+        int from = cursor == null ? Integer.MAX_VALUE : cursor;
+
+        // on lit un élément de plus pour savoir s'il existe une page suivante
+        List<Notification> notifications = notificationRepository.findAllBefore(user.getId(), from, Limit.of(size + 1));
+        boolean hasNext = notifications.size() > size;
+        List<NotificationResponse> content = notifications.stream()
+                .limit(size)
+                .map(this::toNotificationResponse)
+                .toList();
+
+        return new CursorResponse<>(
+                content,
+                hasNext ? content.get(content.size() - 1).getId() : null,
+                hasNext
+        );
+    }
+
+    public long countUnread(Authentication connectedUser) {
+        User user = ((User) connectedUser.getPrincipal());
+        return unreadCount(user.getId());
+    }
+
+    public void markAsSeen(Integer notificationId, Authentication connectedUser) {
+        User user = ((User) connectedUser.getPrincipal());
+        Integer updated = transactionTemplate.execute(status -> {
+            int count = notificationRepository.markAsSeen(notificationId, user.getId());
+            decrementStoredCounter(user.getId(), count);
+            return count;
+        });
+        counterChanged(user.getId(), -updated);
+    }
+
+    public void markAllAsSeen(Authentication connectedUser) {
+        User user = ((User) connectedUser.getPrincipal());
+        Integer updated = transactionTemplate.execute(status -> {
+            int count = notificationRepository.markAllAsSeen(user.getId());
+            decrementStoredCounter(user.getId(), count);
+            return count;
+        });
+        counterChanged(user.getId(), -updated);
+    }
+
+    @EventListener
+    public void onRemoteInvalidation(RemoteInvalidationEvent event) {
+        if (event.flushAll()) {
+            unreadCounters.clear();
+        } else {
+            event.ids(CachedEntity.UNREAD_COUNT).forEach(unreadCounters::remove);
+        }
+    }
+
+    /**
+     * Insère les notifications en attente par lots et incrémente les compteurs de non-lus
+     * avec un seul upsert par destinataire.
+     */
+    @Scheduled(fixedDelayString = "${application.notifications.flush-interval}")
+    public void flushPendingNotifications() {
+        // seulement les notifications déjà en file : celles remises en file attendent le flush suivant
+        int remaining = pendingCount.get();
+        while (remaining > 0) {
+            List<PendingNotification> batch = new ArrayList<>(Math.min(batchSize, remaining));
+            PendingNotification pending;
+            while (batch.size() < Math.min(batchSize, remaining) && (pending = pendingNotifications.poll()) != null) {
+                batch.add(pending);
+            }
+            if (batch.isEmpty()) {
+                break;
+            }
+            pendingCount.addAndGet(-batch.size());
+            remaining -= batch.size();
+            if (!store(batch)) {
+                return;
+            }
+        }
+        unreadCounters.values().removeIf(counter -> !counter.fresh(unreadCountTtl));
+    }
+
+    /**
+     * @return false si la base est indisponible : le lot est remis en file et le flush s'arrête
+     */
+    private boolean store(List<PendingNotification> batch) {
+        Map<Integer, Long> increments = new HashMap<>();
+        batch.forEach(pending -> increments.merge(pending.notification().getUser().getId(), 1L, Long::sum));
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                notificationRepository.saveAll(batch.stream().map(PendingNotification::notification).toList());
+                jdbcTemplate.batchUpdate("""
+                                INSERT INTO notification_counter (user_id, unread_count) VALUES (?, ?)
+                                ON CONFLICT (user_id) DO UPDATE SET unread_count = notification_counter.unread_count + EXCLUDED.unread_count
+                                """,
+                        increments.entrySet(),
+                        increments.size(),
+                        (ps, increment) -> {
+                            ps.setInt(1, increment.getKey());
+                            ps.setLong(2, increment.getValue());
+                        });
+            });
+        } catch (RuntimeException e) {
+            batch.forEach(pending -> pending.notification().setId(null)); // id éventuellement attribué par la transaction annulée
+            if (isUnavailable(e)) {
+                log.error("Could not store {} notifications, will retry", batch.size(), e);
+                requeue(batch);
+                return false;
+            }
+            if (batch.size() > 1) {
+                int middle = batch.size() / 2;
+                List<PendingNotification> second = batch.subList(middle, batch.size());
+                if (!store(batch.subList(0, middle))) {
+                    requeue(second);
+                    return false;
+                }
+                return store(second);
+            }
+            PendingNotification failed = batch.get(0);
+            if (failed.attempts() + 1 >= maxAttempts) {
+                log.error("Dropping {} notification for user {} after {} attempts", failed.notification().getType(),
+                        failed.notification().getUser().getId(), maxAttempts, e);
+                dropped("failed");
+            } else {
+                log.warn("Could not store {} notification for user {}, will retry", failed.notification().getType(),
+                        failed.notification().getUser().getId(), e);
+                requeue(List.of(new PendingNotification(failed.notification(), failed.attempts() + 1)));
+            }
+            return true;
+        }
+        increments.forEach(this::adjustCachedCounter);
+        invalidationBus.publish(CachedEntity.UNREAD_COUNT, increments.keySet());
+        return true;
+    }
+
+    // base injoignable ou erreur passagère : rien ne permet d'accuser une notification du lot
+    private static boolean isUnavailable(RuntimeException e) {
+        return e instanceof TransientDataAccessException
+                || e instanceof DataAccessResourceFailureException
+                || e instanceof CannotCreateTransactionException;
+    }
+
+    // déjà acceptées : remises en file même au-delà de max-pending
+    private void requeue(List<PendingNotification> notifications) {
+        pendingNotifications.addAll(notifications);
+        pendingCount.addAndGet(notifications.size());
+    }
+
+    private void dropped(String reason) {
+        meterRegistry.counter("notifications.dropped", "reason", reason).increment();
+    }
+
+    private void enqueue(Integer userId, NotificationType type, Integer bookId, String bookTitle) {
+        if (pendingCount.incrementAndGet() > maxPending) {
+            pendingCount.decrementAndGet();
+            dropped("queue_full");
+            return;
+        }
+        pendingNotifications.add(new PendingNotification(Notification.builder()
+                .user(User.builder().id(userId).build())
+                .type(type)
+                .bookId(bookId)
+                .bookTitle(bookTitle)
+                .seen(false)
+                .createdDate(LocalDateTime.now())
+                .build(), 0));
+    }
+
+    private long unreadCount(Integer userId) {
+        UnreadCounter counter = unreadCounters.get(userId);
+        if (counter != null && counter.fresh(unreadCountTtl)) {
+            return counter.value().get();
+        }
+        List<Long> stored = jdbcTemplate.queryForList(
+                "SELECT unread_count FROM notification_counter WHERE user_id = ?", Long.class, userId);
+        long value = stored.isEmpty() ? 0L : stored.get(0);
+        if (counter != null || unreadCounters.size() < maxCachedCounters) {
+            unreadCounters.put(userId, new UnreadCounter(new AtomicLong(value), System.nanoTime()));
+        }
+        return value;
+    }
+
+    private void decrementStoredCounter(Integer userId, int count) {
+        if (count > 0) {
+            jdbcTemplate.update(
+                    "UPDATE notification_counter SET unread_count = GREATEST(unread_count - ?, 0) WHERE user_id = ?",
+                    count, userId);
+        }
+    }
+
+    private void counterChanged(Integer userId, long delta) {
+        if (delta != 0) {
+            adjustCachedCounter(userId, delta);
+            invalidationBus.publish(CachedEntity.UNREAD_COUNT, List.of(userId));
+        }
+    }
+
+    private void adjustCachedCounter(Integer userId, long delta) {
+        if (delta == 0) {
+            return;
+        }
+        unreadCounters.computeIfPresent(userId, (id, counter) -> {
+            counter.value().updateAndGet(value -> Math.max(0, value + delta));
+            return counter;
+        });
+    }
+
+    private NotificationResponse toNotificationResponse(Notification notification) {
+        return NotificationResponse.builder()
+                .id(notification.getId())
+                .type(notification.getType())
+                .bookId(notification.getBookId())
+                .bookTitle(notification.getBookTitle())
+                .seen(notification.isSeen())
+                .createdDate(notification.getCreatedDate())
+                .build();
+    }
+
+    private record PendingNotification(Notification notification, int attempts) {
+    }
+
+    private record UnreadCounter(AtomicLong value, long loadedAt) {
+
+        private boolean fresh(Duration ttl) {
+            return System.nanoTime() - loadedAt < ttl.toNanos();
+        }
+    }
+}
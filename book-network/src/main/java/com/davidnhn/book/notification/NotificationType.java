@@ -0,0 +1,9 @@
+package com.davidnhn.book.notification;
+
+public enum NotificationType {
+    BOOK_BORROWED,
+    BOOK_RETURNED,
+    RETURN_APPROVED,
+    FEEDBACK_RECEIVED,
+    LOAN_OVERDUE
+}
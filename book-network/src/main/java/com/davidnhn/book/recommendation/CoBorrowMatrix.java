@@ -0,0 +1,232 @@
+package com.davidnhn.book.recommendation;
+
+import com.davidnhn.book.common.IntIntHashMap;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.IntPredicate;
+
+/**
+ * Matrice creuse de co-emprunts : pour chaque livre, le nombre d'emprunteurs qu'il partage avec chaque autre livre.
+ *
+ * Les lignes sont des IntIntHashMap rangées dans un tableau indexé par l'id du livre (les ids viennent d'une
+ * séquence, ils sont denses). Les livres empruntés par chaque utilisateur sont gardés de la même façon, ce qui
+ * permet de mettre la matrice à jour à chaque nouvel emprunt sans la reconstruire.
+ *
+ * Non thread-safe : RecommendationService protège les accès par un verrou lecture/écriture.
+ */
+final class CoBorrowMatrix {
+
+    private IntIntHashMap[] rows;
+    private int[] borrowers;
+    private IntIntHashMap[] userBooks;
+    private final int maxUserBooks;
+
+    CoBorrowMatrix(int bookCapacity, int userCapacity, int maxUserBooks) {
+        this(new IntIntHashMap[bookCapacity], new IntIntHashMap[userCapacity], maxUserBooks);
+    }
+
+    private CoBorrowMatrix(IntIntHashMap[] rows, IntIntHashMap[] userBooks, int maxUserBooks) {
+        this.rows = rows;
+        this.borrowers = new int[rows.length];
+        this.userBooks = userBooks;
+        this.maxUserBooks = maxUserBooks;
+    }
+
+    /**
+     * Construit la matrice en parallèle : chaque tâche traite une tranche d'utilisateurs dans sa propre matrice
+     * partielle, les résultats sont fusionnés en remontant l'arbre fork/join. Les tranches d'utilisateurs sont
+     * disjointes, elles écrivent donc sans conflit dans le tableau partagé des livres par utilisateur.
+     */
+    static CoBorrowMatrix build(LoanPairs loans, int bookCapacity, int maxUserBooks, ForkJoinPool pool) {
+        IntIntHashMap[] userBooks = new IntIntHashMap[loans.maxUserId() + 1];
+        int threshold = Math.max(1_000, loans.userCount() / (pool.getParallelism() * 4));
+        return pool.invoke(new BuildTask(loans, 0, loans.userCount(), threshold, bookCapacity, userBooks, maxUserBooks));
+    }
+
+    /**
+     * @return false si l'emprunt était déjà connu (l'utilisateur avait déjà emprunté ce livre)
+     */
+    boolean addLoan(int userId, int bookId) {
+        IntIntHashMap books = userBooks(userId);
+        if (books.containsKey(bookId)) {
+            return false;
+        }
+        // au-delà de maxUserBooks, les paires d'un gros lecteur n'apportent plus rien et coûtent en O(n²)
+        if (books.size() < maxUserBooks) {
+            books.forEach((otherBookId, ignored) -> {
+                row(bookId).addTo(otherBookId, 1);
+                row(otherBookId).addTo(bookId, 1);
+            });
+        }
+        books.put(bookId, 1);
+        ensureBookCapacity(bookId);
+        borrowers[bookId]++;
+        return true;
+    }
+
+    /**
+     * Livres les plus proches de bookId, par similarité cosinus : co-emprunts / sqrt(emprunteurs(a) * emprunteurs(b)).
+     */
+    int[] similar(int bookId, int limit) {
+        if (bookId < 0 || bookId >= rows.length || rows[bookId] == null) {
+            return new int[0];
+        }
+        return top(rows[bookId], limit, candidateId -> candidateId == bookId, borrowersOf(bookId));
+    }
+
+    /**
+     * Co-emprunts cumulés sur tous les livres déjà empruntés par l'utilisateur (exclus du résultat),
+     * normalisés par la popularité de chaque candidat.
+     */
+    int[] recommended(int userId, int limit) {
+        if (userId < 0 || userId >= userBooks.length || userBooks[userId] == null) {
+            return new int[0];
+        }
+        IntIntHashMap books = userBooks[userId];
+        IntIntHashMap coCounts = new IntIntHashMap();
+        books.forEach((bookId, ignored) -> {
+            if (bookId < rows.length && rows[bookId] != null) {
+                coCounts.addAll(rows[bookId]);
+            }
+        });
+        return top(coCounts, limit, books::containsKey, 1);
+    }
+
+    long footprintBytes() {
+        long bytes = 16L + 4L * rows.length + 16L + 4L * borrowers.length + 16L + 4L * userBooks.length;
+        for (IntIntHashMap row : rows) {
+            bytes += row == null ? 0 : row.footprintBytes();
+        }
+        for (IntIntHashMap books : userBooks) {
+            bytes += books == null ? 0 : books.footprintBytes();
+        }
+        return bytes;
+    }
+
+    long pairCount() {
+        long pairs = 0;
+        for (IntIntHashMap row : rows) {
+            pairs += row == null ? 0 : row.size();
+        }
+        return pairs;
+    }
+
+    private int[] top(IntIntHashMap candidates, int limit, IntPredicate excluded, int sourceBorrowers) {
+        if (limit <= 0 || candidates.isEmpty()) {
+            return new int[0];
+        }
+        // tas borné : [id, score] triés par score croissant, le moins bon en tête
+        PriorityQueue<double[]> heap = new PriorityQueue<>(Math.min(limit, candidates.size()) + 1, (a, b) -> Double.compare(a[1], b[1]));
+        candidates.forEach((candidateId, coCount) -> {
+            if (excluded.test(candidateId)) {
+                return;
+            }
+            heap.offer(new double[]{candidateId, coCount / Math.sqrt((double) borrowersOf(candidateId) * sourceBorrowers)});
+            if (heap.size() > limit) {
+                heap.poll();
+            }
+        });
+        int[] result = new int[heap.size()];
+        for (int i = result.length - 1; i >= 0; i--) {
+            result[i] = (int) heap.poll()[0];
+        }
+        return result;
+    }
+
+    private int borrowersOf(int bookId) {
+        return bookId > 0 && bookId < borrowers.length ? Math.max(1, borrowers[bookId]) : 1;
+    }
+
+    private IntIntHashMap row(int bookId) {
+        ensureBookCapacity(bookId);
+        if (rows[bookId] == null) {
+            rows[bookId] = new IntIntHashMap();
+        }
+        return rows[bookId];
+    }
+
+    private IntIntHashMap userBooks(int userId) {
+        if (userId >= userBooks.length) {
+            userBooks = Arrays.copyOf(userBooks, Math.max(userId + 1, userBooks.length + (userBooks.length >> 1)));
+        }
+        if (userBooks[userId] == null) {
+            userBooks[userId] = new IntIntHashMap();
+        }
+        return userBooks[userId];
+    }
+
+    private void ensureBookCapacity(int bookId) {
+        if (bookId >= rows.length) {
+            int capacity = Math.max(bookId + 1, rows.length + (rows.length >> 1));
+            rows = Arrays.copyOf(rows, capacity);
+            borrowers = Arrays.copyOf(borrowers, capacity);
+        }
+    }
+
+    private void merge(CoBorrowMatrix other) {
+        ensureBookCapacity(other.rows.length - 1);
+        for (int bookId = 0; bookId < other.rows.length; bookId++) {
+            borrowers[bookId] += other.borrowers[bookId];
+            IntIntHashMap otherRow = other.rows[bookId];
+            if (otherRow == null) {
+                continue;
+            }
+            if (rows[bookId] == null || rows[bookId].size() < otherRow.size()) {
+                // on garde la plus grosse ligne et on y ajoute la plus petite
+                IntIntHashMap smaller = rows[bookId];
+                rows[bookId] = otherRow;
+                if (smaller != null) {
+                    otherRow.addAll(smaller);
+                }
+            } else {
+                rows[bookId].addAll(otherRow);
+            }
+        }
+    }
+
+    private static final class BuildTask extends RecursiveTask<CoBorrowMatrix> {
+
+        private final LoanPairs loans;
+        private final int fromUser;
+        private final int toUser;
+        private final int threshold;
+        private final int bookCapacity;
+        private final IntIntHashMap[] userBooks;
+        private final int maxUserBooks;
+
+        private BuildTask(LoanPairs loans, int fromUser, int toUser, int threshold, int bookCapacity,
+                          IntIntHashMap[] userBooks, int maxUserBooks) {
+            this.loans = loans;
+            this.fromUser = fromUser;
+            this.toUser = toUser;
+            this.threshold = threshold;
+            this.bookCapacity = bookCapacity;
+            this.userBooks = userBooks;
+            this.maxUserBooks = maxUserBooks;
+        }
+
+        @Override
+        protected CoBorrowMatrix compute() {
+            if (toUser - fromUser <= threshold) {
+                CoBorrowMatrix partial = new CoBorrowMatrix(new IntIntHashMap[bookCapacity], userBooks, maxUserBooks);
+                for (int user = fromUser; user < toUser; user++) {
+                    int userId = loans.userId(user);
+                    for (int i = loans.start(user); i < loans.end(user); i++) {
+                        partial.addLoan(userId, loans.bookId(i));
+                    }
+                }
+                return partial;
+            }
+            int middle = (fromUser + toUser) >>> 1;
+            BuildTask left = new BuildTask(loans, fromUser, middle, threshold, bookCapacity, userBooks, maxUserBooks);
+            BuildTask right = new BuildTask(loans, middle, toUser, threshold, bookCapacity, userBooks, maxUserBooks);
+            left.fork();
+            CoBorrowMatrix result = right.compute();
+            result.merge(left.join());
+            return result;
+        }
+    }
+}
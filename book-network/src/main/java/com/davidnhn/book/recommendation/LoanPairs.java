@@ -0,0 +1,96 @@
+package com.davidnhn.book.recommendation;
+
+import java.util.Arrays;
+
+/**
+ * Couples (utilisateur, livre) distincts triés par utilisateur, stockés à plat dans des tableaux d'int :
+ * les livres de l'utilisateur d'index u sont bookIds[offsets[u] .. offsets[u + 1]).
+ */
+final class LoanPairs {
+
+    private final int[] userIds;
+    private final int[] offsets;
+    private final int[] bookIds;
+    private final int userCount;
+    private final int maxUserId;
+    private final int maxBookId;
+
+    private LoanPairs(int[] userIds, int[] offsets, int[] bookIds, int userCount, int maxUserId, int maxBookId) {
+        this.userIds = userIds;
+        this.offsets = offsets;
+        this.bookIds = bookIds;
+        this.userCount = userCount;
+        this.maxUserId = maxUserId;
+        this.maxBookId = maxBookId;
+    }
+
+    int userCount() {
+        return userCount;
+    }
+
+    int userId(int user) {
+        return userIds[user];
+    }
+
+    int start(int user) {
+        return offsets[user];
+    }
+
+    int end(int user) {
+        return offsets[user + 1];
+    }
+
+    int bookId(int index) {
+        return bookIds[index];
+    }
+
+    int maxUserId() {
+        return maxUserId;
+    }
+
+    int maxBookId() {
+        return maxBookId;
+    }
+
+    int size() {
+        return offsets[userCount];
+    }
+
+    /**
+     * Les couples doivent être ajoutés groupés par utilisateur (ORDER BY user_id).
+     */
+    static final class Builder {
+
+        private int[] userIds = new int[1024];
+        private int[] offsets = new int[1025];
+        private int[] bookIds = new int[4096];
+        private int userCount;
+        private int size;
+        private int maxUserId;
+        private int maxBookId;
+
+        Builder add(int userId, int bookId) {
+            if (userCount == 0 || userIds[userCount - 1] != userId) {
+                if (userCount == userIds.length) {
+                    userIds = Arrays.copyOf(userIds, userIds.length * 2);
+                    offsets = Arrays.copyOf(offsets, userIds.length + 1);
+                }
+                userIds[userCount] = userId;
+                offsets[userCount] = size;
+                userCount++;
+            }
+            if (size == bookIds.length) {
+                bookIds = Arrays.copyOf(bookIds, bookIds.length * 2);
+            }
+            bookIds[size++] = bookId;
+            maxUserId = Math.max(maxUserId, userId);
+            maxBookId = Math.max(maxBookId, bookId);
+            return this;
+        }
+
+        LoanPairs build() {
+            offsets[userCount] = size;
+            return new LoanPairs(userIds, offsets, bookIds, userCount, maxUserId, maxBookId);
+        }
+    }
+}
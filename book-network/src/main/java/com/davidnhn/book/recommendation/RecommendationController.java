@@ -0,0 +1,39 @@
+package com.davidnhn.book.recommendation;
+
+import com.davidnhn.book.book.BookResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("books")
+@RequiredArgsConstructor
+@Tag(name = "Book")
+public class RecommendationController {
+
+    private final RecommendationService service;
+
+    @GetMapping("/{book-id}/similar")
+    public ResponseEntity<List<BookResponse>> findSimilarBooks(
+            @PathVariable("book-id") Integer bookId,
+            @RequestParam(name = "size", defaultValue = "10", required = false) int size
+    ) {
+        return ResponseEntity.ok(service.findSimilarBooks(bookId, size));
+    }
+
+    @GetMapping("/recommended")
+    public ResponseEntity<List<BookResponse>> findRecommendedBooks(
+            @RequestParam(name = "size", defaultValue = "10", required = false) int size,
+            Authentication connectedUser
+    ) {
+        return ResponseEntity.ok(service.findRecommendedBooks(size, connectedUser));
+    }
+}
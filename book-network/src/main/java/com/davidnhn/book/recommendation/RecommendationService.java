@@ -0,0 +1,238 @@
+package com.davidnhn.book.recommendation;
+
+import com.davidnhn.book.book.BookField;
+import com.davidnhn.book.book.BookMapper;
+import com.davidnhn.book.book.BookResponse;
+import com.davidnhn.book.common.FieldSelection;
+import com.davidnhn.book.common.ProjectionQuery;
+import com.davidnhn.book.common.Projections;
+import com.davidnhn.book.exceptions.OperationNotPermittedException;
+import com.davidnhn.book.history.LoanEvent;
+import com.davidnhn.book.history.LoanEventType;
+import com.davidnhn.book.user.User;
+import jakarta.persistence.Tuple;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Recommandations "les emprunteurs de ce livre ont aussi emprunté", calculées à partir de book_transaction_history.
+ *
+ * La matrice de co-emprunts est construite une fois au démarrage (en parallèle, voir CoBorrowMatrix.build)
+ * puis mise à jour à chaque emprunt de cette instance. Les emprunts des autres instances sont relus toutes les
+ * sync-interval ms (par date de création, avec un recouvrement de sync-overlap : addLoan ignore les doublons).
+ * Les deux endpoints lisent uniquement la mémoire, à part le chargement des quelques livres retournés, par projection
+ * sans couverture.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RecommendationService {
+
+    private static final int MAX_SIZE = 50;
+    // pas de lecture de la couverture sur disque pour chaque candidat : GET /books/{book-id}
+    private static final Set<BookField> RECOMMENDATION_FIELDS = EnumSet.complementOf(EnumSet.of(BookField.COVER));
+    private static final List<String> RECOMMENDATION_SELECTIONS = FieldSelection.selections(RECOMMENDATION_FIELDS);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Projections projections;
+    private final BookMapper bookMapper;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // emprunts reçus pendant la construction initiale, rejoués ensuite (addLoan ignore les doublons)
+    private final List<int[]> pendingLoans = new ArrayList<>();
+    private CoBorrowMatrix matrix;
+    // emprunts créés avant cet instant déjà dans la matrice ; null tant qu'elle est en construction
+    private volatile LocalDateTime syncedUntil;
+
+    @Value("${application.recommendations.max-user-books}")
+    private int maxUserBooks;
+
+    @Value("${application.recommendations.build-parallelism}")
+    private int buildParallelism;
+
+    @Value("${application.recommendations.fetch-size}")
+    private int fetchSize;
+
+    @Value("${application.recommendations.sync-overlap}")
+    private Duration syncOverlap;
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildMatrix() {
+        long start = System.currentTimeMillis();
+        LocalDateTime loadStart = LocalDateTime.now();
+        LoanPairs loans = loadLoanPairs();
+
+        ForkJoinPool pool = new ForkJoinPool(buildParallelism);
+        CoBorrowMatrix built;
+        try {
+            built = CoBorrowMatrix.build(loans, loans.maxBookId() + 1, maxUserBooks, pool);
+        } finally {
+            pool.shutdown();
+        }
+
+        lock.writeLock().lock();
+        try {
+            pendingLoans.forEach(loan -> built.addLoan(loan[0], loan[1]));
+            pendingLoans.clear();
+            matrix = built;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        syncedUntil = loadStart;
+        log.info("Co-borrow matrix built from {} loans in {} ms ({} pairs, ~{} MB)",
+                loans.size(), System.currentTimeMillis() - start, built.pairCount(), built.footprintBytes() / (1024 * 1024));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLoanEvent(LoanEvent event) {
+        if (event.type() != LoanEventType.BORROWED) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (matrix == null) {
+                pendingLoans.add(new int[]{event.borrowerId(), event.bookId()});
+            } else {
+                matrix.addLoan(event.borrowerId(), event.bookId());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${application.recommendations.sync-interval}")
+    public void loadRecentLoans() {
+        LocalDateTime since = syncedUntil;
+        if (since == null) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<int[]> loans = jdbcTemplate.query(
+                "SELECT user_id, book_id FROM book_transaction_history WHERE created_date >= ?",
+                (rs, rowNum) -> new int[]{rs.getInt("user_id"), rs.getInt("book_id")},
+                Timestamp.valueOf(since.minus(syncOverlap)));
+        int added = 0;
+        lock.writeLock().lock();
+        try {
+            for (int[] loan : loans) {
+                if (matrix.addLoan(loan[0], loan[1])) {
+                    added++;
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        syncedUntil = now;
+        if (added > 0) {
+            log.debug("{} loans of other instances added to the co-borrow matrix", added);
+        }
+    }
+
+    public List<BookResponse> findSimilarBooks(Integer bookId, int size) {
+        if (bookId == null || bookId < 0) {
+            throw new OperationNotPermittedException("Invalid book id: " + bookId);
+        }
+        size = checkSize(size);
+        int[] ids;
+        lock.readLock().lock();
+        try {
+            // marge pour les livres écartés au chargement (archivés, non partageables)
+            ids = matrix == null ? new int[0] : matrix.similar(bookId, size * 2);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return toBookResponses(ids, size, null);
+    }
+
+    public List<BookResponse> findRecommendedBooks(int size, Authentication connectedUser) {
+        User user = ((User) connectedUser.getPrincipal());
+        size = checkSize(size);
+        int[] ids;
+        lock.readLock().lock();
+        try {
+            ids = matrix == null ? new int[0] : matrix.recommended(user.getId(), size * 2);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return toBookResponses(ids, size, user.getId());
+    }
+
+    // au-delà de MAX_SIZE, la liste est tronquée (size * 2 candidats demandés à la matrice)
+    private static int checkSize(int size) {
+        if (size < 1) {
+            throw new OperationNotPermittedException("Size must be at least 1");
+        }
+        return Math.min(size, MAX_SIZE);
+    }
+
+    private LoanPairs loadLoanPairs() {
+        LoanPairs.Builder builder = new LoanPairs.Builder();
+        // dans une transaction pour que le driver Postgres lise le résultat par blocs de fetchSize lignes
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.query(
+                connection -> {
+                    PreparedStatement statement = connection.prepareStatement(
+                            "SELECT DISTINCT user_id, book_id FROM book_transaction_history ORDER BY user_id");
+                    statement.setFetchSize(fetchSize);
+                    return statement;
+                },
+                rs -> {
+                    builder.add(rs.getInt(1), rs.getInt(2));
+                }));
+        return builder.build();
+    }
+
+    private List<BookResponse> toBookResponses(int[] ids, int size, Integer excludedOwnerId) {
+        if (ids.length == 0) {
+            return List.of();
+        }
+        List<Integer> orderedIds = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            orderedIds.add(id);
+        }
+        String where = "book.id IN :ids AND book.archived = false AND book.shareable = true";
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("ids", orderedIds);
+        if (excludedOwnerId != null) {
+            where += " AND book.owner.id <> :ownerId";
+            parameters.put("ownerId", excludedOwnerId);
+        }
+        Map<Integer, Tuple> books = projections.list(new ProjectionQuery("Book book", where, null, parameters), RECOMMENDATION_SELECTIONS)
+                .stream()
+                .collect(Collectors.toMap(row -> row.get("id", Integer.class), Function.identity()));
+        return orderedIds.stream()
+                .map(books::get)
+                .filter(Objects::nonNull)
+                .limit(size)
+                .map(row -> bookMapper.toBookResponse(row, RECOMMENDATION_FIELDS))
+                .toList();
+    }
+}
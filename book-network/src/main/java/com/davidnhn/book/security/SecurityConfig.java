@@ -1,5 +1,7 @@
 package com.davidnhn.book.security;
 
+import com.davidnhn.book.concurrency.ConcurrencyLimitFilter;
+import com.davidnhn.book.concurrency.RequestDeadlineFilter;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -21,6 +23,8 @@ import static org.springframework.security.config.Customizer.withDefaults;
 public class SecurityConfig {
 
     private final JwtFilter jwtAuthFilter;
+    private final ConcurrencyLimitFilter concurrencyLimitFilter;
+    private final RequestDeadlineFilter requestDeadlineFilter;
     private final AuthenticationProvider authenticationProvider;
 
     @Bean
@@ -47,7 +51,9 @@ public class SecurityConfig {
                         )
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authenticationProvider(authenticationProvider) // Définit le fournisseur d'authentification à utiliser
-                .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class);
+                .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class)
+                .addFilterBefore(concurrencyLimitFilter, JwtFilter.class) // délestage avant toute lecture en base
+                .addFilterBefore(requestDeadlineFilter, ConcurrencyLimitFilter.class); // échéance dès l'arrivée de la requête
 
         return http.build();
     }
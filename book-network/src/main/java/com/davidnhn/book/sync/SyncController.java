@@ -0,0 +1,27 @@
+package com.davidnhn.book.sync;
+
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("sync")
+@RequiredArgsConstructor
+@Tag(name = "Sync")
+public class SyncController {
+
+    private final SyncService service;
+
+    @GetMapping
+    public ResponseEntity<SyncResponse> sync(
+            @RequestParam(name = "since", required = false) String since,
+            Authentication connectedUser
+    ) {
+        return ResponseEntity.ok(service.sync(since, connectedUser));
+    }
+}
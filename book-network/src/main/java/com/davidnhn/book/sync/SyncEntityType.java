@@ -0,0 +1,10 @@
+package com.davidnhn.book.sync;
+
+/**
+ * Type d'élément d'une réponse GET /sync (et d'une ligne de sync_tombstone).
+ */
+public enum SyncEntityType {
+    BOOK,
+    LOAN,
+    FEEDBACK
+}
@@ -0,0 +1,33 @@
+package com.davidnhn.book.sync;
+
+import com.davidnhn.book.book.BookResponse;
+import com.davidnhn.book.book.BorrowedBookResponse;
+import com.davidnhn.book.feedback.FeedbackResponse;
+
+import java.util.List;
+
+/**
+ * Changements depuis le jeton envoyé. Le client remplace les éléments reçus (par id), retire ceux de deleted
+ * et garde token pour l'appel suivant.
+ *
+ * @param reset true si le jeton était absent ou trop ancien pour les tombstones gardées : la réponse contient alors
+ *              tout le contenu de l'utilisateur et le client repart de zéro
+ */
+public record SyncResponse(
+        String token,
+        boolean reset,
+        List<BookResponse> books, // livres de l'utilisateur (GET /books/owner)
+        List<LoanChange> loans, // ses emprunts (GET /books/borrowed)
+        List<FeedbackChange> feedbacks, // feedbacks qu'il a écrits
+        List<Tombstone> deleted
+) {
+
+    public record LoanChange(Integer id, BorrowedBookResponse loan) {
+    }
+
+    public record FeedbackChange(Integer id, Integer bookId, FeedbackResponse feedback) {
+    }
+
+    public record Tombstone(SyncEntityType type, Integer id) {
+    }
+}
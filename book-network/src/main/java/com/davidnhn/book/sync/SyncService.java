@@ -0,0 +1,81 @@
+package com.davidnhn.book.sync;
+
+import com.davidnhn.book.book.BookMapper;
+import com.davidnhn.book.book.BookRepository;
+import com.davidnhn.book.feedback.FeedbackMapper;
+import com.davidnhn.book.feedback.FeedbackRepository;
+import com.davidnhn.book.history.BookTransactionHistoryRepository;
+import com.davidnhn.book.user.User;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+/**
+ * Synchronisation par différence (GET /sync) : livres, emprunts et feedbacks de l'utilisateur créés ou modifiés
+ * depuis le jeton, plus les tombstones de la même période. Un appel sans changement ne coûte qu'un parcours de plage
+ * par index (voir V10__sync.sql) et renvoie des listes vides.
+ *
+ * Les dates de modification sont posées par l'application avant le commit : une transaction lente peut valider une
+ * ligne datée d'avant le jeton déjà rendu à un client. La borne haute d'un appel est donc décalée de commit-lag
+ * dans le passé ; les changements plus récents seront rendus à l'appel suivant.
+ *
+ * Lu sur la base principale (transaction read-write sans écriture) : le retard d'un réplica n'est pas borné par
+ * commit-lag, un changement absent du réplica à la borne haute ne serait jamais rendu.
+ */
+@Service
+@RequiredArgsConstructor
+public class SyncService {
+
+    private static final LocalDateTime BEGINNING = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final BookRepository bookRepository;
+    private final BookTransactionHistoryRepository transactionHistoryRepository;
+    private final FeedbackRepository feedbackRepository;
+    private final BookMapper bookMapper;
+    private final FeedbackMapper feedbackMapper;
+    private final SyncTombstones tombstones;
+
+    @Value("${application.sync.commit-lag}")
+    private Duration commitLag;
+
+    /**
+     * @param token jeton de l'appel précédent, absent pour une première synchronisation
+     */
+    @Transactional
+    public SyncResponse sync(String token, Authentication connectedUser) {
+        User user = ((User) connectedUser.getPrincipal());
+        LocalDateTime until = LocalDateTime.now().minus(commitLag).truncatedTo(ChronoUnit.MICROS);
+        LocalDateTime since = token == null || token.isBlank() ? null : SyncToken.parse(token).position();
+        boolean reset = since == null || since.isBefore(tombstones.oldestServableToken());
+        if (reset) {
+            since = BEGINNING;
+        } else if (!since.isBefore(until)) {
+            // jeton rendu il y a moins de commit-lag : rien de nouveau ne peut encore être servi
+            return new SyncResponse(token, false, List.of(), List.of(), List.of(), List.of());
+        }
+
+        LocalDateTime from = since;
+        return new SyncResponse(
+                new SyncToken(until).encode(),
+                reset,
+                bookRepository.findChangedBooks(user.getId(), from, until).stream()
+                        .map(bookMapper::toBookResponse)
+                        .toList(),
+                transactionHistoryRepository.findChangedLoans(user.getId(), from, until).stream()
+                        .map(history -> new SyncResponse.LoanChange(history.getId(), bookMapper.toBorrowedBookResponse(history)))
+                        .toList(),
+                feedbackRepository.findChangedFeedbacks(user.getId(), from, until).stream()
+                        .map(feedback -> new SyncResponse.FeedbackChange(
+                                feedback.getId(), feedback.getBook().getId(), feedbackMapper.toFeedbackResponse(feedback, user.getId())))
+                        .toList(),
+                reset ? List.of() : tombstones.findSince(user.getId(), from, until)
+        );
+    }
+}
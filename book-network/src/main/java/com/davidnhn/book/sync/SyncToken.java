@@ -0,0 +1,30 @@
+package com.davidnhn.book.sync;
+
+import com.davidnhn.book.exceptions.OperationNotPermittedException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+
+/**
+ * Jeton opaque renvoyé par GET /sync : la borne haute (incluse) de l'intervalle de dates déjà transmis au client.
+ */
+public record SyncToken(LocalDateTime position) {
+
+    private static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    public static SyncToken parse(String token) {
+        try {
+            long micros = Long.parseLong(new String(Base64.getUrlDecoder().decode(token), StandardCharsets.US_ASCII));
+            return new SyncToken(EPOCH.plus(micros, ChronoUnit.MICROS));
+        } catch (IllegalArgumentException e) {
+            throw new OperationNotPermittedException("Invalid sync token");
+        }
+    }
+
+    public String encode() {
+        String micros = Long.toString(ChronoUnit.MICROS.between(EPOCH, position));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(micros.getBytes(StandardCharsets.US_ASCII));
+    }
+}
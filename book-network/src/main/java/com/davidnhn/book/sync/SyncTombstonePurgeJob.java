@@ -0,0 +1,45 @@
+package com.davidnhn.book.sync;
+
+import com.davidnhn.book.job.ClusterJob;
+import com.davidnhn.book.job.JobChunk;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+
+/**
+ * Supprime les tombstones que plus aucun jeton de synchronisation servable ne peut demander, par lots.
+ */
+@Component
+@RequiredArgsConstructor
+public class SyncTombstonePurgeJob implements ClusterJob {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SyncTombstones syncTombstones;
+
+    @Value("${application.sync.purge-cron}")
+    private String cron;
+
+    @Value("${application.jobs.chunk-size}")
+    private int chunkSize;
+
+    @Override
+    public String name() {
+        return "sync-tombstone-purge";
+    }
+
+    @Override
+    public String cron() {
+        return cron;
+    }
+
+    @Override
+    public JobChunk processChunk(String checkpoint) {
+        int deleted = jdbcTemplate.update(
+                "DELETE FROM sync_tombstone WHERE id IN (SELECT id FROM sync_tombstone WHERE deleted_date < ? LIMIT ?)",
+                Timestamp.valueOf(syncTombstones.oldestServableToken()), chunkSize);
+        return deleted < chunkSize ? JobChunk.last(deleted) : JobChunk.more(deleted, null);
+    }
+}
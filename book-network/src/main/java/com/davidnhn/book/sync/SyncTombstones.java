@@ -0,0 +1,45 @@
+package com.davidnhn.book.sync;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Journal des éléments supprimés (ou retirés de ce que voit un utilisateur) pour GET /sync : une ligne par utilisateur
+ * concerné, gardée tombstone-retention-days jours. Un jeton plus ancien ne peut plus être servi par différence
+ * (les tombstones purgées manqueraient) : SyncService renvoie alors tout le contenu (reset). Purge : SyncTombstonePurgeJob.
+ */
+@Component
+@RequiredArgsConstructor
+public class SyncTombstones {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${application.sync.tombstone-retention-days}")
+    private int retentionDays;
+
+    /**
+     * À appeler dans la transaction de la suppression, pour que la tombstone et la suppression soient validées ensemble.
+     */
+    public void record(Integer userId, SyncEntityType type, Integer entityId) {
+        jdbcTemplate.update(
+                "INSERT INTO sync_tombstone (user_id, entity_type, entity_id, deleted_date) VALUES (?, ?, ?, ?)",
+                userId, type.name(), entityId, Timestamp.valueOf(LocalDateTime.now()));
+    }
+
+    public List<SyncResponse.Tombstone> findSince(Integer userId, LocalDateTime since, LocalDateTime until) {
+        return jdbcTemplate.query(
+                "SELECT entity_type, entity_id FROM sync_tombstone WHERE user_id = ? AND deleted_date > ? AND deleted_date <= ?",
+                (rs, rowNum) -> new SyncResponse.Tombstone(SyncEntityType.valueOf(rs.getString(1)), rs.getInt(2)),
+                userId, Timestamp.valueOf(since), Timestamp.valueOf(until));
+    }
+
+    public LocalDateTime oldestServableToken() {
+        return LocalDateTime.now().minusDays(retentionDays);
+    }
+}
@@ -0,0 +1,50 @@
+package com.davidnhn.book.trending;
+
+import com.davidnhn.book.job.ClusterJob;
+import com.davidnhn.book.job.JobChunk;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+/**
+ * Supprime les tranches de book_activity sorties de la fenêtre du classement (window-days), par lots.
+ */
+@Component
+@RequiredArgsConstructor
+public class ActivityBucketPurgeJob implements ClusterJob {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${application.trending.purge-cron}")
+    private String cron;
+
+    @Value("${application.trending.window-days}")
+    private int windowDays;
+
+    @Value("${application.jobs.chunk-size}")
+    private int chunkSize;
+
+    @Override
+    public String name() {
+        return "activity-bucket-purge";
+    }
+
+    @Override
+    public String cron() {
+        return cron;
+    }
+
+    @Override
+    public JobChunk processChunk(String checkpoint) {
+        // clé primaire composée : lignes désignées par leur ctid (index idx_book_activity_bucket)
+        int deleted = jdbcTemplate.update("""
+                DELETE FROM book_activity
+                WHERE ctid = ANY (ARRAY(SELECT ctid FROM book_activity WHERE bucket_start < ? LIMIT ?))
+                """, Timestamp.valueOf(LocalDateTime.now().minusDays(windowDays)), chunkSize);
+        return deleted < chunkSize ? JobChunk.last(deleted) : JobChunk.more(deleted, null);
+    }
+}
@@ -0,0 +1,15 @@
+package com.davidnhn.book.trending;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Compteurs d'activité d'un livre entre deux écritures en base.
+ * LongAdder répartit les incréments concurrents sur plusieurs cellules : pas de contention sur les livres populaires.
+ * Un compteur n'est lu qu'un flush après avoir été retiré (TrendingService.flushCounters) : les incréments commencés
+ * avant le retrait ont eu le temps de se terminer.
+ */
+class ActivityCounter {
+
+    final LongAdder views = new LongAdder();
+    final LongAdder borrows = new LongAdder();
+}
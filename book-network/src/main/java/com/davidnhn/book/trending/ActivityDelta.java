@@ -0,0 +1,12 @@
+package com.davidnhn.book.trending;
+
+record ActivityDelta(Integer bookId, long views, long borrows) {
+
+    ActivityDelta plus(ActivityDelta other) {
+        return new ActivityDelta(bookId, views + other.views, borrows + other.borrows);
+    }
+
+    ActivityDelta minus(ActivityDelta other) {
+        return new ActivityDelta(bookId, views - other.views, borrows - other.borrows);
+    }
+}
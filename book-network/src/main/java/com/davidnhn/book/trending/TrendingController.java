@@ -0,0 +1,29 @@
+package com.davidnhn.book.trending;
+
+import com.davidnhn.book.book.BookResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("books")
+@RequiredArgsConstructor
+@Tag(name = "Book")
+public class TrendingController {
+
+    private final TrendingService service;
+
+    // classement servi depuis la mémoire, recalculé à chaque écriture des compteurs ; sans couverture (GET /books/{book-id})
+    @GetMapping("/trending")
+    public ResponseEntity<List<BookResponse>> findTrendingBooks(
+            @RequestParam(name = "size", defaultValue = "10", required = false) int size
+    ) {
+        return ResponseEntity.ok(service.findTrendingBooks(size));
+    }
+}
@@ -0,0 +1,317 @@
+package com.davidnhn.book.trending;
+
+import com.davidnhn.book.book.BookField;
+import com.davidnhn.book.book.BookMapper;
+import com.davidnhn.book.book.BookResponse;
+import com.davidnhn.book.common.FieldSelection;
+import com.davidnhn.book.common.ProjectionQuery;
+import com.davidnhn.book.common.Projections;
+import com.davidnhn.book.history.LoanEvent;
+import com.davidnhn.book.history.LoanEventType;
+import jakarta.persistence.Tuple;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Classement des livres "tendance" à partir des consultations (BookService.findById) et des emprunts.
+ *
+ * Les événements ne font qu'incrémenter des compteurs en mémoire ; toutes les quelques secondes ils sont écrits
+ * en un seul batch dans book_activity (une ligne par livre et par heure) et ajoutés au score du livre. Toutes les
+ * sync-interval ms, les tranches récentes sont relues pour ajouter l'activité écrite par les autres instances.
+ *
+ * Le score décroît exponentiellement (demi-vie application.trending.half-life-hours). Pour ne pas avoir à
+ * recalculer tous les livres à chaque fois, les scores sont stockés relativement à un instant de référence
+ * (landmark) : un événement de poids w à l'instant t ajoute w * exp(lambda * (t - landmark)). Tous les scores
+ * décroissent du même facteur, l'ordre est donc conservé ; on ne ramène les valeurs à un nouvel instant de
+ * référence que lorsque l'exposant devient trop grand.
+ *
+ * Les compteurs ne concernent que les livres actifs depuis la dernière écriture : à chaque flush la map est remplacée
+ * par une map vide, et la map remplacée au flush précédent est lue et écrite. Un incrément qui a lu l'ancienne
+ * référence juste avant le remplacement a ainsi tout un intervalle de flush pour se terminer.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TrendingService {
+
+    // au-delà, exp(lambda * (t - landmark)) approche les limites de précision des double
+    private static final double MAX_EXPONENT = 50;
+    private static final double MIN_SCORE = 0.01;
+    // la couverture (lecture sur disque) n'est pas servie par le classement : GET /books/{book-id}
+    private static final Set<BookField> LEADERBOARD_FIELDS = EnumSet.complementOf(EnumSet.of(BookField.COVER));
+    private static final List<String> LEADERBOARD_SELECTIONS = FieldSelection.selections(LEADERBOARD_FIELDS);
+
+    private final Projections projections;
+    private final BookMapper bookMapper;
+    private final JdbcTemplate jdbcTemplate;
+
+    private volatile Map<Integer, ActivityCounter> counters = new ConcurrentHashMap<>();
+    // remplacée au flush précédent, lue au suivant (thread du flush uniquement)
+    private Map<Integer, ActivityCounter> retiredCounters = Map.of();
+    private volatile long lastSyncMs;
+
+    // accédés uniquement sous le verrou de l'instance
+    private final Map<Integer, Double> scores = new HashMap<>();
+    // totaux des tranches récentes (toutes instances) déjà comptés dans scores
+    private final Map<ActivityBucket, ActivityDelta> countedBuckets = new HashMap<>();
+    private long landmarkMs;
+
+    private volatile List<BookResponse> leaderboard = List.of();
+
+    @Value("${application.trending.half-life-hours}")
+    private double halfLifeHours;
+
+    @Value("${application.trending.view-weight}")
+    private double viewWeight;
+
+    @Value("${application.trending.borrow-weight}")
+    private double borrowWeight;
+
+    @Value("${application.trending.leaderboard-size}")
+    private int leaderboardSize;
+
+    @Value("${application.trending.window-days}")
+    private int windowDays;
+
+    @Value("${application.trending.sync-interval}")
+    private long syncInterval;
+
+    public void recordView(Integer bookId) {
+        record(bookId, 1, 0);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLoanEvent(LoanEvent event) {
+        if (event.type() == LoanEventType.BORROWED) {
+            record(event.bookId(), 0, 1);
+        }
+    }
+
+    private void record(Integer bookId, long views, long borrows) {
+        ActivityCounter counter = counters.computeIfAbsent(bookId, id -> new ActivityCounter());
+        counter.views.add(views);
+        counter.borrows.add(borrows);
+    }
+
+    public List<BookResponse> findTrendingBooks(int size) {
+        List<BookResponse> current = leaderboard;
+        return current.subList(0, Math.min(Math.max(size, 0), current.size()));
+    }
+
+    /**
+     * Reconstruit les scores à partir des tranches horaires de la fenêtre.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void loadScores() {
+        LocalDateTime from = LocalDateTime.now().minusDays(windowDays);
+        LocalDateTime recent = recentBucketsStart();
+        landmarkMs = toEpochMilli(from);
+        lastSyncMs = System.currentTimeMillis();
+        jdbcTemplate.query(
+                "SELECT book_id, bucket_start, views, borrows FROM book_activity WHERE bucket_start >= ?",
+                rs -> {
+                    ActivityDelta totals = new ActivityDelta(rs.getInt("book_id"), rs.getLong("views"), rs.getLong("borrows"));
+                    LocalDateTime bucketStart = rs.getTimestamp("bucket_start").toLocalDateTime();
+                    addScore(totals.bookId(), weight(totals), toEpochMilli(bucketStart));
+                    if (!bucketStart.isBefore(recent)) {
+                        countedBuckets.put(new ActivityBucket(totals.bookId(), bucketStart), totals);
+                    }
+                },
+                Timestamp.valueOf(from));
+        refreshLeaderboard();
+        log.debug("Loaded trending scores for {} books", scores.size());
+    }
+
+    @Scheduled(fixedDelayString = "${application.trending.flush-interval}")
+    public void flushCounters() {
+        Map<Integer, ActivityCounter> retired = retiredCounters;
+        retiredCounters = counters;
+        counters = new ConcurrentHashMap<>();
+
+        List<ActivityDelta> deltas = new ArrayList<>();
+        retired.forEach((bookId, counter) -> {
+            long views = counter.views.sum();
+            long borrows = counter.borrows.sum();
+            if (views > 0 || borrows > 0) {
+                deltas.add(new ActivityDelta(bookId, views, borrows));
+            }
+        });
+        if (!deltas.isEmpty()) {
+            store(deltas);
+        }
+        if (System.currentTimeMillis() - lastSyncMs >= syncInterval) {
+            syncRecentBuckets();
+        }
+    }
+
+    private void store(List<ActivityDelta> deltas) {
+        LocalDateTime bucketStart = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS);
+        try {
+            jdbcTemplate.batchUpdate("""
+                            INSERT INTO book_activity (book_id, bucket_start, views, borrows) VALUES (?, ?, ?, ?)
+                            ON CONFLICT (book_id, bucket_start) DO UPDATE
+                            SET views = book_activity.views + EXCLUDED.views, borrows = book_activity.borrows + EXCLUDED.borrows
+                            """,
+                    deltas,
+                    deltas.size(),
+                    (ps, delta) -> {
+                        ps.setInt(1, delta.bookId());
+                        ps.setTimestamp(2, Timestamp.valueOf(bucketStart));
+                        ps.setLong(3, delta.views());
+                        ps.setLong(4, delta.borrows());
+                    });
+        } catch (DataAccessException e) {
+            // on remet les compteurs pour la prochaine tentative
+            log.error("Could not store activity of {} books", deltas.size(), e);
+            deltas.forEach(delta -> record(delta.bookId(), delta.views(), delta.borrows()));
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            deltas.forEach(delta -> {
+                addScore(delta.bookId(), weight(delta), now);
+                countedBuckets.merge(new ActivityBucket(delta.bookId(), bucketStart), delta, ActivityDelta::plus);
+            });
+            refreshLeaderboard();
+        }
+    }
+
+    /**
+     * Relit les tranches de l'heure en cours et de la précédente : l'écart avec les totaux déjà comptés (chargement,
+     * flushs de cette instance, relectures précédentes) est l'activité écrite par les autres instances.
+     * Appelé par le thread du flush, après l'écriture : les flushs de cette instance ne sont pas comptés deux fois.
+     */
+    private void syncRecentBuckets() {
+        LocalDateTime from = recentBucketsStart();
+        Map<ActivityBucket, ActivityDelta> totals = new HashMap<>();
+        try {
+            jdbcTemplate.query(
+                    "SELECT book_id, bucket_start, views, borrows FROM book_activity WHERE bucket_start >= ?",
+                    rs -> {
+                        ActivityDelta bucketTotals = new ActivityDelta(rs.getInt("book_id"), rs.getLong("views"), rs.getLong("borrows"));
+                        totals.put(new ActivityBucket(bucketTotals.bookId(), rs.getTimestamp("bucket_start").toLocalDateTime()), bucketTotals);
+                    },
+                    Timestamp.valueOf(from));
+        } catch (DataAccessException e) {
+            log.warn("Could not read recent activity of other instances", e);
+            return;
+        }
+        lastSyncMs = System.currentTimeMillis();
+
+        synchronized (this) {
+            countedBuckets.keySet().removeIf(bucket -> bucket.start().isBefore(from));
+            boolean changed = false;
+            for (Map.Entry<ActivityBucket, ActivityDelta> entry : totals.entrySet()) {
+                ActivityDelta counted = countedBuckets.put(entry.getKey(), entry.getValue());
+                ActivityDelta others = counted == null ? entry.getValue() : entry.getValue().minus(counted);
+                if (others.views() > 0 || others.borrows() > 0) {
+                    addScore(others.bookId(), weight(others), lastSyncMs);
+                    changed = true;
+                }
+            }
+            if (changed) {
+                refreshLeaderboard();
+            }
+        }
+    }
+
+    private double weight(ActivityDelta delta) {
+        return delta.views() * viewWeight + delta.borrows() * borrowWeight;
+    }
+
+    // une écriture juste après le changement d'heure peut encore viser la tranche précédente
+    private static LocalDateTime recentBucketsStart() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.HOURS).minusHours(1);
+    }
+
+    private void addScore(Integer bookId, double weight, long atMs) {
+        if (weight <= 0) {
+            return;
+        }
+        if (lambda() * (atMs - landmarkMs) > MAX_EXPONENT) {
+            moveLandmark(atMs);
+        }
+        scores.merge(bookId, weight * Math.exp(lambda() * (atMs - landmarkMs)), Double::sum);
+    }
+
+    /**
+     * Ramène tous les scores au nouvel instant de référence et oublie ceux devenus négligeables.
+     */
+    private void moveLandmark(long newLandmarkMs) {
+        double factor = Math.exp(-lambda() * (newLandmarkMs - landmarkMs));
+        scores.replaceAll((bookId, score) -> score * factor);
+        scores.values().removeIf(score -> score < MIN_SCORE);
+        landmarkMs = newLandmarkMs;
+    }
+
+    /**
+     * Sélectionne les meilleurs scores avec un tas borné puis lit les livres correspondants par projection, sans
+     * couverture. Les livres archivés ou non partageables sont écartés, d'où une marge sur le nombre de candidats.
+     */
+    private void refreshLeaderboard() {
+        int candidates = leaderboardSize * 2;
+        PriorityQueue<Map.Entry<Integer, Double>> top = new PriorityQueue<>(candidates + 1, Map.Entry.comparingByValue());
+        for (Map.Entry<Integer, Double> entry : scores.entrySet()) {
+            top.offer(entry);
+            if (top.size() > candidates) {
+                top.poll();
+            }
+        }
+        List<Integer> ids = top.stream()
+                .sorted(Map.Entry.<Integer, Double>comparingByValue(Comparator.reverseOrder()))
+                .map(Map.Entry::getKey)
+                .toList();
+
+        if (ids.isEmpty()) {
+            leaderboard = List.of();
+            return;
+        }
+        ProjectionQuery query = new ProjectionQuery("Book book",
+                "book.id IN :ids AND book.archived = false AND book.shareable = true", null, Map.of("ids", ids));
+        Map<Integer, Tuple> books = projections.list(query, LEADERBOARD_SELECTIONS).stream()
+                .collect(Collectors.toMap(row -> row.get("id", Integer.class), Function.identity()));
+        leaderboard = ids.stream()
+                .map(books::get)
+                .filter(Objects::nonNull)
+                .limit(leaderboardSize)
+                .map(row -> bookMapper.toBookResponse(row, LEADERBOARD_FIELDS))
+                .toList();
+    }
+
+    private double lambda() {
+        return Math.log(2) / (halfLifeHours * 3_600_000);
+    }
+
+    private static long toEpochMilli(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private record ActivityBucket(int bookId, LocalDateTime start) {
+    }
+}
@@ -0,0 +1,57 @@
+package com.davidnhn.book.user;
+
+import com.davidnhn.book.job.ClusterJob;
+import com.davidnhn.book.job.JobChunk;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+/**
+ * Supprime par lots les codes d'activation expirés depuis plus de retention-days jours qui ne servent plus : déjà
+ * utilisés, ou remplacés par un code plus récent du même utilisateur. Le dernier code d'un compte non activé est gardé :
+ * AuthentificationService.activateAccount n'en renvoie un nouveau qu'à la présentation d'un code expiré.
+ */
+@Component
+@RequiredArgsConstructor
+public class TokenPurgeJob implements ClusterJob {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${application.jobs.token-purge.cron}")
+    private String cron;
+
+    @Value("${application.jobs.token-purge.retention-days}")
+    private int retentionDays;
+
+    @Value("${application.jobs.chunk-size}")
+    private int chunkSize;
+
+    @Override
+    public String name() {
+        return "token-purge";
+    }
+
+    @Override
+    public String cron() {
+        return cron;
+    }
+
+    @Override
+    public JobChunk processChunk(String checkpoint) {
+        int deleted = jdbcTemplate.update("""
+                DELETE FROM token WHERE id IN (
+                    SELECT token.id FROM token
+                    WHERE token.expires_at < ?
+                      AND (token.validated_at IS NOT NULL
+                           OR EXISTS (SELECT 1 FROM token newer
+                                      WHERE newer.user_id = token.user_id AND newer.created_at > token.created_at))
+                    LIMIT ?)
+                """,
+                Timestamp.valueOf(LocalDateTime.now().minusDays(retentionDays)), chunkSize);
+        return deleted < chunkSize ? JobChunk.last(deleted) : JobChunk.more(deleted, null);
+    }
+}
@@ -6,6 +6,8 @@ import com.davidnhn.book.role.Role;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
@@ -28,6 +30,7 @@ import java.util.stream.Collectors;
 @Entity
 @Table(name= "_user") // car user est un nom reservé
 @EntityListeners(AuditingEntityListener.class)
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class User implements UserDetails, Principal {
 
     @Id
@@ -44,6 +47,7 @@ public class User implements UserDetails, Principal {
 
 
     @ManyToMany(fetch = FetchType.EAGER)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE) // seuls les ids des rôles sont mis en cache, les Role viennent de leur propre région
     private List<Role> roles;
     /*
      * Relation ManyToMany avec Role :
@@ -0,0 +1,27 @@
+-- GET /sync : changements d'un utilisateur depuis un jeton, repérés par la date de modification
+-- (date de création tant que la ligne n'a jamais été modifiée, last_modified_date n'étant pas renseignée à l'insertion).
+-- L'expression indexée est celle des requêtes de SyncService, pour qu'un appel sans changement ne lise que l'index.
+
+-- BookRepository.findChangedBooks
+CREATE INDEX IF NOT EXISTS idx_book_owner_changed
+    ON book (owner_id, (COALESCE(last_modified_date, created_date)));
+
+-- BookTransactionHistoryRepository.findChangedLoans passe par idx_history_user_created (V2) : un emprunt change aussi
+-- quand son livre change, la condition porte sur les deux tables et ne peut pas être une plage d'index.
+
+-- FeedbackRepository.findChangedFeedbacks (feedbacks écrits par l'utilisateur)
+CREATE INDEX IF NOT EXISTS idx_feedback_author_changed
+    ON feedback (created_by, (COALESCE(last_modified_date, created_date)));
+
+-- éléments supprimés (ou retirés de la vue d'un utilisateur), gardés application.sync.tombstone-retention-days
+CREATE TABLE sync_tombstone
+(
+    id           BIGSERIAL    PRIMARY KEY,
+    user_id      INTEGER      NOT NULL,
+    entity_type  VARCHAR(16)  NOT NULL,
+    entity_id    INTEGER      NOT NULL,
+    deleted_date TIMESTAMP(6) NOT NULL
+);
+
+CREATE INDEX idx_sync_tombstone_user ON sync_tombstone (user_id, deleted_date);
+CREATE INDEX idx_sync_tombstone_date ON sync_tombstone (deleted_date);
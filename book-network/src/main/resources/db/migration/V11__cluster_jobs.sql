@@ -0,0 +1,25 @@
+-- ClusterJobScheduler : une ligne par exécution d'un job, quelle que soit l'instance qui l'a menée
+CREATE TABLE job_run
+(
+    id              BIGSERIAL    PRIMARY KEY,
+    job_name        VARCHAR(64)  NOT NULL,
+    node            VARCHAR(64)  NOT NULL,
+    status          VARCHAR(16)  NOT NULL, -- RUNNING, SUCCEEDED, FAILED, ABANDONED (instance perdue en cours d'exécution)
+    started_date    TIMESTAMP(6) NOT NULL,
+    finished_date   TIMESTAMP(6),
+    items_processed BIGINT       NOT NULL DEFAULT 0,
+    error           TEXT
+);
+
+-- dernière exécution (réussie) d'un job
+CREATE INDEX idx_job_run_name_started ON job_run (job_name, started_date DESC);
+
+-- exécution en cours ou interrompue : position du dernier lot validé, reprise par la prochaine exécution.
+-- run_id sert de jeton : seule l'exécution qui a repris le job peut avancer la position.
+CREATE TABLE job_checkpoint
+(
+    job_name     VARCHAR(64)  PRIMARY KEY,
+    run_id       BIGINT       NOT NULL,
+    position     VARCHAR(255),
+    updated_date TIMESTAMP(6) NOT NULL
+);
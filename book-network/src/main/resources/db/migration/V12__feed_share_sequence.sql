@@ -0,0 +1,33 @@
+-- position d'un livre dans les fils d'actualité (FeedTimelines) : attribuée chaque fois qu'il devient affichable
+-- (créé partagé, ou repassé partageable et non archivé), par toutes les écritures y compris les mises à jour groupées.
+-- Un ancien livre partagé aujourd'hui apparaît en tête des fils, ce que l'ordre des ids ne permettait pas.
+CREATE SEQUENCE IF NOT EXISTS book_share_seq;
+
+ALTER TABLE book ADD COLUMN share_sequence INTEGER;
+
+-- livres déjà affichables : dans l'ordre de création
+UPDATE book
+SET share_sequence = shared.position
+FROM (SELECT id, row_number() OVER (ORDER BY created_date, id) AS position
+      FROM book
+      WHERE shareable AND NOT archived) shared
+WHERE book.id = shared.id;
+
+SELECT setval('book_share_seq', COALESCE((SELECT MAX(share_sequence) FROM book), 0) + 1, false);
+
+CREATE FUNCTION book_assign_share_sequence() RETURNS trigger AS $$
+BEGIN
+    IF NEW.shareable AND NOT NEW.archived
+       AND (TG_OP = 'INSERT' OR NOT OLD.shareable OR OLD.archived) THEN
+        NEW.share_sequence := nextval('book_share_seq');
+    END IF;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_book_share_sequence
+    BEFORE INSERT OR UPDATE OF shareable, archived ON book
+    FOR EACH ROW EXECUTE FUNCTION book_assign_share_sequence();
+
+-- derniers livres partagés d'un propriétaire (FollowRepository.findRecentSharedBooks, findFeedEntries)
+CREATE INDEX idx_book_owner_share ON book (owner_id, share_sequence DESC) WHERE shareable AND NOT archived;
@@ -0,0 +1,13 @@
+-- a priori (application.ranking) avec lequel book.ranking_score a été calculé ; une seule ligne.
+-- RankingRescoreJob recalcule tous les scores quand l'a priori configuré en diffère.
+CREATE TABLE ranking_prior
+(
+    id           SMALLINT     PRIMARY KEY CHECK (id = 1),
+    prior_weight FLOAT(53)    NOT NULL,
+    prior_mean   FLOAT(53)    NOT NULL,
+    updated_date TIMESTAMP(6) NOT NULL
+);
+
+-- valeurs codées en dur dans V5__book_ranking_score
+INSERT INTO ranking_prior (id, prior_weight, prior_mean, updated_date)
+VALUES (1, 5, 3.0, now());
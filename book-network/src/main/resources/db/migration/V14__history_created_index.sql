@@ -0,0 +1,2 @@
+-- RecommendationService.loadRecentLoans : emprunts enregistrés depuis la dernière relecture, par toutes les instances
+CREATE INDEX idx_history_created ON book_transaction_history (created_date);
@@ -0,0 +1,89 @@
+-- Schéma initial, identique à celui que générait ddl-auto: update.
+-- Sur une base existante Flyway pose la baseline en V1 et ce script n'est pas rejoué.
+
+CREATE SEQUENCE IF NOT EXISTS _user_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS role_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS token_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS book_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS feedback_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS book_transaction_history_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS _user
+(
+    id                 INTEGER      NOT NULL PRIMARY KEY,
+    firstname          VARCHAR(255),
+    lastname           VARCHAR(255),
+    date_of_birth      DATE,
+    email              VARCHAR(255) UNIQUE,
+    password           VARCHAR(255),
+    account_locked     BOOLEAN      NOT NULL,
+    enabled            BOOLEAN      NOT NULL,
+    created_date       TIMESTAMP(6) NOT NULL,
+    last_modified_date TIMESTAMP(6)
+);
+
+CREATE TABLE IF NOT EXISTS role
+(
+    id                 INTEGER      NOT NULL PRIMARY KEY,
+    name               VARCHAR(255) UNIQUE,
+    created_date       TIMESTAMP(6) NOT NULL,
+    last_modified_date TIMESTAMP(6)
+);
+
+CREATE TABLE IF NOT EXISTS _user_roles
+(
+    users_id INTEGER NOT NULL REFERENCES _user (id),
+    roles_id INTEGER NOT NULL REFERENCES role (id)
+);
+
+CREATE TABLE IF NOT EXISTS token
+(
+    id           INTEGER      NOT NULL PRIMARY KEY,
+    token        VARCHAR(255) UNIQUE,
+    created_at   TIMESTAMP(6),
+    expires_at   TIMESTAMP(6),
+    validated_at TIMESTAMP(6),
+    user_id      INTEGER      NOT NULL REFERENCES _user (id)
+);
+
+CREATE TABLE IF NOT EXISTS book
+(
+    id                 INTEGER      NOT NULL PRIMARY KEY,
+    created_date       TIMESTAMP(6) NOT NULL,
+    last_modified_date TIMESTAMP(6),
+    created_by         INTEGER      NOT NULL,
+    last_modified_by   INTEGER,
+    title              VARCHAR(255),
+    author_name        VARCHAR(255),
+    isbn               VARCHAR(255),
+    synopsis           VARCHAR(255),
+    book_cover         VARCHAR(255),
+    archived           BOOLEAN      NOT NULL,
+    shareable          BOOLEAN      NOT NULL,
+    owner_id           INTEGER REFERENCES _user (id)
+);
+
+CREATE TABLE IF NOT EXISTS feedback
+(
+    id                 INTEGER      NOT NULL PRIMARY KEY,
+    created_date       TIMESTAMP(6) NOT NULL,
+    last_modified_date TIMESTAMP(6),
+    created_by         INTEGER      NOT NULL,
+    last_modified_by   INTEGER,
+    note               FLOAT(53),
+    comment            VARCHAR(255),
+    book_id            INTEGER REFERENCES book (id)
+);
+
+CREATE TABLE IF NOT EXISTS book_transaction_history
+(
+    id                 INTEGER      NOT NULL PRIMARY KEY,
+    created_date       TIMESTAMP(6) NOT NULL,
+    last_modified_date TIMESTAMP(6),
+    created_by         INTEGER      NOT NULL,
+    last_modified_by   INTEGER,
+    returned           BOOLEAN      NOT NULL,
+    return_approved    BOOLEAN      NOT NULL,
+    user_id            INTEGER REFERENCES _user (id),
+    book_id            INTEGER REFERENCES book (id)
+);
@@ -0,0 +1,35 @@
+-- Index dédiés aux requêtes des repositories (voir QueryPlanRegressionTests).
+
+-- BookRepository.findAllDisplayableBooks : index partiel sur les seuls livres affichables,
+-- parcouru dans l'ordre du tri (createdDate desc) ; owner_id est filtré dans l'index.
+CREATE INDEX IF NOT EXISTS idx_book_displayable_created
+    ON book (created_date DESC, owner_id)
+    WHERE archived = false AND shareable = true;
+
+-- BookService.findAllBooksByOwner (BookSpecification.withOwnerId) + jointure de findAllReturnedBooks
+CREATE INDEX IF NOT EXISTS idx_book_owner_created
+    ON book (owner_id, created_date DESC);
+
+-- FeedbackRepository.findAllByBookId
+CREATE INDEX IF NOT EXISTS idx_feedback_book
+    ON feedback (book_id, created_date DESC);
+
+-- BookTransactionHistoryRepository.findAllBorrowedBooks
+CREATE INDEX IF NOT EXISTS idx_history_user_created
+    ON book_transaction_history (user_id, created_date DESC);
+
+-- BookTransactionHistoryRepository.findAllReturnedBooks (après la jointure sur book.owner_id)
+CREATE INDEX IF NOT EXISTS idx_history_book_created
+    ON book_transaction_history (book_id, created_date DESC);
+
+-- isAlreadyBorrowedByUser / findByBookIdAndUserId / findByBookIdAndOwnerId : seuls les emprunts non clôturés
+CREATE INDEX IF NOT EXISTS idx_history_open_loans
+    ON book_transaction_history (book_id, user_id)
+    WHERE return_approved = false;
+
+-- chargement des rôles d'un utilisateur (User.roles en EAGER) et des tokens
+CREATE INDEX IF NOT EXISTS idx_user_roles_user
+    ON _user_roles (users_id);
+
+CREATE INDEX IF NOT EXISTS idx_token_user
+    ON token (user_id);
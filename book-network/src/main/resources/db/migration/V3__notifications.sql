@@ -0,0 +1,22 @@
+CREATE SEQUENCE IF NOT EXISTS notification_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE notification
+(
+    id           INTEGER      NOT NULL PRIMARY KEY,
+    user_id      INTEGER      NOT NULL REFERENCES _user (id),
+    type         VARCHAR(255),
+    book_id      INTEGER,
+    book_title   VARCHAR(255),
+    seen         BOOLEAN      NOT NULL,
+    created_date TIMESTAMP(6)
+);
+
+-- NotificationRepository.findAllBefore : pagination par curseur sur l'id
+CREATE INDEX idx_notification_user_id ON notification (user_id, id DESC);
+
+-- compteur de non-lus maintenu de façon incrémentale (jamais de COUNT sur notification)
+CREATE TABLE notification_counter
+(
+    user_id      INTEGER NOT NULL PRIMARY KEY REFERENCES _user (id),
+    unread_count BIGINT  NOT NULL DEFAULT 0
+);
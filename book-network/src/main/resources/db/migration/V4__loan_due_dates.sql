@@ -0,0 +1,12 @@
+ALTER TABLE book_transaction_history ADD COLUMN due_date TIMESTAMP(6);
+ALTER TABLE book_transaction_history ADD COLUMN overdue_notified BOOLEAN NOT NULL DEFAULT false;
+
+-- les emprunts en cours reçoivent la durée par défaut (application.loans.duration-days)
+UPDATE book_transaction_history
+SET due_date = created_date + INTERVAL '14 days'
+WHERE due_date IS NULL;
+
+-- OverdueLoanScanner : chargement par plage d'échéances des seuls emprunts en cours non encore signalés
+CREATE INDEX idx_history_open_due_date
+    ON book_transaction_history (due_date)
+    WHERE returned = false AND overdue_notified = false;
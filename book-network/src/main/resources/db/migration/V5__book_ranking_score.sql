@@ -0,0 +1,21 @@
+ALTER TABLE book ADD COLUMN feedback_count INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE book ADD COLUMN note_sum FLOAT(53) NOT NULL DEFAULT 0;
+ALTER TABLE book ADD COLUMN ranking_score FLOAT(53) NOT NULL DEFAULT 0;
+
+UPDATE book
+SET feedback_count = agg.feedback_count,
+    note_sum       = agg.note_sum
+FROM (SELECT book_id, COUNT(*) AS feedback_count, COALESCE(SUM(note), 0) AS note_sum
+      FROM feedback
+      WHERE note IS NOT NULL
+      GROUP BY book_id) agg
+WHERE agg.book_id = book.id;
+
+-- moyenne bayésienne avec l'a priori par défaut (application.ranking.prior-weight = 5, prior-mean = 3.0)
+UPDATE book
+SET ranking_score = (5 * 3.0 + note_sum) / (5 + feedback_count);
+
+-- BookRepository.findTopRatedBooks : parcours de l'index dans l'ordre du classement, livres affichables uniquement
+CREATE INDEX idx_book_top_rated
+    ON book (ranking_score DESC, id DESC)
+    WHERE archived = false AND shareable = true;
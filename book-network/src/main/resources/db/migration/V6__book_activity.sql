@@ -0,0 +1,12 @@
+-- compteurs de consultations et d'emprunts agrégés par heure (écrits par lots par TrendingService)
+CREATE TABLE book_activity
+(
+    book_id      INTEGER      NOT NULL REFERENCES book (id),
+    bucket_start TIMESTAMP(6) NOT NULL,
+    views        BIGINT       NOT NULL DEFAULT 0,
+    borrows      BIGINT       NOT NULL DEFAULT 0,
+    PRIMARY KEY (book_id, bucket_start)
+);
+
+-- rechargement de la fenêtre au démarrage et purge des anciennes tranches
+CREATE INDEX idx_book_activity_bucket ON book_activity (bucket_start);
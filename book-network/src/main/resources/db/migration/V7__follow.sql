@@ -0,0 +1,14 @@
+CREATE SEQUENCE IF NOT EXISTS follow_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE follow
+(
+    id           INTEGER      NOT NULL PRIMARY KEY,
+    follower_id  INTEGER      NOT NULL REFERENCES _user (id),
+    followed_id  INTEGER      NOT NULL REFERENCES _user (id),
+    created_date TIMESTAMP(6) NOT NULL,
+    -- sert aussi d'index pour les abonnements d'un utilisateur (FollowRepository.findFollowedIds, findFeedBookIds)
+    CONSTRAINT uk_follow_follower_followed UNIQUE (follower_id, followed_id)
+);
+
+-- fan-out d'un nouveau livre et comptage des abonnés (FollowRepository.findFollowerIds, countByFollowedId)
+CREATE INDEX idx_follow_followed ON follow (followed_id, follower_id);
@@ -0,0 +1,2 @@
+-- Book.version (@Version) : incrémentée à chaque modification, y compris par les UPDATE ensemblistes de BookRepository
+ALTER TABLE book ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,2 @@
+-- Feedback.version (@Version) : entre dans l'ETag de GET /feedbacks/book/{book-id}
+ALTER TABLE feedback ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,374 @@
+package com.davidnhn.book;
+
+import com.davidnhn.book.book.BookRepository;
+import com.davidnhn.book.book.BookSpecification;
+import com.davidnhn.book.common.FieldSelection;
+import com.davidnhn.book.common.ProjectionQuery;
+import com.davidnhn.book.common.Projections;
+import com.davidnhn.book.feedback.FeedbackField;
+import com.davidnhn.book.feedback.FeedbackRepository;
+import com.davidnhn.book.follow.FollowRepository;
+import com.davidnhn.book.history.BookTransactionHistoryRepository;
+import com.davidnhn.book.notification.NotificationRepository;
+import com.davidnhn.book.role.RoleRepository;
+import com.davidnhn.book.sync.SyncTombstones;
+import com.davidnhn.book.user.TokenRepository;
+import com.davidnhn.book.user.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Vérifie, via EXPLAIN, que chaque requête des repositories utilise un index sur une base Postgres locale peuplée.
+ *
+ * Les repositories sont appelés pour de vrai (Hibernate sur le schéma migré par Flyway, sans cache de second niveau) :
+ * chaque requête préparée qu'ils exécutent est notée avec ses paramètres, puis rejouée sous EXPLAIN avec les mêmes
+ * valeurs. Aucun nœud du plan ne doit parcourir séquentiellement une des tables lues par la requête (nom exact de la
+ * relation, toutes les tables d'une jointure). Les COUNT des réponses paginées ne sont pas vérifiés : ils comptent
+ * par nature toutes les lignes qui correspondent.
+ *
+ * Lancement : mvn test -Pquery-plans [-DqueryPlan.url=... -DqueryPlan.username=... -DqueryPlan.password=...]
+ */
+@Tag("query-plan")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class QueryPlanRegressionTests {
+
+    private static final String SCHEMA = "query_plan_check";
+    private static final int USER_ID = 42;
+    private static final int BOOK_ID = 1234;
+    private static final Pattern SEQUENTIAL_SCAN = Pattern.compile("Seq Scan on (\\w+)");
+
+    private Connection connection;
+    private RecordingDataSource recording;
+    private LocalContainerEntityManagerFactoryBean entityManagerFactory;
+    private JpaRepositoryFactory repositories;
+    private EntityManager entityManager;
+    private TransactionTemplate transactions;
+
+    @BeforeAll
+    void migrateAndSeed() throws SQLException {
+        String url = System.getProperty("queryPlan.url", "jdbc:postgresql://localhost:5432/book_social_network");
+        String username = System.getProperty("queryPlan.username", "username");
+        String password = System.getProperty("queryPlan.password", "password");
+
+        Flyway flyway = Flyway.configure()
+                .dataSource(url, username, password)
+                .schemas(SCHEMA)
+                .createSchemas(true)
+                .cleanDisabled(false)
+                .locations("classpath:db/migration")
+                .load();
+        flyway.clean();
+        flyway.migrate();
+
+        String schemaUrl = url + (url.contains("?") ? "&" : "?") + "currentSchema=" + SCHEMA;
+        connection = DriverManager.getConnection(schemaUrl, username, password);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("""
+                    INSERT INTO _user (id, firstname, lastname, email, password, account_locked, enabled, created_date)
+                    SELECT g, 'first' || g, 'last' || g, 'user' || g || '@bsn.test', 'x', false, true, now()
+                    FROM generate_series(1, 2000) g
+                    """);
+            statement.execute("""
+                    INSERT INTO role (id, name, created_date)
+                    SELECT g, 'ROLE_' || g, now()
+                    FROM generate_series(1, 2000) g
+                    """);
+            statement.execute("""
+                    INSERT INTO token (id, token, created_at, expires_at, user_id)
+                    SELECT g, 'token' || g, now(), now() + interval '15 minutes', (g % 2000) + 1
+                    FROM generate_series(1, 200000) g
+                    """);
+            statement.execute("""
+                    INSERT INTO book (id, created_date, created_by, title, author_name, isbn, synopsis, archived, shareable, owner_id, ranking_score)
+                    SELECT g, now() - g * interval '1 minute', (g % 2000) + 1, 'title ' || g, 'author ' || (g % 500), 'isbn' || g, 'synopsis',
+                           g % 10 = 0, g % 3 <> 0, (g % 2000) + 1, 1 + (g * 7919 % 4000) / 1000.0
+                    FROM generate_series(1, 200000) g
+                    """);
+            statement.execute("""
+                    INSERT INTO feedback (id, created_date, created_by, note, comment, book_id)
+                    SELECT g, now() - g * interval '1 minute', (g % 2000) + 1, (g % 5) + 1, 'comment', (g % 200000) + 1
+                    FROM generate_series(1, 200000) g
+                    """);
+            statement.execute("""
+                    INSERT INTO book_transaction_history (id, created_date, created_by, returned, return_approved, user_id, book_id, due_date)
+                    SELECT g, now() - g * interval '1 minute', (g % 2000) + 1, g % 2 = 0, g % 4 = 0, (g % 2000) + 1, ((g * 7) % 200000) + 1,
+                           now() - g * interval '1 minute' + interval '14 days'
+                    FROM generate_series(1, 200000) g
+                    """);
+            statement.execute("""
+                    INSERT INTO notification (id, user_id, type, book_id, book_title, seen, created_date)
+                    SELECT g, (g % 2000) + 1, 'BOOK_BORROWED', (g % 200000) + 1, 'title ' || g, g % 3 = 0, now() - g * interval '1 minute'
+                    FROM generate_series(1, 200000) g
+                    """);
+            statement.execute("""
+                    INSERT INTO sync_tombstone (user_id, entity_type, entity_id, deleted_date)
+                    SELECT (g % 2000) + 1, 'BOOK', g, now() - g * interval '1 minute'
+                    FROM generate_series(1, 200000) g
+                    """);
+            statement.execute("VACUUM ANALYZE");
+        }
+
+        recording = new RecordingDataSource(new DriverManagerDataSource(schemaUrl, username, password));
+        entityManagerFactory = new LocalContainerEntityManagerFactoryBean();
+        entityManagerFactory.setDataSource(recording);
+        entityManagerFactory.setPackagesToScan("com.davidnhn.book");
+        entityManagerFactory.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        // mêmes stratégies de nommage que Spring Boot ; sans cache, chaque appel va en base
+        entityManagerFactory.setJpaPropertyMap(Map.of(
+                "hibernate.physical_naming_strategy", "org.hibernate.boot.model.naming.CamelCaseToUnderscoresNamingStrategy",
+                "hibernate.implicit_naming_strategy", "org.springframework.boot.orm.jpa.hibernate.SpringImplicitNamingStrategy",
+                "hibernate.cache.use_second_level_cache", "false",
+                "hibernate.cache.use_query_cache", "false"));
+        entityManagerFactory.afterPropertiesSet();
+        EntityManagerFactory factory = entityManagerFactory.getObject();
+        entityManager = SharedEntityManagerCreator.createSharedEntityManager(factory);
+        repositories = new JpaRepositoryFactory(entityManager);
+        transactions = new TransactionTemplate(new JpaTransactionManager(factory));
+    }
+
+    @AfterAll
+    void close() throws SQLException {
+        if (entityManagerFactory != null) {
+            entityManagerFactory.destroy();
+        }
+        if (connection != null) {
+            connection.close();
+        }
+    }
+
+    Stream<Arguments> repositoryQueries() {
+        LocalDateTime until = LocalDateTime.now();
+        LocalDateTime since = until.minusHours(1);
+        Pageable newestFirst = PageRequest.of(0, 10, Sort.by("createdDate").descending());
+        return Stream.of(
+                query("BookRepository.findAllDisplayableBooks", Set.of("book"),
+                        () -> books().findAllDisplayableBooks(newestFirst, USER_ID)),
+                query("BookRepository.findTopRatedBooks", Set.of("book"),
+                        () -> books().findTopRatedBooks(PageRequest.of(0, 10), USER_ID)),
+                query("BookRepository.findTopRatedBooksSlice", Set.of("book"),
+                        () -> books().findTopRatedBooksSlice(PageRequest.of(0, 10), USER_ID)),
+                query("BookSpecification.withOwnerId", Set.of("book"),
+                        () -> books().findAll(BookSpecification.withOwnerId(USER_ID), newestFirst)),
+                query("FeedbackService.findAllFeedbacksByBook", Set.of("feedback"),
+                        () -> new Projections(entityManager).page(
+                                new ProjectionQuery("Feedback feedback", "feedback.book.id = :bookId",
+                                        "feedback.createdDate DESC, feedback.id DESC", Map.of("bookId", BOOK_ID)),
+                                FieldSelection.selections(EnumSet.allOf(FeedbackField.class)),
+                                PageRequest.of(0, 10))),
+                query("BookTransactionHistoryRepository.findAllBorrowedBooks", Set.of("book_transaction_history"),
+                        () -> histories().findAllBorrowedBooks(newestFirst, USER_ID)),
+                query("BookTransactionHistoryRepository.findAllReturnedBooks", Set.of("book_transaction_history", "book"),
+                        () -> histories().findAllReturnedBooks(newestFirst, USER_ID)),
+                query("BookTransactionHistoryRepository.isAlreadyBorrowedByUser", Set.of("book_transaction_history"),
+                        () -> histories().isAlreadyBorrowedByUser(BOOK_ID, USER_ID)),
+                query("BookTransactionHistoryRepository.findByBookIdAndUserId", Set.of("book_transaction_history"),
+                        () -> histories().findByBookIdAndUserId(BOOK_ID, USER_ID)),
+                query("BookTransactionHistoryRepository.findByBookIdAndOwnerId", Set.of("book_transaction_history", "book"),
+                        () -> histories().findByBookIdAndOwnerId(BOOK_ID, USER_ID)),
+                query("BookTransactionHistoryRepository.findOpenLoanDeadlines", Set.of("book_transaction_history"),
+                        () -> histories().findOpenLoanDeadlines(until.plusDays(13), until.plusDays(13).plusHours(1))),
+                query("BookTransactionHistoryRepository.findPendingReturns", Set.of("book_transaction_history", "book"),
+                        () -> rolledBack(() -> histories().findPendingReturns(USER_ID, Limit.of(100)))),
+                query("BookRepository.findChangedBooks", Set.of("book"),
+                        () -> books().findChangedBooks(USER_ID, since, until)),
+                query("BookTransactionHistoryRepository.findChangedLoans", Set.of("book_transaction_history", "book"),
+                        () -> histories().findChangedLoans(USER_ID, since, until)),
+                query("FeedbackRepository.findChangedFeedbacks", Set.of("feedback"),
+                        () -> repositories.getRepository(FeedbackRepository.class).findChangedFeedbacks(USER_ID, since, until)),
+                query("SyncTombstones.findSince", Set.of("sync_tombstone"),
+                        () -> new SyncTombstones(new JdbcTemplate(recording)).findSince(USER_ID, since, until)),
+                query("FollowRepository.findRecentSharedBooks", Set.of("book"),
+                        () -> repositories.getRepository(FollowRepository.class).findRecentSharedBooks(USER_ID, Limit.of(200))),
+                query("NotificationRepository.findAllBefore", Set.of("notification"),
+                        () -> repositories.getRepository(NotificationRepository.class).findAllBefore(USER_ID, 150_000, Limit.of(20))),
+                query("UserRepository.findByEmail", Set.of("_user"),
+                        () -> repositories.getRepository(UserRepository.class).findByEmail("user" + USER_ID + "@bsn.test")),
+                query("TokenRepository.findByToken", Set.of("token"),
+                        () -> repositories.getRepository(TokenRepository.class).findByToken("token" + BOOK_ID)),
+                query("RoleRepository.findByName", Set.of("role"),
+                        () -> repositories.getRepository(RoleRepository.class).findByName("ROLE_" + USER_ID))
+        );
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("repositoryQueries")
+    void queryDoesNotFallBackToSequentialScan(String query, Set<String> tables, Runnable call) throws Exception {
+        List<RecordedStatement> statements = recording.capture(call);
+        assertFalse(statements.isEmpty(), () -> query + " n'a exécuté aucune requête");
+        for (RecordedStatement statement : statements) {
+            if (statement.isCount()) {
+                continue;
+            }
+            String plan = explain(statement);
+            Set<String> scanned = sequentiallyScanned(plan);
+            scanned.retainAll(tables);
+            assertTrue(scanned.isEmpty(),
+                    () -> query + " parcourt séquentiellement " + scanned + " :\n" + statement.sql() + "\n" + plan);
+        }
+    }
+
+    private static Arguments query(String name, Set<String> tables, Runnable call) {
+        return Arguments.of(name, tables, call);
+    }
+
+    // requêtes verrouillantes (FOR UPDATE) : exécutées dans une transaction annulée aussitôt
+    private void rolledBack(Runnable call) {
+        transactions.executeWithoutResult(status -> {
+            call.run();
+            status.setRollbackOnly();
+        });
+    }
+
+    private BookRepository books() {
+        return repositories.getRepository(BookRepository.class);
+    }
+
+    private BookTransactionHistoryRepository histories() {
+        return repositories.getRepository(BookTransactionHistoryRepository.class);
+    }
+
+    // relations parcourues par un nœud Seq Scan (ou Parallel Seq Scan), par leur nom exact
+    private static Set<String> sequentiallyScanned(String plan) {
+        Set<String> relations = new TreeSet<>();
+        Matcher matcher = SEQUENTIAL_SCAN.matcher(plan);
+        while (matcher.find()) {
+            relations.add(matcher.group(1));
+        }
+        return relations;
+    }
+
+    private String explain(RecordedStatement recorded) throws Exception {
+        StringBuilder plan = new StringBuilder();
+        try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + recorded.sql())) {
+            for (ParameterCall parameter : recorded.parameters()) {
+                parameter.method().invoke(statement, parameter.args());
+            }
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    plan.append(rs.getString(1)).append('\n');
+                }
+            }
+        }
+        return plan.toString();
+    }
+
+    /**
+     * Note le SQL de chaque requête préparée exécutée et les appels set* qui lient ses paramètres, pour la rejouer
+     * telle quelle sous EXPLAIN.
+     */
+    private static final class RecordingDataSource extends DelegatingDataSource {
+
+        private final List<RecordedStatement> statements = new CopyOnWriteArrayList<>();
+
+        RecordingDataSource(DataSource target) {
+            super(target);
+        }
+
+        List<RecordedStatement> capture(Runnable call) {
+            statements.clear();
+            call.run();
+            return List.copyOf(statements);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return recording(super.getConnection());
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return recording(super.getConnection(username, password));
+        }
+
+        private Connection recording(Connection connection) {
+            return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> {
+                        Object result = invoke(connection, method, args);
+                        if (method.getName().equals("prepareStatement") && result instanceof PreparedStatement statement) {
+                            return recording(statement, (String) args[0]);
+                        }
+                        return result;
+                    });
+        }
+
+        private PreparedStatement recording(PreparedStatement statement, String sql) {
+            List<ParameterCall> parameters = new ArrayList<>();
+            return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{PreparedStatement.class},
+                    (proxy, method, args) -> {
+                        // setXxx(index, valeur...) ; setFetchSize(int) et les autres réglages n'ont qu'un argument
+                        if (method.getName().startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                            parameters.add(new ParameterCall(method, args));
+                        } else if (method.getName().equals("clearParameters")) {
+                            parameters.clear();
+                        } else if (method.getName().startsWith("execute")) {
+                            statements.add(new RecordedStatement(sql, List.copyOf(parameters)));
+                        }
+                        return invoke(statement, method, args);
+                    });
+        }
+
+        private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    private record ParameterCall(Method method, Object[] args) {
+    }
+
+    private record RecordedStatement(String sql, List<ParameterCall> parameters) {
+
+        boolean isCount() {
+            return sql.stripLeading().toLowerCase().startsWith("select count(");
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.davidnhn.book.book;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CatalogColumnsTests {
+
+    private static final int OWNER = 1;
+    private static final int OTHER_OWNER = 2;
+    private static final int READER = 3;
+
+    @Test
+    void pagesListNewestFirstAndSkipExcludedOwner() {
+        CatalogColumns columns = new CatalogColumns(0);
+        for (int id = 1; id <= 20; id++) {
+            columns.upsert(id, id % 2 == 0 ? OWNER : OTHER_OWNER, id * 1000L, true);
+        }
+
+        assertArrayEquals(new int[]{20, 19, 18}, columns.page(READER, 0, 3));
+        assertArrayEquals(new int[]{17, 16, 15}, columns.page(READER, 3, 3));
+        assertArrayEquals(new int[]{19, 17, 15}, columns.page(OWNER, 0, 3));
+        assertArrayEquals(new int[]{3, 1}, columns.page(OWNER, 8, 3));
+    }
+
+    @Test
+    void countsFollowDisplayabilityAndOwnerChanges() {
+        CatalogColumns columns = new CatalogColumns(4);
+        columns.upsert(1, OWNER, 1000, true);
+        columns.upsert(2, OWNER, 2000, true);
+        columns.upsert(3, OTHER_OWNER, 3000, false);
+        assertEquals(2, columns.countDisplayable(READER));
+        assertEquals(0, columns.countDisplayable(OWNER));
+
+        columns.upsert(3, OTHER_OWNER, 3000, true);
+        columns.upsert(1, OWNER, 1000, false);
+        columns.upsert(2, OTHER_OWNER, 2000, true);
+        assertEquals(2, columns.countDisplayable(READER));
+        assertEquals(2, columns.countDisplayable(OWNER));
+        assertEquals(0, columns.countDisplayable(OTHER_OWNER));
+        assertArrayEquals(new int[]{3, 2}, columns.page(READER, 0, 10));
+    }
+
+    @Test
+    void lateInsertionsKeepCreationOrder() {
+        CatalogColumns columns = new CatalogColumns(0);
+        columns.upsert(10, OWNER, 3000, true);
+        columns.upsert(11, OWNER, 5000, true);
+        // créé plus tôt sur une autre instance, reçu ensuite ; à date égale, l'id départage
+        columns.upsert(12, OWNER, 1000, true);
+        columns.upsert(9, OWNER, 3000, true);
+        columns.upsert(13, OWNER, 4000, false);
+        columns.upsert(13, OWNER, 4000, true);
+
+        assertArrayEquals(new int[]{11, 13, 10, 9, 12}, columns.page(READER, 0, 10));
+        assertEquals(5, columns.size());
+    }
+
+    @Test
+    void pageSizeIsBoundedByRemainingBooks() {
+        CatalogColumns columns = new CatalogColumns(0);
+        columns.upsert(1, OWNER, 1000, true);
+        columns.upsert(2, OWNER, 2000, true);
+
+        assertArrayEquals(new int[]{2, 1}, columns.page(READER, 0, Integer.MAX_VALUE));
+        assertArrayEquals(new int[0], columns.page(READER, (long) Integer.MAX_VALUE * Integer.MAX_VALUE, 10));
+        assertArrayEquals(new int[0], columns.page(READER, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> columns.page(READER, 0, -1));
+        assertThrows(IllegalArgumentException.class, () -> columns.page(READER, -1, 10));
+    }
+}
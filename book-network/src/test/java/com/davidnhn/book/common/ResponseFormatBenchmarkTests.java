@@ -0,0 +1,143 @@
+package com.davidnhn.book.common;
+
+import com.davidnhn.book.book.BookResponse;
+import com.davidnhn.book.feedback.FeedbackResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Taille et temps d'encodage des réponses paginées en JSON, CBOR et Smile : pages de 20 livres avec et sans couverture
+ * (40 Ko, base64 en JSON), page de 50 avis. Mesure aussi la recopie d'une réponse JSON déjà sérialisée (ResponseFormat.transcode).
+ *
+ * Lancement : mvn test -Pbenchmarks
+ */
+@Tag("benchmark")
+class ResponseFormatBenchmarkTests {
+
+    private static final int ITERATIONS = 20_000;
+    private static final Map<ResponseFormat, ObjectMapper> MAPPERS = Map.of(
+            ResponseFormat.JSON, new ObjectMapper(),
+            ResponseFormat.CBOR, new CBORMapper(),
+            ResponseFormat.SMILE, new SmileMapper());
+
+    @Test
+    void encodeRealisticPages() throws Exception {
+        SplittableRandom random = new SplittableRandom(7);
+        Map<String, PageResponse<?>> pages = Map.of(
+                "books with covers", bookPage(random, 40_000),
+                "books without covers", bookPage(random, 0),
+                "feedbacks", feedbackPage(random));
+
+        for (Map.Entry<String, PageResponse<?>> page : pages.entrySet()) {
+            int jsonSize = MAPPERS.get(ResponseFormat.JSON).writeValueAsBytes(page.getValue()).length;
+            for (ResponseFormat format : ResponseFormat.values()) {
+                ObjectMapper mapper = MAPPERS.get(format);
+                int size = mapper.writeValueAsBytes(page.getValue()).length;
+                long nanos = encodeNanos(mapper, page.getValue());
+                System.out.printf("%s, %s: %d bytes (%d%% of JSON), %d us/page%n",
+                        page.getKey(), format, size, 100 * size / jsonSize, nanos / 1_000);
+                if (format != ResponseFormat.JSON && page.getKey().equals("books with covers")) {
+                    // les couvertures sont écrites en octets bruts au lieu de base64
+                    assertTrue(size < jsonSize * 0.8);
+                }
+            }
+        }
+    }
+
+    @Test
+    void transcodeCachedResponse() throws Exception {
+        BookResponse book = book(new SplittableRandom(11), 1, 40_000);
+        byte[] json = MAPPERS.get(ResponseFormat.JSON).writeValueAsBytes(book);
+
+        for (ResponseFormat format : ResponseFormat.values()) {
+            byte[] transcoded = format.transcode(json);
+            for (int i = 0; i < ITERATIONS / 10; i++) {
+                format.transcode(json);
+            }
+            long start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                format.transcode(json);
+            }
+            long nanos = (System.nanoTime() - start) / ITERATIONS;
+            System.out.printf("transcode book, %s: %d bytes, %d us%n", format, transcoded.length, nanos / 1_000);
+
+            // recopie fidèle, couverture comprise (octets bruts en CBOR et Smile)
+            BookResponse decoded = MAPPERS.get(format).readValue(transcoded, BookResponse.class);
+            assertEquals(book.getSynopsis(), decoded.getSynopsis());
+            assertArrayEquals(book.getCover(), decoded.getCover());
+            if (format != ResponseFormat.JSON) {
+                assertTrue(transcoded.length < json.length * 0.8);
+            }
+        }
+    }
+
+    private static long encodeNanos(ObjectMapper mapper, Object value) throws Exception {
+        // premières itérations pour chauffer le JIT
+        for (int i = 0; i < ITERATIONS / 10; i++) {
+            mapper.writeValueAsBytes(value);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            mapper.writeValueAsBytes(value);
+        }
+        return (System.nanoTime() - start) / ITERATIONS;
+    }
+
+    private static PageResponse<BookResponse> bookPage(SplittableRandom random, int coverBytes) {
+        List<BookResponse> books = new ArrayList<>();
+        for (int id = 1; id <= 20; id++) {
+            books.add(book(random, id, coverBytes));
+        }
+        return new PageResponse<>(books, 0, 20, 50, 1_000, true, false);
+    }
+
+    private static BookResponse book(SplittableRandom random, int id, int coverBytes) {
+        byte[] cover = null;
+        if (coverBytes > 0) {
+            cover = new byte[coverBytes];
+            for (int i = 0; i < coverBytes; i++) {
+                cover[i] = (byte) random.nextInt(256);
+            }
+        }
+        return BookResponse.builder()
+                .id(id)
+                .title("Title of book " + id)
+                .authorName("Author " + random.nextInt(1_000))
+                .isbn("978-" + random.nextInt(1_000_000_000))
+                .synopsis(text(random, 400))
+                .owner("Firstname Lastname")
+                .cover(cover)
+                .rate(random.nextInt(10, 51) / 10.0)
+                .archived(false)
+                .shareable(true)
+                .build();
+    }
+
+    private static PageResponse<FeedbackResponse> feedbackPage(SplittableRandom random) {
+        List<FeedbackResponse> feedbacks = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            feedbacks.add(new FeedbackResponse(random.nextInt(0, 11) / 2.0, text(random, 200), random.nextInt(20) == 0));
+        }
+        return new PageResponse<>(feedbacks, 0, 50, 4, 180, true, false);
+    }
+
+    private static String text(SplittableRandom random, int length) {
+        StringBuilder text = new StringBuilder(length);
+        while (text.length() < length) {
+            text.append("lorem ipsum dolor sit amet ".split(" ")[random.nextInt(5)]).append(' ');
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,166 @@
+package com.davidnhn.book.datasource;
+
+import com.davidnhn.book.user.User;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Routage des transactions entre deux instances Postgres locales : une principale et un réplica en réplication
+ * continue (streaming) depuis celle-ci, chaque instance étant reconnue à son adresse et son port.
+ *
+ * Lancement : mvn test -Preplica-routing [-DreplicaRouting.primaryUrl=... -DreplicaRouting.replicaUrl=...
+ * -DreplicaRouting.username=... -DreplicaRouting.password=...]
+ */
+@Tag("replica-routing")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ReplicaRoutingTests {
+
+    private static final String SERVER_QUERY = "SELECT inet_server_addr() || ':' || inet_server_port()";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private HikariDataSource primary;
+    private HikariDataSource replica;
+    private ReplicaDataSource replicas;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readWrite;
+    private TransactionTemplate readOnly;
+    private String primaryServer;
+    private String replicaServer;
+
+    @BeforeAll
+    void createDataSources() {
+        primary = pool("primary", System.getProperty("replicaRouting.primaryUrl", "jdbc:postgresql://localhost:5432/book_social_network"));
+        replica = pool("replica-1", System.getProperty("replicaRouting.replicaUrl", "jdbc:postgresql://localhost:5433/book_social_network"));
+        primaryServer = new JdbcTemplate(primary).queryForObject(SERVER_QUERY, String.class);
+        replicaServer = new JdbcTemplate(replica).queryForObject(SERVER_QUERY, String.class);
+        assertNotEquals(primaryServer, replicaServer, "the two URLs point to the same Postgres instance");
+
+        replicas = new ReplicaDataSource(primary, List.of(replica), Duration.ofSeconds(2), Duration.ofSeconds(1), meterRegistry);
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primary);
+        dataSource.setReadOnlyDataSource(replicas);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        replicas.probeLag();
+    }
+
+    @AfterEach
+    void clearSecurityContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @AfterAll
+    void close() {
+        replicas.close();
+        primary.close();
+    }
+
+    @Test
+    void readOnlyTransactionsGoToReplica() {
+        assertEquals(replicaServer, readOnly.execute(status -> server()));
+        assertTrue(meterRegistry.counter("datasource.reads", "target", "replica-1").count() > 0);
+    }
+
+    @Test
+    void readWriteTransactionsGoToPrimary() {
+        assertEquals(primaryServer, readWrite.execute(status -> server()));
+    }
+
+    @Test
+    void userWhoJustWroteReadsFromPrimaryUntilReplicaCaughtUp() throws Exception {
+        ReadYourWrites readYourWrites = new ReadYourWrites();
+        ReflectionTestUtils.setField(readYourWrites, "replicaMaxLag", Duration.ofSeconds(2));
+        User user = User.builder().id(42).build();
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(user, null, List.of()));
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        readYourWrites.afterCompletion(new MockHttpServletRequest("POST", "/books/borrow/1"), response, null, null);
+        Thread.sleep(5);
+
+        readYourWrites.preHandle(new MockHttpServletRequest("GET", "/books/borrowed"), response, null);
+        try {
+            // dernière mesure du retard antérieure à l'écriture
+            assertEquals(primaryServer, readOnly.execute(status -> server()));
+
+            // mesure suivante, une fois l'écriture rejouée (position WAL de la principale après l'écriture)
+            assertEquals(replicaServer, readAfterCaughtUp());
+        } finally {
+            readYourWrites.afterCompletion(new MockHttpServletRequest("GET", "/books/borrowed"), response, null, null);
+        }
+    }
+
+    @Test
+    void cacheLoadsReadFromPrimary() {
+        replicas.probeLag();
+        assertEquals(primaryServer, readOnly.execute(status -> ReadYourWrites.onPrimary(this::server)));
+        assertEquals(0, ReadYourWrites.requiredPosition());
+    }
+
+    @Test
+    void unreachableReplicaFallsBackToPrimary() {
+        HikariDataSource unreachable = pool("replica-down", "jdbc:postgresql://localhost:1/book_social_network");
+        unreachable.setInitializationFailTimeout(-1);
+        ReplicaDataSource fallback = new ReplicaDataSource(primary, List.of(unreachable), Duration.ofSeconds(2), Duration.ofSeconds(1), meterRegistry);
+        fallback.probeLag();
+        try {
+            LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primary);
+            dataSource.setReadOnlyDataSource(fallback);
+            TransactionTemplate transaction = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+            transaction.setReadOnly(true);
+            assertEquals(primaryServer, transaction.execute(status -> new JdbcTemplate(dataSource).queryForObject(SERVER_QUERY, String.class)));
+        } finally {
+            fallback.close();
+        }
+    }
+
+    private String readAfterCaughtUp() throws InterruptedException {
+        String server = primaryServer;
+        for (int attempt = 0; attempt < 20 && server.equals(primaryServer); attempt++) {
+            Thread.sleep(100);
+            replicas.probeLag();
+            server = readOnly.execute(status -> server());
+        }
+        return server;
+    }
+
+    private String server() {
+        return jdbcTemplate.queryForObject(SERVER_QUERY, String.class);
+    }
+
+    private static HikariDataSource pool(String name, String url) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName(name);
+        dataSource.setJdbcUrl(url);
+        dataSource.setUsername(System.getProperty("replicaRouting.username", "username"));
+        dataSource.setPassword(System.getProperty("replicaRouting.password", "password"));
+        dataSource.setMaximumPoolSize(2);
+        dataSource.setConnectionTimeout(1000);
+        return dataSource;
+    }
+}
@@ -0,0 +1,82 @@
+package com.davidnhn.book.follow;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Fan-out d'un nouveau livre et lecture du fil pour un propriétaire suivi par 1 million d'utilisateurs,
+ * en mode "push" (fan-out à l'écriture) puis en mode "pull" (célébrité, fusion à la lecture).
+ *
+ * Lancement : mvn test -Pbenchmarks (prévoir -DargLine=-Xmx4g)
+ */
+@Tag("benchmark")
+class FeedTimelinesBenchmarkTests {
+
+    private static final int FOLLOWERS = 1_000_000;
+    private static final int CAPACITY = 200;
+    private static final int CELEBRITY_ID = 1;
+    private static final int READS = 1_000_000;
+
+    @Test
+    void oneMillionFollowers() {
+        List<Integer> followerIds = new ArrayList<>(FOLLOWERS);
+        for (int i = 0; i < FOLLOWERS; i++) {
+            followerIds.add(FOLLOWERS + i);
+        }
+
+        // push : chaque livre est écrit dans le fil de chaque abonné
+        FeedTimelines push = loadedTimelines(followerIds);
+        long start = System.nanoTime();
+        for (int bookId = 1; bookId <= 10; bookId++) {
+            push.push(followerIds, new FeedEntry(bookId, bookId));
+        }
+        long pushMs = (System.nanoTime() - start) / 1_000_000 / 10;
+
+        // pull : une seule écriture dans le tampon de la célébrité
+        FeedTimelines pull = loadedTimelines(followerIds);
+        pull.promote(CELEBRITY_ID, followerIds);
+        List<FeedEntry> loaded = List.of();
+        pull.read(pull.timeline(FOLLOWERS), Integer.MAX_VALUE, 20, ownerId -> loaded);
+        start = System.nanoTime();
+        for (int bookId = 1; bookId <= 10; bookId++) {
+            pull.publishCelebrityBook(CELEBRITY_ID, new FeedEntry(bookId, bookId));
+        }
+        long publishNs = (System.nanoTime() - start) / 10;
+
+        SplittableRandom random = new SplittableRandom(3);
+        start = System.nanoTime();
+        for (int i = 0; i < READS; i++) {
+            pull.read(pull.timeline(FOLLOWERS + random.nextInt(FOLLOWERS)), Integer.MAX_VALUE, 20, ownerId -> loaded);
+        }
+        long pullReadNs = (System.nanoTime() - start) / READS;
+
+        start = System.nanoTime();
+        for (int i = 0; i < READS; i++) {
+            push.read(push.timeline(FOLLOWERS + random.nextInt(FOLLOWERS)), Integer.MAX_VALUE, 20, ownerId -> loaded);
+        }
+        long pushReadNs = (System.nanoTime() - start) / READS;
+
+        System.out.printf("feed, %d followers: push fan-out %d ms/book, pull publish %d ns/book, read %d ns (push) / %d ns (pull)%n",
+                FOLLOWERS, pushMs, publishNs, pushReadNs, pullReadNs);
+
+        List<Integer> expected = List.of(10, 9, 8, 7, 6, 5, 4, 3, 2, 1);
+        assertEquals(expected, bookIds(push.read(push.timeline(FOLLOWERS), Integer.MAX_VALUE, 20, ownerId -> loaded)));
+        assertEquals(expected, bookIds(pull.read(pull.timeline(FOLLOWERS), Integer.MAX_VALUE, 20, ownerId -> loaded)));
+    }
+
+    private static List<Integer> bookIds(List<FeedEntry> entries) {
+        return entries.stream().map(FeedEntry::bookId).toList();
+    }
+
+    private static FeedTimelines loadedTimelines(List<Integer> followerIds) {
+        FeedTimelines timelines = new FeedTimelines(CAPACITY);
+        followerIds.forEach(followerId -> timelines.load(followerId, List.of(), List.of(CELEBRITY_ID)));
+        return timelines;
+    }
+}
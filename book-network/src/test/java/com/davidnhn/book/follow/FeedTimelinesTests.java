@@ -0,0 +1,77 @@
+package com.davidnhn.book.follow;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class FeedTimelinesTests {
+
+    private static final int CELEBRITY_ID = 1;
+
+    @Test
+    void readMergesPushedAndPulledBooksWithoutDuplicates() {
+        FeedTimelines timelines = new FeedTimelines(4);
+        timelines.promote(CELEBRITY_ID, List.of());
+        FeedTimelines.Timeline timeline = timelines.load(2, entries(9, 5, 3), List.of(CELEBRITY_ID, 7));
+        timelines.push(2, new FeedEntry(11, 11));
+        timelines.push(2, new FeedEntry(5, 5));
+
+        assertEquals(List.of(11, 10, 9, 5, 4, 3),
+                bookIds(timelines.read(timeline, Integer.MAX_VALUE, 10, ownerId -> entries(10, 5, 4))));
+        assertEquals(List.of(9, 5), bookIds(timelines.read(timeline, 10, 2, ownerId -> List.of())));
+
+        timelines.unfollow(2, CELEBRITY_ID);
+        assertEquals(0, timeline.celebrities.length);
+    }
+
+    @Test
+    void laterSharedOldBookComesFirst() {
+        FeedTimelines timelines = new FeedTimelines(4);
+        FeedTimelines.Timeline timeline = timelines.load(2, List.of(new FeedEntry(30, 2), new FeedEntry(20, 1)), List.of());
+        // livre 3, créé bien avant les autres, partagé en dernier
+        timelines.push(2, new FeedEntry(3, 7));
+        // déjà présent : ignoré
+        timelines.push(2, new FeedEntry(30, 2));
+
+        List<FeedEntry> first = timelines.read(timeline, Integer.MAX_VALUE, 2, ownerId -> List.of());
+        assertEquals(List.of(new FeedEntry(3, 7), new FeedEntry(30, 2)), first);
+        assertEquals(List.of(new FeedEntry(20, 1)),
+                timelines.read(timeline, first.get(1).shareSequence(), 2, ownerId -> List.of()));
+    }
+
+    @Test
+    void resharedBookAppearsOnlyAtItsLatestShare() {
+        FeedTimelines timelines = new FeedTimelines(4);
+        FeedTimelines.Timeline timeline = timelines.load(2, List.of(new FeedEntry(8, 3), new FeedEntry(9, 1)), List.of());
+        timelines.push(2, new FeedEntry(9, 5));
+
+        assertEquals(List.of(new FeedEntry(9, 5)), timelines.read(timeline, Integer.MAX_VALUE, 1, ownerId -> List.of()));
+        assertEquals(List.of(new FeedEntry(8, 3)), timelines.read(timeline, 5, 10, ownerId -> List.of()));
+    }
+
+    @Test
+    void idleTimelinesAreEvicted() {
+        FeedTimelines timelines = new FeedTimelines(4);
+        FeedTimelines.Timeline timeline = timelines.load(2, List.of(), List.of());
+        timelines.read(timeline, Integer.MAX_VALUE, 1, ownerId -> List.of());
+
+        assertEquals(0, timelines.evictReadBefore(timeline.lastRead));
+        assertSame(timeline, timelines.timeline(2));
+        assertEquals(1, timelines.evictReadBefore(timeline.lastRead + 1));
+        assertNull(timelines.timeline(2));
+    }
+
+    private static List<FeedEntry> entries(int... sequences) {
+        // livres dont l'id est aussi l'ordre de partage
+        return Arrays.stream(sequences).mapToObj(id -> new FeedEntry(id, id)).toList();
+    }
+
+    private static List<Integer> bookIds(List<FeedEntry> entries) {
+        return entries.stream().map(FeedEntry::bookId).toList();
+    }
+}
@@ -0,0 +1,57 @@
+package com.davidnhn.book.history;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimingWheelTests {
+
+    private final TimingWheel<String> wheel = new TimingWheel<>(1000, 60, 0);
+    private final List<Long> fired = new ArrayList<>();
+    private long now;
+
+    @Test
+    void timerFiresOnTheTickAfterItsDeadline() {
+        assertTrue(wheel.add(new TimingWheel.Timer<>(5500, "loan")));
+
+        advanceTo(5999);
+        assertTrue(fired.isEmpty());
+
+        advanceTo(6000);
+        assertEquals(List.of(6000L), fired);
+    }
+
+    @Test
+    void overflowTimerFiresOnTheTickAfterItsDeadline() {
+        // au-delà des 60 s de la roue de base : passe par la roue de débordement
+        assertTrue(wheel.add(new TimingWheel.Timer<>(125_500, "loan")));
+
+        advanceTo(126_000);
+        assertEquals(List.of(126_000L), fired);
+    }
+
+    @Test
+    void pastDeadlineIsRejected() {
+        advanceTo(3000);
+        assertFalse(wheel.add(new TimingWheel.Timer<>(2500, "loan")));
+    }
+
+    // une seconde à la fois, comme OverdueLoanScanner
+    private void advanceTo(long target) {
+        while (now < target) {
+            now = Math.min(now + 1000, target);
+            wheel.advanceClock(now, this::reinsert);
+        }
+    }
+
+    private void reinsert(TimingWheel.Timer<String> timer) {
+        if (!wheel.add(timer)) {
+            fired.add(now);
+        }
+    }
+}
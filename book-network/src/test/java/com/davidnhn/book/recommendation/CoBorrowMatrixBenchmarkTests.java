@@ -0,0 +1,96 @@
+package com.davidnhn.book.recommendation;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Temps de construction et empreinte mémoire de la matrice de co-emprunts sur 10 millions d'emprunts
+ * (500 000 utilisateurs x 20 livres, popularité des livres très inégale).
+ *
+ * Lancement : mvn test -Pbenchmarks (prévoir -DargLine=-Xmx4g)
+ */
+@Tag("benchmark")
+@Slf4j
+class CoBorrowMatrixBenchmarkTests {
+
+    private static final int USERS = 500_000;
+    private static final int LOANS_PER_USER = 20;
+    private static final int BOOKS = 200_000;
+    private static final int MAX_USER_BOOKS = 500;
+
+    @Test
+    void buildTenMillionLoans() {
+        LoanPairs loans = generateLoans(new SplittableRandom(42));
+        assertEquals(USERS * LOANS_PER_USER, loans.size());
+
+        ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        try {
+            // première construction pour chauffer le JIT
+            CoBorrowMatrix.build(loans, BOOKS + 1, MAX_USER_BOOKS, pool);
+
+            long start = System.nanoTime();
+            CoBorrowMatrix matrix = CoBorrowMatrix.build(loans, BOOKS + 1, MAX_USER_BOOKS, pool);
+            long buildMs = (System.nanoTime() - start) / 1_000_000;
+
+            long queries = 100_000;
+            SplittableRandom random = new SplittableRandom(7);
+            start = System.nanoTime();
+            for (int i = 0; i < queries; i++) {
+                matrix.similar(1 + random.nextInt(BOOKS), 10);
+            }
+            long similarNs = (System.nanoTime() - start) / queries;
+
+            start = System.nanoTime();
+            for (int i = 0; i < queries; i++) {
+                matrix.recommended(1 + random.nextInt(USERS), 10);
+            }
+            long recommendedNs = (System.nanoTime() - start) / queries;
+
+            log.info("co-borrow matrix: {} loans, {} pairs, build {} ms on {} threads, ~{} MB, similar {} µs, recommended {} µs",
+                    loans.size(), matrix.pairCount(), buildMs, pool.getParallelism(),
+                    matrix.footprintBytes() / (1024 * 1024), similarNs / 1_000, recommendedNs / 1_000);
+
+            assertTrue(matrix.pairCount() > 0);
+            assertTrue(matrix.similar(1, 10).length > 0);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Popularité en loi de puissance : quelques livres très empruntés, une longue traîne de livres rares.
+     */
+    private static LoanPairs generateLoans(SplittableRandom random) {
+        LoanPairs.Builder builder = new LoanPairs.Builder();
+        int[] books = new int[LOANS_PER_USER];
+        for (int userId = 1; userId <= USERS; userId++) {
+            int count = 0;
+            while (count < LOANS_PER_USER) {
+                int bookId = 1 + (int) (BOOKS * Math.pow(random.nextDouble(), 3));
+                if (!contains(books, count, bookId)) {
+                    books[count++] = bookId;
+                }
+            }
+            for (int i = 0; i < count; i++) {
+                builder.add(userId, books[i]);
+            }
+        }
+        return builder.build();
+    }
+
+    private static boolean contains(int[] values, int length, int value) {
+        for (int i = 0; i < length; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,56 @@
+package com.davidnhn.book.recommendation;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CoBorrowMatrixTests {
+
+    private static final int MAX_USER_BOOKS = 500;
+
+    private final ForkJoinPool pool = new ForkJoinPool(2);
+
+    @AfterEach
+    void shutdownPool() {
+        pool.shutdown();
+    }
+
+    @Test
+    void incrementalLoansMatchFullBuild() {
+        CoBorrowMatrix matrix = build();
+
+        assertEquals(11, matrix.similar(10, 1)[0]);
+        assertTrue(matrix.addLoan(3, 11));
+        assertFalse(matrix.addLoan(3, 11));
+        assertEquals(10, matrix.recommended(3, 1)[0]);
+    }
+
+    @Test
+    void negativeIdsHaveNoNeighbours() {
+        CoBorrowMatrix matrix = build();
+
+        assertArrayEquals(new int[0], matrix.similar(-1, 10));
+        assertArrayEquals(new int[0], matrix.recommended(-1, 10));
+    }
+
+    @Test
+    void hugeLimitReturnsAllCandidates() {
+        CoBorrowMatrix matrix = build();
+
+        assertEquals(2, matrix.similar(10, Integer.MAX_VALUE).length);
+    }
+
+    private CoBorrowMatrix build() {
+        LoanPairs.Builder builder = new LoanPairs.Builder()
+                .add(1, 10).add(1, 11)
+                .add(2, 10).add(2, 11).add(2, 12)
+                .add(3, 12);
+        return CoBorrowMatrix.build(builder.build(), 13, MAX_USER_BOOKS, pool);
+    }
+}